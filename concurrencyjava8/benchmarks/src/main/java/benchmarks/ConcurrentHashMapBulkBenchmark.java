@@ -0,0 +1,69 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The bulk operations of AutomicDemo.introToParallelism and introToReduce over a larger map. Below
+ * {@link #parallelismThreshold} entries an operation runs on the calling thread, above it the map is
+ * split across the common ForkJoinPool. 1 always splits, Long.MAX_VALUE never does. The search looks for
+ * a value that is not there, so it visits every entry like the other two.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentHashMapBulkBenchmark
+{
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"1", "10000", "9223372036854775807"})
+    public long parallelismThreshold;
+
+    private final ConcurrentHashMap<String, Long> map = new ConcurrentHashMap<>();
+
+    @Setup
+    public void setUp()
+    {
+        for (long i = 0; i < size; i++)
+        {
+            map.put("key" + i, i);
+        }
+    }
+
+    @Benchmark
+    public long forEach()
+    {
+        LongAdder sum = new LongAdder();
+        map.forEach(parallelismThreshold, (key, value) -> sum.add(value));
+        return sum.sum();
+    }
+
+    @Benchmark
+    public String search()
+    {
+        return map.search(parallelismThreshold, (key, value) -> value < 0 ? key : null);
+    }
+
+    @Benchmark
+    public long reduce()
+    {
+        return map.reduceValuesToLong(parallelismThreshold, Long::longValue, 0L, Long::sum);
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One counter shared by all benchmark threads, as in AutomicDemo and SynchronizedDemo: every operation
+ * either reads the counter or adds one, with {@link #readPercent} reads. Reads are where the striped
+ * LongAdder and LongAccumulator pay for their cheap writes, since they sum every cell.
+ * Run with -t, or through {@link ThreadSweep}, to see how each counter holds up as threads contend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CounterBenchmark
+{
+    @Param({"0", "50", "90"})
+    public int readPercent;
+
+    private final AtomicInteger atomic = new AtomicInteger();
+    private final LongAdder adder = new LongAdder();
+    private final LongAccumulator accumulator = new LongAccumulator(Long::sum, 0L);
+    private final ReentrantLock lock = new ReentrantLock();
+    private int synchronizedCount;
+    private int lockedCount;
+
+    private boolean read()
+    {
+        return ThreadLocalRandom.current().nextInt(100) < readPercent;
+    }
+
+    @Benchmark
+    public long atomicInteger()
+    {
+        return read() ? atomic.get() : atomic.incrementAndGet();
+    }
+
+    @Benchmark
+    public long longAdder()
+    {
+        if (read())
+        {
+            return adder.sum();
+        }
+        adder.increment();
+        return 0;
+    }
+
+    @Benchmark
+    public long longAccumulator()
+    {
+        if (read())
+        {
+            return accumulator.get();
+        }
+        accumulator.accumulate(1);
+        return 0;
+    }
+
+    @Benchmark
+    public long synchronizedCounter()
+    {
+        boolean read = read();
+        synchronized (this)
+        {
+            return read ? synchronizedCount : ++synchronizedCount;
+        }
+    }
+
+    @Benchmark
+    public long reentrantLock()
+    {
+        boolean read = read();
+        lock.lock();
+        try
+        {
+            return read ? lockedCount : ++lockedCount;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A point of two coordinates shared by all benchmark threads and guarded by each of the locks of
+ * LocksDemo. A read returns the distance from the origin, which is only right if both coordinates come
+ * from the same write, a write moves the point. {@link #readPercent} of the operations are reads.
+ * Read-write locks only pay off with mostly reads, and the optimistic read of the StampedLock only while
+ * writes are rare enough that it seldom has to fall back to a read lock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadWriteLockBenchmark
+{
+    @Param({"50", "90", "99"})
+    public int readPercent;
+
+    private final ReentrantLock reentrantLock = new ReentrantLock();
+    private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private final StampedLock stampedLock = new StampedLock();
+
+    private double x;
+    private double y;
+
+    private boolean read()
+    {
+        return ThreadLocalRandom.current().nextInt(100) < readPercent;
+    }
+
+    private double distance()
+    {
+        return Math.sqrt(x * x + y * y);
+    }
+
+    private double move()
+    {
+        x += 1;
+        y -= 1;
+        return x;
+    }
+
+    @Benchmark
+    public double synchronizedBlock()
+    {
+        boolean read = read();
+        synchronized (this)
+        {
+            return read ? distance() : move();
+        }
+    }
+
+    @Benchmark
+    public double reentrantLock()
+    {
+        boolean read = read();
+        reentrantLock.lock();
+        try
+        {
+            return read ? distance() : move();
+        }
+        finally
+        {
+            reentrantLock.unlock();
+        }
+    }
+
+    @Benchmark
+    public double reentrantReadWriteLock()
+    {
+        if (read())
+        {
+            readWriteLock.readLock().lock();
+            try
+            {
+                return distance();
+            }
+            finally
+            {
+                readWriteLock.readLock().unlock();
+            }
+        }
+        readWriteLock.writeLock().lock();
+        try
+        {
+            return move();
+        }
+        finally
+        {
+            readWriteLock.writeLock().unlock();
+        }
+    }
+
+    @Benchmark
+    public double stampedLock()
+    {
+        if (read())
+        {
+            long stamp = stampedLock.readLock();
+            try
+            {
+                return distance();
+            }
+            finally
+            {
+                stampedLock.unlockRead(stamp);
+            }
+        }
+        return stampedWrite();
+    }
+
+    @Benchmark
+    public double stampedLockOptimistic()
+    {
+        if (read())
+        {
+            long stamp = stampedLock.tryOptimisticRead();
+            double currentX = x;
+            double currentY = y;
+            if (!stampedLock.validate(stamp))
+            {
+                //a write came in between, read again under the lock
+                stamp = stampedLock.readLock();
+                try
+                {
+                    currentX = x;
+                    currentY = y;
+                }
+                finally
+                {
+                    stampedLock.unlockRead(stamp);
+                }
+            }
+            return Math.sqrt(currentX * currentX + currentY * currentY);
+        }
+        return stampedWrite();
+    }
+
+    private double stampedWrite()
+    {
+        long stamp = stampedLock.writeLock();
+        try
+        {
+            return move();
+        }
+        finally
+        {
+            stampedLock.unlockWrite(stamp);
+        }
+    }
+}
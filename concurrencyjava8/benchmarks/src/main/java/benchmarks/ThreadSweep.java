@@ -0,0 +1,39 @@
+package benchmarks;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Runs the selected benchmarks once per thread count, since JMH itself takes a single -t.
+ * Usage: ThreadSweep 1,2,4,8 [jmh options], where the options select and configure the benchmarks as
+ * they would for the benchmarks jar, for example "Counter -p readPercent=0".
+ */
+public final class ThreadSweep
+{
+    private ThreadSweep()
+    {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException
+    {
+        if (args.length == 0)
+        {
+            System.err.println("Usage: ThreadSweep <thread counts, e.g. 1,2,4,8> [jmh options]");
+            System.exit(1);
+        }
+        CommandLineOptions options = new CommandLineOptions(Arrays.copyOfRange(args, 1, args.length));
+        for (String threads : args[0].split(","))
+        {
+            new Runner(new OptionsBuilder()
+                    .parent(options)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .build())
+                    .run();
+        }
+    }
+}
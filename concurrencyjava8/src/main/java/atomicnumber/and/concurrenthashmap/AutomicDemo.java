@@ -7,6 +7,7 @@ import java.util.concurrent.atomic.LongAdder;
 import java.util.function.LongBinaryOperator;
 import java.util.stream.IntStream;
 
+import static util.ConcurrentUtils.newFixedThreadPool;
 import static util.ConcurrentUtils.stop;
 
 public class AutomicDemo
@@ -28,7 +29,7 @@ public class AutomicDemo
     {
         AtomicInteger atomicInt = new AtomicInteger(0);
 
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("atomic", 2);
 
         IntStream.range(0, 1000)
                 .forEach(i -> executor.submit(atomicInt::incrementAndGet));
@@ -43,7 +44,7 @@ public class AutomicDemo
     {
         AtomicInteger atomicInt = new AtomicInteger(0);
 
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("update-and-get", 2);
 
         /*
         updateAndGet() accepts a lambda expression in order to perform
@@ -70,7 +71,7 @@ public class AutomicDemo
          */
         AtomicInteger atomicInt = new AtomicInteger(0);
 
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("accumulate-and-get", 2);
 
         IntStream.range(0, 1000)
                 .forEach(i -> {
@@ -96,7 +97,7 @@ public class AutomicDemo
         consumption because of set of variables held in memory.
          */
         LongAdder adder = new LongAdder();
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("long-adder", 2);
 
         IntStream.range(0, 1000)
                 .forEach(i -> executor.submit(adder::increment));
@@ -117,7 +118,7 @@ public class AutomicDemo
         LongBinaryOperator op = (x, y) -> 2 * x + y;
         LongAccumulator accumulator = new LongAccumulator(op, 1L);
 
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("long-accumulator", 2);
 
         IntStream.range(0, 10)
                 .forEach(i -> executor.submit(() -> accumulator.accumulate(i)));
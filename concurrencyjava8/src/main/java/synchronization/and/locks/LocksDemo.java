@@ -3,7 +3,6 @@ package synchronization.and.locks;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -13,6 +12,7 @@ import java.util.concurrent.locks.StampedLock;
 import java.util.stream.IntStream;
 
 import static util.ConcurrentUtils.sleep;
+import static util.ConcurrentUtils.newFixedThreadPool;
 import static util.ConcurrentUtils.stop;
 
 public class LocksDemo
@@ -49,7 +49,7 @@ public class LocksDemo
 
     public void reentrantlockDemo()
     {
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("reentrantlock", 2);
         ReentrantLock lock = new ReentrantLock();
 
         executor.submit(() -> {
@@ -81,7 +81,7 @@ public class LocksDemo
         simultaneously by multiple threads as long as no threads hold the write lock. This can improve
         performance and thoughput in case that reads are more frequent than writes.
          */
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("read-write-lock", 2);
         Map<String, String> map = new HashMap<>();
         ReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -120,7 +120,7 @@ public class LocksDemo
         stamps to either release a lock or to check if lock is still valid. Stamped also
         support another lock called optimistic locking.
          */
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("stamped-lock", 2);
         Map<String, String> map = new HashMap<>();
         StampedLock lock = new StampedLock();
 
@@ -159,7 +159,7 @@ public class LocksDemo
 
     public void introToOptimisticLock()
     {
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("optimistic-lock", 2);
         StampedLock lock = new StampedLock();
 
         executor.submit(() -> {
@@ -197,7 +197,7 @@ public class LocksDemo
 
     public void introToTryConvertToWriteLock()
     {
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("try-convert-to-write-lock", 2);
         StampedLock lock = new StampedLock();
 
         executor.submit(() -> {
@@ -232,7 +232,7 @@ public class LocksDemo
         of size 5, thus limiting concurrent access to 5. It's important to use a try/finally
         block to properly release the semaphore even in case of exceptions.
          */
-        ExecutorService executor = Executors.newFixedThreadPool(10);
+        ExecutorService executor = newFixedThreadPool("semaphores", 10);
 
         Semaphore semaphore = new Semaphore(5);
 
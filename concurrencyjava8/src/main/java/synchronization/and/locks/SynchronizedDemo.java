@@ -1,9 +1,9 @@
 package synchronization.and.locks;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.IntStream;
 
+import static util.ConcurrentUtils.newFixedThreadPool;
 import static util.ConcurrentUtils.stop;
 
 
@@ -45,7 +45,7 @@ public class SynchronizedDemo
 
     public void problemDemo()
     {
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("problem", 2);
 
         IntStream.range(0, 10000)
                 .forEach(i -> executor.submit(this::increment));
@@ -63,7 +63,7 @@ public class SynchronizedDemo
 
     public void solutionDemo()
     {
-        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ExecutorService executor = newFixedThreadPool("solution", 2);
 
         IntStream.range(0, 10000)
                 .forEach(i -> executor.submit(this::incrementSync));
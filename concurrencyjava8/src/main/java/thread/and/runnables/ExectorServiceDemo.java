@@ -4,6 +4,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.*;
 
+import util.ConcurrentUtils;
+import util.ElasticThreadPoolExecutor;
+
 public class ExectorServiceDemo
 {
     public static void main (String [] args) throws ExecutionException, InterruptedException {
@@ -23,7 +26,7 @@ public class ExectorServiceDemo
             }
         };
 
-        ExecutorService executor = Executors.newFixedThreadPool(1);//can increase this number to make it configurable.
+        ExecutorService executor = ConcurrentUtils.newFixedThreadPool("callable-and-future", 1);//can increase this number to make it configurable, or let it size itself, see introToElasticPool().
         Future<Integer> future = executor.submit(task);
 
         System.out.println("future done? " + future.isDone());//checks if future is done
@@ -32,6 +35,9 @@ public class ExectorServiceDemo
 
         System.out.println("future done? " + future.isDone());
         System.out.print("result: " + result);
+        //task wait and run times of every pool created through ConcurrentUtils
+        System.out.println();
+        ConcurrentUtils.registry().snapshot().forEach(System.out::println);
         /*
         Futures are tightly coupled to the underlying
         executor service. Keep in mind that every non-terminated future will throw exceptions
@@ -45,9 +51,43 @@ public class ExectorServiceDemo
     }
 
 
+    /*
+    No single pool size fits a load that changes over the day. An elastic pool starts at its minimum and
+    resizes itself between the bounds from what it measures: it grows while tasks wait for a thread and
+    growing still raises the throughput, and shrinks when its threads are mostly idle. How far it grows
+    depends on how much of the run time the tasks spend on the CPU. Blocking tasks, like the sleeping ones
+    below, get many threads, CPU-bound ones not many more than there are cores.
+     */
+    public static void introToElasticPool() throws InterruptedException {
+        ElasticThreadPoolExecutor executor =
+                ConcurrentUtils.newElasticThreadPool("elastic", 1, 16, 200, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 400; i++) {
+            executor.execute(() -> {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(20);
+                }
+                catch (InterruptedException e) {
+                    throw new IllegalStateException("task interrupted", e);
+                }
+            });
+        }
+        while (executor.getQueue().size() > 0) {
+            TimeUnit.MILLISECONDS.sleep(500);
+            System.out.println(executor.getTargetSize() + " threads, last decision: " + executor.getLastDecision());
+        }
+        //idle now, so it shrinks back one thread at a time
+        TimeUnit.SECONDS.sleep(5);
+        System.out.println(executor.getTargetSize() + " threads, last decision: " + executor.getLastDecision());
+        System.out.println(executor.getStats());
+
+        ConcurrentUtils.stop(executor);
+    }
+
+
     public void introToExecutor()
     {
-        ExecutorService executor = Executors.newSingleThreadExecutor(); //Executor with a thread pool of size 1
+        ExecutorService executor = ConcurrentUtils.newSingleThreadExecutor("executor"); //Executor with a thread pool of size 1
         executor.submit(()->{
             String threadName = Thread.currentThread().getName();
             System.out.println("Hello "+ threadName);
@@ -74,7 +114,7 @@ public class ExectorServiceDemo
 
 
     public void introToTimeout() throws InterruptedException, ExecutionException, TimeoutException {
-        ExecutorService executor = Executors.newFixedThreadPool(1);
+        ExecutorService executor = ConcurrentUtils.newFixedThreadPool("timeout", 1);
 
         Future<Integer> future = executor.submit(() -> {
             try {
@@ -101,7 +141,7 @@ public class ExectorServiceDemo
      */
 
     public void introToInvokeAll() throws InterruptedException {
-        ExecutorService executor = Executors.newWorkStealingPool();
+        ExecutorService executor = ConcurrentUtils.newWorkStealingPool("invoke-all");
         /*
         We first map each future to its return value and then print each value to console.
          */
@@ -130,7 +170,7 @@ public class ExectorServiceDemo
     that callable.
      */
     public void introToInvokeAny() throws InterruptedException, ExecutionException {
-        ExecutorService executor = Executors.newWorkStealingPool();
+        ExecutorService executor = ConcurrentUtils.newWorkStealingPool("invoke-any");
         /*
         newWorkStealingPool is factory method part of JAVA 8 and returns an executor of type
         ForkJoinPool which works slightly different than normal executors. Instead of using a
@@ -157,7 +197,7 @@ public class ExectorServiceDemo
 
 
     public void introToScheduledExecutorService() throws InterruptedException {
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+        ScheduledExecutorService executor = ConcurrentUtils.newScheduledThreadPool("scheduled-executor-service", 1);
 
         Runnable task = () -> System.out.println("Scheduling: " + System.nanoTime());
         /*
@@ -187,7 +227,7 @@ public class ExectorServiceDemo
         The difference is that the wait time period applies between the end of a task
         and the start of the next task.
         */
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+        ScheduledExecutorService executor = ConcurrentUtils.newScheduledThreadPool("periodic-executor-service", 1);
 
         Runnable task = () -> System.out.println("Scheduling: " + System.nanoTime());
 
@@ -199,7 +239,7 @@ public class ExectorServiceDemo
 
     public void introToScheduleWithFixedDelay()
     {
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+        ScheduledExecutorService executor = ConcurrentUtils.newScheduledThreadPool("schedule-with-fixed-delay", 1);
 
         Runnable task = () -> {
             try {
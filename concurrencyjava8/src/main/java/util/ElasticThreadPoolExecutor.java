@@ -0,0 +1,277 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread pool that sizes itself between a minimum and a maximum from what its tasks measure.
+ *
+ * Every sample interval it looks at how long tasks waited for a thread compared to how long they ran,
+ * the throughput, and how much of the run time was spent on the CPU. It grows while tasks queue up and
+ * growing still raises the throughput, up to about cores / CPU share threads and never while the tasks
+ * keep the cores busy, so a CPU-bound pool stays near the core count and a blocking one goes further.
+ * It shrinks by one when the queue stays empty and the threads are mostly idle. Growing needs
+ * {@value #GROW_AFTER} and shrinking {@value #SHRINK_AFTER} intervals in a row pointing the same way, and
+ * every resize is followed by a cooldown, so the size does not swing back and forth on a noisy load.
+ */
+public class ElasticThreadPoolExecutor extends InstrumentedThreadPoolExecutor
+{
+    //a task has to wait this part of its run time for a thread to count as queuing
+    private static final double GROW_WAIT_RATIO = 0.25;
+    //below this part of the time busy the pool is larger than it needs to be
+    private static final double SHRINK_UTILIZATION = 0.5;
+    //when the tasks keep this part of all cores busy more threads only wait for a core
+    private static final double CORES_BUSY = 0.9;
+    //a grow has to raise the throughput by this factor or growing pauses
+    private static final double MIN_GAIN = 1.05;
+    private static final int GROW_AFTER = 2;
+    private static final int SHRINK_AFTER = 5;
+    private static final int COOLDOWN = 1;
+    private static final int SATURATED_COOLDOWN = 10;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final ScheduledExecutorService SIZER = newSizer();
+
+    private final int minThreads;
+    private final int maxThreads;
+    private final boolean cpuTimed = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final ThreadLocal<Long> cpuStart = new ThreadLocal<>();
+    private final ScheduledFuture<?> sizing;
+
+    //only touched by the sizer thread
+    private ExecutorStats last;
+    private long lastCpuNanos;
+    private long lastSampleNanos = System.nanoTime();
+    private int growStreak;
+    private int shrinkStreak;
+    private int cooldown;
+    private double throughputBeforeGrow = -1;
+
+    private volatile int targetSize;
+    private volatile double throughput;
+    private volatile double cpuShare = 1;
+    private volatile String lastDecision = "none";
+    private final LongAdder grows = new LongAdder();
+    private final LongAdder shrinks = new LongAdder();
+
+    ElasticThreadPoolExecutor(String name, int minThreads, int maxThreads, long interval, TimeUnit unit,
+                              boolean daemon)
+    {
+        super(name, "elastic", checkBounds(minThreads, maxThreads), minThreads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemon);
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.targetSize = minThreads;
+        this.last = getStats();
+        this.sizing = SIZER.scheduleWithFixedDelay(this::resize, interval, interval, unit);
+    }
+
+    /**
+     * Runs before ThreadPoolExecutor checks the sizes itself, so bad bounds get a message that names both.
+     * @return the minimum
+     */
+    private static int checkBounds(int minThreads, int maxThreads)
+    {
+        if (minThreads < 1 || maxThreads < minThreads)
+        {
+            throw new IllegalArgumentException("Bad elastic pool bounds: " + minThreads + ".." + maxThreads);
+        }
+        return minThreads;
+    }
+
+    private static ScheduledExecutorService newSizer()
+    {
+        //shared by all elastic pools and not registered, so stopAll leaves it alone
+        ScheduledThreadPoolExecutor sizer =
+                new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("elastic-sizer", true));
+        sizer.setRemoveOnCancelPolicy(true);
+        return sizer;
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable task)
+    {
+        if (cpuTimed)
+        {
+            cpuStart.set(THREADS.getCurrentThreadCpuTime());
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable task, Throwable failure)
+    {
+        Long start = cpuStart.get();
+        if (start != null)
+        {
+            cpuNanos.add(THREADS.getCurrentThreadCpuTime() - start);
+        }
+    }
+
+    @Override
+    protected void terminated()
+    {
+        sizing.cancel(false);
+    }
+
+    void resize()
+    {
+        long now = System.nanoTime();
+        ExecutorStats stats = getStats();
+        long cpu = cpuNanos.sum();
+        long completed = stats.getCompleted() - last.getCompleted();
+        long waited = stats.getWaitNanos() - last.getWaitNanos();
+        long ran = stats.getRunNanos() - last.getRunNanos();
+        long ranOnCpu = cpu - lastCpuNanos;
+        long elapsed = Math.max(1, now - lastSampleNanos);
+        last = stats;
+        lastCpuNanos = cpu;
+        lastSampleNanos = now;
+
+        int size = targetSize;
+        throughput = completed * 1e9 / elapsed;
+        if (cpuTimed && ran > 0)
+        {
+            cpuShare = Math.max(0.01, Math.min(1, (double) ranOnCpu / ran));
+        }
+        //tasks still running at the end of the interval are not in the run time yet
+        double utilization = Math.max((double) ran / (elapsed * size), (double) stats.getActiveThreads() / size);
+        boolean queuing = stats.getQueueDepth() > 0 && (completed == 0 || waited > GROW_WAIT_RATIO * ran);
+        boolean idle = stats.getQueueDepth() == 0 && utilization < SHRINK_UTILIZATION;
+
+        if (throughputBeforeGrow >= 0)
+        {
+            if (throughput < throughputBeforeGrow * MIN_GAIN)
+            {
+                cooldown = Math.max(cooldown, SATURATED_COOLDOWN);
+                lastDecision = String.format("saturated at %d threads: %.0f tasks/s after growing, %.0f before", size,
+                        throughput, throughputBeforeGrow);
+            }
+            throughputBeforeGrow = -1;
+        }
+        growStreak = queuing ? growStreak + 1 : 0;
+        shrinkStreak = idle ? shrinkStreak + 1 : 0;
+        if (cooldown > 0)
+        {
+            cooldown--;
+            return;
+        }
+
+        if (growStreak >= GROW_AFTER && size < maxThreads)
+        {
+            int cores = Runtime.getRuntime().availableProcessors();
+            //threads beyond cores / CPU share would only wait for a core
+            int limit = (int) Math.min(maxThreads, Math.ceil(cores / cpuShare));
+            int grown = Math.min(Math.max(limit, minThreads), size + Math.max(1, size / 2));
+            double coresBusy = cpuTimed ? (double) ranOnCpu / (elapsed * cores) : 0;
+            if (coresBusy >= CORES_BUSY)
+            {
+                lastDecision = String.format("held at %d threads: tasks keep %.0f%% of %d cores busy", size,
+                        coresBusy * 100, cores);
+            }
+            else if (grown > size)
+            {
+                resizeTo(grown);
+                grows.increment();
+                throughputBeforeGrow = throughput;
+                lastDecision = String.format("grew %d -> %d: wait %.2fms vs run %.2fms, %.0f%% on CPU", size, grown,
+                        millis(waited, completed), millis(ran, completed), cpuShare * 100);
+            }
+            else
+            {
+                lastDecision = String.format("held at %d threads: %.0f%% on CPU, more would not run", size,
+                        cpuShare * 100);
+            }
+            growStreak = 0;
+            cooldown = COOLDOWN;
+        }
+        else if (shrinkStreak >= SHRINK_AFTER && size > minThreads)
+        {
+            resizeTo(size - 1);
+            shrinks.increment();
+            lastDecision = String.format("shrank %d -> %d: %.0f%% busy, nothing queued", size, size - 1,
+                    utilization * 100);
+            shrinkStreak = 0;
+            cooldown = COOLDOWN;
+        }
+    }
+
+    private void resizeTo(int size)
+    {
+        //the core size may never exceed the maximum in between
+        if (size > getMaximumPoolSize())
+        {
+            setMaximumPoolSize(size);
+            setCorePoolSize(size);
+        }
+        else
+        {
+            setCorePoolSize(size);
+            setMaximumPoolSize(size);
+        }
+        targetSize = size;
+    }
+
+    private static double millis(long nanos, long count)
+    {
+        return count == 0 ? 0 : nanos / 1_000_000d / count;
+    }
+
+    public int getMinThreads()
+    {
+        return minThreads;
+    }
+
+    public int getMaxThreads()
+    {
+        return maxThreads;
+    }
+
+    /**
+     * The number of threads the pool is sized to right now.
+     */
+    public int getTargetSize()
+    {
+        return targetSize;
+    }
+
+    /**
+     * Tasks completed per second in the last interval.
+     */
+    public double getThroughput()
+    {
+        return throughput;
+    }
+
+    /**
+     * The part of the run time spent on the CPU, 1 for CPU-bound tasks and close to 0 for blocking ones.
+     */
+    public double getCpuShare()
+    {
+        return cpuShare;
+    }
+
+    public long getGrows()
+    {
+        return grows.sum();
+    }
+
+    public long getShrinks()
+    {
+        return shrinks.sum();
+    }
+
+    /**
+     * What the last resize, or refusal to grow, was based on.
+     */
+    public String getLastDecision()
+    {
+        return lastDecision;
+    }
+}
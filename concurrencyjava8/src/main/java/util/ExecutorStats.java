@@ -0,0 +1,119 @@
+package util;
+
+/**
+ * Point-in-time counters of an {@link InstrumentedExecutor}. Counters and times are totals since the
+ * executor was created, the thread and queue numbers are current.
+ */
+public final class ExecutorStats
+{
+    private final String name;
+    private final String kind;
+    private final int poolSize;
+    private final int activeThreads;
+    private final long queueDepth;
+    private final long submitted;
+    private final long completed;
+    private final long rejected;
+    private final long waitNanos;
+    private final long maxWaitNanos;
+    private final long runNanos;
+    private final long maxRunNanos;
+
+    ExecutorStats(String name, String kind, int poolSize, int activeThreads, long queueDepth, long submitted,
+                  long completed, long rejected, long waitNanos, long maxWaitNanos, long runNanos, long maxRunNanos)
+    {
+        this.name = name;
+        this.kind = kind;
+        this.poolSize = poolSize;
+        this.activeThreads = activeThreads;
+        this.queueDepth = queueDepth;
+        this.submitted = submitted;
+        this.completed = completed;
+        this.rejected = rejected;
+        this.waitNanos = waitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.runNanos = runNanos;
+        this.maxRunNanos = maxRunNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * "fixed", "cached", "elastic", "scheduled" or "work-stealing".
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public int getActiveThreads() {
+        return activeThreads;
+    }
+
+    public long getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Tasks handed to the executor, including rejected ones. A periodic task counts once.
+     */
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * Task runs that finished, normally or not. Every run of a periodic task counts.
+     */
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Total time completed tasks spent between submission and start. For scheduled tasks the time
+     * between when they were due and when they started.
+     */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public long getRunNanos() {
+        return runNanos;
+    }
+
+    public long getMaxRunNanos() {
+        return maxRunNanos;
+    }
+
+    public double getMeanWaitNanos()
+    {
+        return completed == 0 ? 0 : (double) waitNanos / completed;
+    }
+
+    public double getMeanRunNanos()
+    {
+        return completed == 0 ? 0 : (double) runNanos / completed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s (%s): threads: %d, active: %d, queued: %d, submitted: %d, completed: %d, rejected: %d"
+                        + ", wait ms avg: %.3f max: %.3f, run ms avg: %.3f max: %.3f",
+                name, kind, poolSize, activeThreads, queueDepth, submitted, completed, rejected,
+                getMeanWaitNanos() / 1_000_000d, maxWaitNanos / 1_000_000d,
+                getMeanRunNanos() / 1_000_000d, maxRunNanos / 1_000_000d);
+    }
+}
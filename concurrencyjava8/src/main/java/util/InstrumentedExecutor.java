@@ -0,0 +1,17 @@
+package util;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * An executor created by {@link ConcurrentUtils} that measures the tasks it runs and is listed in the
+ * {@link ExecutorRegistry}.
+ */
+public interface InstrumentedExecutor extends ExecutorService
+{
+    /**
+     * Unique within the registry, also the prefix of the pool's thread names.
+     */
+    String getName();
+
+    ExecutorStats getStats();
+}
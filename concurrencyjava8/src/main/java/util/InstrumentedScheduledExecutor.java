@@ -0,0 +1,151 @@
+package util;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A {@link ScheduledThreadPoolExecutor} that times every run of its tasks. The wait of a scheduled task
+ * is how late it started, not how long ago it was scheduled.
+ */
+public class InstrumentedScheduledExecutor extends ScheduledThreadPoolExecutor implements InstrumentedExecutor
+{
+    private final String name;
+    private final TaskTimer timer = new TaskTimer();
+    //the handler as set by the caller, installed behind one that counts rejections
+    private volatile RejectedExecutionHandler rejectionHandler;
+
+    InstrumentedScheduledExecutor(String name, int corePoolSize, boolean daemon)
+    {
+        super(corePoolSize, new NamedThreadFactory(name, daemon));
+        this.name = name;
+        this.rejectionHandler = super.getRejectedExecutionHandler();
+        super.setRejectedExecutionHandler(this::reject);
+    }
+
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task)
+    {
+        timer.submitted();
+        return new TimedTask<>(task);
+    }
+
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task)
+    {
+        timer.submitted();
+        return new TimedTask<>(task);
+    }
+
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler)
+    {
+        this.rejectionHandler = Objects.requireNonNull(handler);
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler()
+    {
+        return rejectionHandler;
+    }
+
+    private void reject(Runnable task, ThreadPoolExecutor executor)
+    {
+        timer.rejected();
+        rejectionHandler.rejectedExecution(task, executor);
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public ExecutorStats getStats()
+    {
+        return timer.stats(name, "scheduled", getPoolSize(), getActiveCount(), getQueue().size());
+    }
+
+    private final class TimedTask<V> implements RunnableScheduledFuture<V>
+    {
+        private final RunnableScheduledFuture<V> task;
+
+        private TimedTask(RunnableScheduledFuture<V> task)
+        {
+            this.task = task;
+        }
+
+        @Override
+        public void run()
+        {
+            long late = Math.max(0, -task.getDelay(TimeUnit.NANOSECONDS));
+            long start = System.nanoTime();
+            try
+            {
+                //a periodic task queues itself, that is this wrapper, again
+                task.run();
+            }
+            finally
+            {
+                timer.record(late, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public boolean isPeriodic()
+        {
+            return task.isPeriodic();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit)
+        {
+            return task.getDelay(unit);
+        }
+
+        @Override
+        public int compareTo(Delayed other)
+        {
+            //lets tasks due at the same time keep their submission order
+            return task.compareTo(other instanceof TimedTask ? ((TimedTask<?>) other).task : other);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            return task.cancel(mayInterruptIfRunning);
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return task.isCancelled();
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            return task.isDone();
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException
+        {
+            return task.get();
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+        {
+            return task.get(timeout, unit);
+        }
+    }
+}
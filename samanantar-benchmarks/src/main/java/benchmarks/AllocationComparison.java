@@ -0,0 +1,154 @@
+package benchmarks;
+
+import codec.PetCodec;
+import codec.PetEncoder;
+import com.mongodb.MongoClientSettings;
+import generator.PetGenerator;
+import model.Pet;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Prints the bytes allocated per pet for the three ways a pet can be written:
+ * a generic {@link Document}, a {@link Pet} encoded by {@link PetCodec} and a pet pre-encoded by
+ * {@link PetEncoder}. Each path is split into the work done on the producer thread (building the
+ * pet) and on the writer thread (encoding it into the insert command).
+ *
+ * Run with: java -cp target/benchmarks.jar benchmarks.AllocationComparison [iterations]
+ */
+public class AllocationComparison
+{
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder()
+            .isEncodingCollectibleDocument(true).build();
+
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final PetGenerator generator;
+    private final PetCodec petCodec = new PetCodec();
+    private final PetEncoder petEncoder = new PetEncoder(petCodec);
+    @SuppressWarnings("unchecked")
+    private final CollectibleCodec<Document> documentCodec =
+            (CollectibleCodec<Document>) MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+    //stands in for the driver's command buffer, reused so that only per-pet allocations are counted
+    private final BasicOutputBuffer commandBuffer = new BasicOutputBuffer(1 << 20);
+
+    private AllocationComparison()
+    {
+        generator = new PetGenerator(Benchmarks.generatorConfiguration());
+    }
+
+    public static void main(String[] args)
+    {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        AllocationComparison comparison = new AllocationComparison();
+        //first round only warms up the JIT so that escape analysis is in effect for the second
+        comparison.compare(iterations, false);
+        comparison.compare(iterations, true);
+    }
+
+    private void compare(int iterations, boolean print)
+    {
+        Document[] documents = new Document[1000];
+        Pet[] pets = new Pet[1000];
+
+        long documentBuild = measure(() -> {
+            for (int i = 0; i < documents.length; i++)
+            {
+                documents[i] = generator.nextDocument();
+            }
+        }, iterations / documents.length);
+        long documentEncode = measure(() -> {
+            BsonBinaryWriter writer = startCommand();
+            for (Document document : documents)
+            {
+                documentCodec.encode(writer, documentCodec.generateIdIfAbsentFromDocument(document), ENCODER_CONTEXT);
+                document.remove("_id");
+            }
+            endCommand(writer);
+        }, iterations / documents.length);
+
+        long petBuild = measure(() -> {
+            for (int i = 0; i < pets.length; i++)
+            {
+                pets[i] = generator.nextPet();
+            }
+        }, iterations / pets.length);
+        long petEncode = measure(() -> {
+            BsonBinaryWriter writer = startCommand();
+            for (Pet pet : pets)
+            {
+                petCodec.encode(writer, petCodec.generateIdIfAbsentFromDocument(pet), ENCODER_CONTEXT);
+                pet.setId(null);
+            }
+            endCommand(writer);
+        }, iterations / pets.length);
+
+        long rawBuild = measure(() -> {
+            for (int i = 0; i < pets.length; i++)
+            {
+                Pet pet = generator.nextPet();
+                petEncoder.encode(pet);
+                pets[i] = pet;
+            }
+        }, iterations / pets.length);
+        long rawEncode = measure(() -> {
+            BsonBinaryWriter writer = startCommand();
+            for (Pet pet : pets)
+            {
+                petCodec.encode(writer, pet, ENCODER_CONTEXT);
+            }
+            endCommand(writer);
+        }, iterations / pets.length);
+
+        if (print)
+        {
+            int measured = iterations / documents.length * documents.length;
+            System.out.printf("%-12s %15s %15s %15s%n", "path", "producer B/pet", "writer B/pet", "total B/pet");
+            print("document", documentBuild, documentEncode, measured);
+            print("pet codec", petBuild, petEncode, measured);
+            print("pre-encoded", rawBuild, rawEncode, measured);
+        }
+    }
+
+    /**
+     * Starts an insert-like command that holds a whole round of pets, the way the driver batches them.
+     */
+    private BsonBinaryWriter startCommand()
+    {
+        commandBuffer.truncateToPosition(0);
+        BsonBinaryWriter writer = new BsonBinaryWriter(commandBuffer);
+        writer.writeStartDocument();
+        writer.writeStartArray("documents");
+        return writer;
+    }
+
+    private static void endCommand(BsonBinaryWriter writer)
+    {
+        writer.writeEndArray();
+        writer.writeEndDocument();
+    }
+
+    private long measure(Runnable round, int rounds)
+    {
+        long threadId = Thread.currentThread().getId();
+        long total = 0;
+        for (int i = 0; i < rounds; i++)
+        {
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            round.run();
+            total += threadBean.getThreadAllocatedBytes(threadId) - before;
+        }
+        return total;
+    }
+
+    private static void print(String path, long producerBytes, long writerBytes, int pets)
+    {
+        System.out.printf("%-12s %15.1f %15.1f %15.1f%n", path, (double) producerBytes / pets,
+                (double) writerBytes / pets, (double) (producerBytes + writerBytes) / pets);
+    }
+}
@@ -0,0 +1,33 @@
+package benchmarks;
+
+import codec.PetCodec;
+import com.mongodb.MongoClientSettings;
+import config.GeneratorConfiguration;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * Setup shared by the benchmarks, mirroring what ConfigurationServiceImpl configures for the application.
+ */
+final class Benchmarks
+{
+    //fixed so that every run generates the same pets
+    static final long SEED = 42L;
+
+    private Benchmarks()
+    {
+    }
+
+    static GeneratorConfiguration generatorConfiguration()
+    {
+        GeneratorConfiguration configuration = new GeneratorConfiguration();
+        configuration.setSeed(SEED);
+        return configuration;
+    }
+
+    static CodecRegistry codecRegistry()
+    {
+        return CodecRegistries.fromRegistries(CodecRegistries.fromCodecs(new PetCodec()),
+                MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import generator.PetGenerator;
+import model.Pet;
+import org.apache.commons.lang.RandomStringUtils;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building one pet: the original insertData() Document, the generator's Document and the typed Pet.
+ * Add -prof gc to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentConstructionBenchmark
+{
+    private static final List<String> COLORS = Arrays.asList("white", "black", "green", "brown", "orange", "red");
+
+    private PetGenerator generator;
+
+    @Setup
+    public void setUp()
+    {
+        generator = new PetGenerator(Benchmarks.generatorConfiguration());
+    }
+
+    /**
+     * The document Application.insertData() built before the generator package existed.
+     */
+    @Benchmark
+    public Document legacyDocument()
+    {
+        int length = (int)(Math.random() * (15 - 3 + 1) + 3);
+        String petName = RandomStringUtils.random(length, true, false);
+        return new Document("name", petName )
+                .append("weigh(LB)", (int)(Math.random() * (100 - 5 + 1) + 5))
+                .append("age", (int)(Math.random() * (50 - 1 + 1) + 1))
+                .append("colors", COLORS.get((int)(Math.random() * (4 - 0 + 1) + 0)))
+                .append("owner", new Document("name", petName+"_owner").append("address", petName+"_home"));
+    }
+
+    @Benchmark
+    public Document generatorDocument()
+    {
+        return generator.nextDocument();
+    }
+
+    @Benchmark
+    public Pet generatorPet()
+    {
+        return generator.nextPet();
+    }
+}
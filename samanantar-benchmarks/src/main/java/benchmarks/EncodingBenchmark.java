@@ -0,0 +1,95 @@
+package benchmarks;
+
+import codec.PetCodec;
+import codec.PetEncoder;
+import generator.PetGenerator;
+import model.Pet;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BSON encoding of one pet document, as the writer thread does it for every insert: the generic
+ * DocumentCodec, the hand-written PetCodec, pre-encoding with PetEncoder on the producer and piping a
+ * pre-encoded pet into the command.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark
+{
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder()
+            .isEncodingCollectibleDocument(true).build();
+
+    private final BasicOutputBuffer buffer = new BasicOutputBuffer(1024);
+    private final PetCodec petCodec = new PetCodec();
+    private final PetEncoder petEncoder = new PetEncoder(petCodec);
+    private Codec<Document> documentCodec;
+    private Document document;
+    private Pet pet;
+    private Pet preEncodedPet;
+
+    @Setup
+    public void setUp()
+    {
+        PetGenerator generator = new PetGenerator(Benchmarks.generatorConfiguration());
+        documentCodec = Benchmarks.codecRegistry().get(Document.class);
+        document = generator.nextDocument().append("_id", new ObjectId());
+        pet = generator.nextPet();
+        pet.setId(new ObjectId());
+        preEncodedPet = generator.nextPet();
+        petEncoder.encode(preEncodedPet);
+    }
+
+    private BsonBinaryWriter writer()
+    {
+        buffer.truncateToPosition(0);
+        return new BsonBinaryWriter(buffer);
+    }
+
+    @Benchmark
+    public int encodeDocument()
+    {
+        documentCodec.encode(writer(), document, ENCODER_CONTEXT);
+        return buffer.getPosition();
+    }
+
+    @Benchmark
+    public int encodePet()
+    {
+        petCodec.encode(writer(), pet, ENCODER_CONTEXT);
+        return buffer.getPosition();
+    }
+
+    @Benchmark
+    public RawBsonDocument preEncodePet()
+    {
+        return petEncoder.encode(pet);
+    }
+
+    @Benchmark
+    public int pipePreEncodedPet()
+    {
+        petCodec.encode(writer(), preEncodedPet, ENCODER_CONTEXT);
+        return buffer.getPosition();
+    }
+}
@@ -0,0 +1,127 @@
+package benchmarks;
+
+import codec.PetCodec;
+import codec.PetEncoder;
+import config.BatchConfiguration;
+import generator.PetGenerator;
+import model.Pet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import repository.MongoPetRepository;
+import util.ConcurrentUtils;
+import writer.BatchListener;
+import writer.BatchingWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end insert path without a server: producer threads generate pets and submit them to a
+ * {@link BatchingWriter}, which encodes them into insert commands on a {@link StandInCollection}
+ * behind the Mongo repository.
+ * One invocation inserts {@link #PETS} pets and waits until the writer has acknowledged all of them,
+ * so the score is pets per second through the whole pipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertPathBenchmark
+{
+    private static final int PETS = 100_000;
+
+    @Param({"1", "4"})
+    public int producerThreads;
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    @Param({"false", "true"})
+    public boolean preEncode;
+
+    private final AtomicLong acknowledged = new AtomicLong();
+    private PetGenerator generator;
+    private PetEncoder petEncoder;
+    private BatchingWriter<Pet> writer;
+    private ExecutorService producers;
+
+    @Setup
+    public void setUp()
+    {
+        BatchConfiguration configuration = new BatchConfiguration();
+        configuration.setSize(batchSize);
+        configuration.setLingerMillis(1);
+        configuration.setQueueCapacity(Math.max(10_000, batchSize * 4));
+
+        StandInCollection collection = new StandInCollection();
+        BatchListener<Pet> listener = (batch, result) -> acknowledged.addAndGet(batch.size());
+        writer = new BatchingWriter<>(new MongoPetRepository(collection.collection(Pet.class, Benchmarks.codecRegistry())),
+                configuration, listener);
+        writer.start();
+        generator = new PetGenerator(Benchmarks.generatorConfiguration());
+        petEncoder = new PetEncoder(new PetCodec());
+        producers = Executors.newFixedThreadPool(producerThreads);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        ConcurrentUtils.stop(producers);
+        writer.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PETS)
+    public long insert() throws Exception
+    {
+        long target = acknowledged.get() + PETS;
+        List<Future<?>> running = new ArrayList<>(producerThreads);
+        for (int i = 0; i < producerThreads; i++)
+        {
+            int share = PETS / producerThreads + (i < PETS % producerThreads ? 1 : 0);
+            running.add(producers.submit(() -> produce(share)));
+        }
+        for (Future<?> producer : running)
+        {
+            producer.get();
+        }
+        while (acknowledged.get() < target)
+        {
+            LockSupport.parkNanos(10_000);
+        }
+        return acknowledged.get();
+    }
+
+    private Void produce(int pets) throws InterruptedException
+    {
+        for (int i = 0; i < pets; i++)
+        {
+            Pet pet = generator.nextPet();
+            if (preEncode)
+            {
+                petEncoder.encode(pet);
+            }
+            writer.submit(pet);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks;
+
+import generator.PetGenerator;
+import org.apache.commons.lang.RandomStringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pet name generation: the original Math.random/RandomStringUtils getPetName() against the name pool.
+ * Run with -t to see how both behave with several producer threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameGenerationBenchmark
+{
+    private PetGenerator generator;
+
+    @Setup
+    public void setUp()
+    {
+        generator = new PetGenerator(Benchmarks.generatorConfiguration());
+    }
+
+    /**
+     * The name generation Application used before the generator package existed.
+     */
+    @Benchmark
+    public String legacyGetPetName()
+    {
+        int length = (int)(Math.random() * (15 - 3 + 1) + 3);
+        return RandomStringUtils.random(length, true, false);
+    }
+
+    @Benchmark
+    public String pooledName()
+    {
+        return generator.nextName();
+    }
+}
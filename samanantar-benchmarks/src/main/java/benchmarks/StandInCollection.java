@@ -0,0 +1,83 @@
+package benchmarks;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.io.BasicOutputBuffer;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for a {@link MongoCollection}. insertOne and insertMany do what the driver does
+ * before anything goes over the wire: assign missing ids and encode every document into a command
+ * buffer. All other methods throw.
+ */
+public class StandInCollection
+{
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder()
+            .isEncodingCollectibleDocument(true).build();
+
+    private final LongAdder inserted = new LongAdder();
+    private final ThreadLocal<BasicOutputBuffer> commandBuffers =
+            ThreadLocal.withInitial(() -> new BasicOutputBuffer(1 << 20));
+
+    public long getInserted()
+    {
+        return inserted.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> MongoCollection<T> collection(Class<T> documentClass, CodecRegistry registry)
+    {
+        Codec<T> codec = registry.get(documentClass);
+        MongoNamespace namespace = new MongoNamespace("samanantar", "pets");
+        return (MongoCollection<T>) Proxy.newProxyInstance(StandInCollection.class.getClassLoader(),
+                new Class<?>[]{MongoCollection.class}, (proxy, method, args) -> {
+                    switch (method.getName())
+                    {
+                        case "insertOne":
+                            encode(codec, Collections.singletonList((T) args[0]));
+                            return null;
+                        case "insertMany":
+                            encode(codec, (List<T>) args[0]);
+                            return null;
+                        case "getNamespace":
+                            return namespace;
+                        case "getDocumentClass":
+                            return documentClass;
+                        case "toString":
+                            return "StandInCollection(" + namespace + ")";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private <T> void encode(Codec<T> codec, List<T> documents)
+    {
+        BasicOutputBuffer buffer = commandBuffers.get();
+        buffer.truncateToPosition(0);
+        BsonBinaryWriter writer = new BsonBinaryWriter(buffer);
+        writer.writeStartDocument();
+        writer.writeString("insert", "pets");
+        writer.writeStartArray("documents");
+        for (T document : documents)
+        {
+            if (codec instanceof CollectibleCodec)
+            {
+                document = ((CollectibleCodec<T>) codec).generateIdIfAbsentFromDocument(document);
+            }
+            codec.encode(writer, document, ENCODER_CONTEXT);
+        }
+        writer.writeEndArray();
+        writer.writeEndDocument();
+        inserted.add(documents.size());
+    }
+}
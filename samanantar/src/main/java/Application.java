@@ -1,35 +1,81 @@
+import aggregate.PetAggregates;
+import cache.CachedPetQueries;
+import cache.ResultCache;
+import codec.PetCodec;
+import codec.PetEncoder;
 import com.google.inject.Guice;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.MongoDatabase;
 import config.ApplicationModule;
+import config.CacheConfiguration;
 import config.Configuration;
 import config.ConfigurationService;
 import config.ConfigurationServiceImpl;
-import org.apache.commons.lang.RandomStringUtils;
+import config.WorkloadConfiguration;
+import generator.PetGenerator;
+import generator.UniqueNames;
+import logging.SampledLogger;
+import metrics.ExecutorMetrics;
+import metrics.MetricsReporter;
+import metrics.WriteMetrics;
+import model.Pet;
 import org.bson.Document;
+import org.bson.RawBsonDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import repository.PetQueryService;
+import repository.PetRepository;
+import spool.DiskSpool;
+import spool.SpoolReplayer;
 import util.ConcurrentUtils;
+import workload.WorkloadEngine;
+import workload.WorkloadOperation;
+import writer.AdaptiveLimiter;
+import writer.BatchListener;
+import writer.BatchingWriter;
+import writer.CompositeBatchListener;
+import writer.LoggingBatchListener;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
-import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class Application
 {
     private ConfigurationService configService;
 
+    private PetRepository petRepository;
+
+    private PetQueryService queryService;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(Application.class);
 
-    private static List<String> colors = Arrays.asList("white", "black", "green", "brown", "orange", "red");
+    private PetGenerator petGenerator;
+
+    private PetEncoder petEncoder;
+
+    private BatchingWriter<Pet> writer;
+
+    private DiskSpool spool;
+
+    private SpoolReplayer spoolReplayer;
+    private CachedPetQueries cachedQueries;
+    private final PetAggregates aggregates = new PetAggregates();
+    private UniqueNames uniqueNames;
+    private boolean closed;
 
-    private ScheduledExecutorService scheduledExecutorService = Executors.newScheduledThreadPool(1);
+    private WriteMetrics writeMetrics;
+
+    private MetricsReporter metricsReporter;
+
+    private WorkloadEngine workloadEngine;
+
+    //per-insert messages, summarized per interval instead of logged for every pet
+    private SampledLogger scheduleLog;
+
+    private SampledLogger insertLog;
 
 
     public Application()
@@ -49,59 +95,296 @@ public class Application
         this.configService = configService;
     }
 
+    @Inject
+    public void setPetRepository(PetRepository petRepository)
+    {
+        this.petRepository = petRepository;
+    }
+
+    @Inject
+    public void setQueryService(PetQueryService queryService)
+    {
+        this.queryService = queryService;
+    }
+
+    /**
+     * Read path for the pets written by this application.
+     */
+    public PetQueryService getQueryService()
+    {
+        return queryService;
+    }
+
+    /**
+     * Cached counts and owner lookups, kept up to date with the pets this application writes.
+     * Available once {@link #run()} has started.
+     */
+    public CachedPetQueries getCachedQueries()
+    {
+        return cachedQueries;
+    }
+
+    /**
+     * Counts and averages of the pets inserted since start, without querying the collection.
+     */
+    public PetAggregates getAggregates()
+    {
+        return aggregates;
+    }
 
+    /**
+     * Throughput and latency of the write path. Available once {@link #run()} has started.
+     */
+    public WriteMetrics getWriteMetrics()
+    {
+        return writeMetrics;
+    }
 
+    /**
+     * The producers, whose target rate can be changed while running. Available once {@link #run()} has started.
+     */
+    public WorkloadEngine getWorkloadEngine()
+    {
+        return workloadEngine;
+    }
+
+
+
+
+    /**
+     * Generates one pet and hands it to the writer.
+     * @param blocking whether to wait for queue space, open-loop workloads shed the pet instead
+     * @return false if the pet was shed because the writer queue was full
+     */
+    private boolean insertData(boolean blocking) throws InterruptedException
+    {
+        Pet pet = petGenerator.nextPet();
+        insertLog.log("Inserting Data For Pet: Name: {}", pet.getName());
+        return spool != null ? spool(pet, blocking) : submit(pet, blocking);
+    }
 
-    private void insertData()
+    private boolean spool(Pet pet, boolean blocking) throws InterruptedException
     {
+        //acknowledged once it is in the spool, the replayer takes it to Mongo from there
+        RawBsonDocument encoded = petEncoder.encode(pet);
         try
         {
-            MongoClient mongoClient = configService.getMongoClient();
-            MongoDatabase mongoDatabase = configService.getDatabase();
-            MongoCollection<Document> collection = mongoDatabase.getCollection("pets");
-            //Inserting one document
-            String petName = getPetName();
-            Document doc = new Document("name", petName )
-                    .append("weigh(LB)", (int)(Math.random() * (100 - 5 + 1) + 5))
-                    .append("age", (int)(Math.random() * (50 - 1 + 1) + 1))
-                    .append("colors", colors.get((int)(Math.random() * (4 - 0 + 1) + 0)))
-                    .append("owner", new Document("name", petName+"_owner").append("address", petName+"_home"));
-            LOGGER.info("Inserting Data For Pet: Name: {}", petName);
-            collection.insertOne(doc);
+            if (blocking)
+            {
+                spool.appendBlocking(encoded);
+                return true;
+            }
+            return spool.append(encoded);
         }
-        catch(Exception ex)
+        catch (IOException ex)
         {
-           LOGGER.error("Exception Thrown: {} ", ex.toString());
+            throw new UncheckedIOException(ex);
         }
     }
 
+    private boolean submit(Pet pet, boolean blocking) throws InterruptedException
+    {
+        if (petEncoder != null)
+        {
+            petEncoder.encode(pet);
+        }
+        //the writer inserts queued pets in batches, failures are reported per batch
+        if (blocking)
+        {
+            writer.submit(pet);
+            return true;
+        }
+        return writer.submit(pet, 0, TimeUnit.MILLISECONDS);
+    }
+
 
-    public void run()
+    public void run() throws IOException
     {
-        Runnable task = () -> {
+        run(configService.getConfiguration().getWorkload());
+    }
 
-            LOGGER.info("Scheduling insert to database");
-            insertData();
-        };
-        //Inserting to database every 10 seconds.
-        scheduledExecutorService.scheduleWithFixedDelay(task, 0, 5, TimeUnit.SECONDS);
+    /**
+     * Starts writing with the given workload instead of the configured one.
+     */
+    public void run(WorkloadConfiguration workload) throws IOException
+    {
+        Configuration configuration = configService.getConfiguration();
+        //warming the name filter and creating indexes, both run once the configuration service is ready
+        ExecutorService startupTasks = ConcurrentUtils.newCachedThreadPool("startup-tasks", true);
+        if (configuration.getGenerator().isUniqueNames())
+        {
+            uniqueNames = new UniqueNames(configuration.getGenerator());
+            if (!uniqueNames.isLoaded())
+            {
+                configService.whenReady()
+                        .thenRunAsync(() -> uniqueNames.warm(petRepository), startupTasks)
+                        .exceptionally(failure -> {
+                            LOGGER.error("Could not warm the unique name filter: {}", failure.toString());
+                            return null;
+                        });
+            }
+            uniqueNames.startSaving(configuration.getGenerator().getNameFilterSaveIntervalSeconds(), TimeUnit.SECONDS);
+        }
+        petGenerator = new PetGenerator(configuration.getGenerator(), uniqueNames);
+        long summaryInterval = configuration.getLogging().getSummaryIntervalSeconds();
+        scheduleLog = new SampledLogger(LOGGER, "inserts scheduled", summaryInterval, TimeUnit.SECONDS);
+        insertLog = new SampledLogger(LOGGER, "pets generated", summaryInterval, TimeUnit.SECONDS);
+        if (configuration.getRepository().isCreateIndexes())
+        {
+            configService.whenReady()
+                    .thenRunAsync(petRepository::createIndexes, startupTasks)
+                    .exceptionally(failure -> {
+                        LOGGER.error("Could not create indexes: {}", failure.toString());
+                        return null;
+                    });
+        }
+        if (configuration.getBatch().isPreEncode() || configuration.getSpool().isEnabled())
+        {
+            petEncoder = new PetEncoder(new PetCodec());
+        }
+        writeMetrics = new WriteMetrics();
+        metricsReporter = new MetricsReporter(configuration.getMetrics());
+        metricsReporter.register(MetricsReporter.WRITE_METRICS, writeMetrics);
+        metricsReporter.register(MetricsReporter.PET_AGGREGATES, aggregates);
+        if (uniqueNames != null)
+        {
+            metricsReporter.register(MetricsReporter.UNIQUE_NAMES, uniqueNames);
+        }
+        if (configuration.getRepository().usesMongo())
+        {
+            metricsReporter.register(MetricsReporter.CONNECTION_POOL_METRICS, configService.getConnectionPoolMetrics());
+            metricsReporter.register(MetricsReporter.COMMAND_METRICS, configService.getCommandMetrics());
+        }
+        CacheConfiguration cacheConfiguration = configuration.getCache();
+        ResultCache<String, Object> queryCache = null;
+        if (cacheConfiguration.isEnabled())
+        {
+            queryCache = new ResultCache<>("query", cacheConfiguration.getMaxEntries(),
+                    cacheConfiguration.getTtlSeconds(), TimeUnit.SECONDS);
+            metricsReporter.register(MetricsReporter.QUERY_CACHE_METRICS, queryCache);
+        }
+        cachedQueries = new CachedPetQueries(queryService, queryCache);
+        metricsReporter.register(MetricsReporter.EXECUTOR_METRICS, new ExecutorMetrics());
+        metricsReporter.start();
+        BatchListener<Pet> batchListener = new CompositeBatchListener<>(Arrays.asList(new LoggingBatchListener<>(),
+                writeMetrics, cachedQueries, aggregates));
+        if (configuration.getSpool().isEnabled())
+        {
+            spool = new DiskSpool(configuration.getSpool());
+            spoolReplayer = new SpoolReplayer(spool, petRepository, configuration.getBatch(), configuration.getSpool(),
+                    batchListener);
+            spoolReplayer.start(configService.whenReady());
+        }
+        else
+        {
+            AdaptiveLimiter limiter = null;
+            if (configuration.getLimiter().isEnabled())
+            {
+                limiter = new AdaptiveLimiter(configuration.getLimiter());
+                metricsReporter.register(MetricsReporter.WRITE_LIMITER, limiter);
+            }
+            writer = new BatchingWriter<>(petRepository, configuration.getBatch(), batchListener, limiter);
+            //producers start right away, pets wait in the writer queue until the database is ready
+            writer.start(configService.whenReady());
+        }
 
+        WorkloadOperation task = blocking -> {
+            scheduleLog.log("Scheduling insert to database");
+            return insertData(blocking);
+        };
+        //Inserting to database at the configured rate.
+        workloadEngine = new WorkloadEngine(workload, task);
+        workloadEngine.start();
+        configService.addListener(this::applyConfiguration);
     }
 
 
+    /**
+     * Applies the settings that can change while running: the producer rate, batch size and linger,
+     * and the summary interval of the hot path logging, see {@link Configuration#LIVE_SETTINGS}.
+     * Everything else needs a restart and keeps its startup value in the reloaded configuration.
+     */
+    private void applyConfiguration(Configuration previous, Configuration current)
+    {
+        //the soak driver sets the rate itself, only an edited rate takes it over
+        if (previous.changedSettings(current).contains("workload.targetOpsPerSecond"))
+        {
+            workloadEngine.setTargetOpsPerSecond(current.getWorkload().getTargetOpsPerSecond());
+        }
+        int batchSize = current.getBatch().getSize();
+        long lingerMillis = current.getBatch().getLingerMillis();
+        if (writer != null)
+        {
+            writer.setBatchSize(batchSize);
+            writer.setLingerMillis(lingerMillis);
+        }
+        if (spoolReplayer != null)
+        {
+            spoolReplayer.setBatchSize(batchSize);
+            spoolReplayer.setLingerMillis(lingerMillis);
+        }
+        long summaryInterval = current.getLogging().getSummaryIntervalSeconds();
+        scheduleLog.setInterval(summaryInterval, TimeUnit.SECONDS);
+        insertLog.setInterval(summaryInterval, TimeUnit.SECONDS);
+        LOGGER.info("Applied target rate: {} ops/sec, batch size: {}, linger: {}ms, log summary interval: {}s",
+                workloadEngine.getTargetOpsPerSecond(), batchSize, lingerMillis, summaryInterval);
+    }
+
 
-    private String getPetName() {
-        int length = (int)(Math.random() * (15 - 3 + 1) + 3);
-        boolean useLetters = true;
-        boolean useNumbers = false;
-        return RandomStringUtils.random(length, useLetters, useNumbers);
+    /**
+     * Blocks until a workload with a configured duration has finished.
+     */
+    public void awaitWorkload() throws InterruptedException
+    {
+        workloadEngine.awaitCompletion();
     }
 
 
-    public void close()
+
+    /**
+     * Stops writing and releases everything. Called from the shutdown hook as well, only the first call
+     * does anything and a second one waits until it is done.
+     */
+    public synchronized void close()
     {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+        if (workloadEngine != null)
+        {
+            workloadEngine.close();
+            scheduleLog.flush();
+            insertLog.flush();
+        }
+        if (writer != null)
+        {
+            writer.close();
+        }
+        if (spoolReplayer != null)
+        {
+            spoolReplayer.close();
+        }
+        if (spool != null)
+        {
+            spool.close();
+        }
+        if (metricsReporter != null)
+        {
+            metricsReporter.close();
+        }
+        if (uniqueNames != null)
+        {
+            uniqueNames.close();
+        }
+        if (petRepository != null)
+        {
+            petRepository.close();
+        }
         configService.close();
-        ConcurrentUtils.stop(scheduledExecutorService);
+        //pools that were left running, all stopped within one timeout
+        ConcurrentUtils.stopAll(10, TimeUnit.SECONDS);
     }
 
 
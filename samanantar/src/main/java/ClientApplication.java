@@ -1,21 +1,60 @@
+import ch.qos.logback.classic.LoggerContext;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import config.ApplicationModule;
+import config.Configuration;
+import config.ConfigurationService;
 import config.ConfigurationServiceImpl;
+import config.TransferConfiguration;
+import generator.PetGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import repository.PetRepository;
+import seed.PetSeeder;
+import soak.SoakDriver;
+import soak.SoakReport;
+import transfer.PetExporter;
+import transfer.PetImporter;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Runs the insert workload, or with arguments a sequence of commands against the configured repository:
+ *
+ *   ClientApplication [export &lt;file&gt;|import &lt;file&gt;|seed &lt;count&gt;]...
+ *   ClientApplication soak [report file]
+ *
+ * export and import move pets to and from gzip compressed NDJSON files, seed inserts the given number
+ * of generated pets on all cores. e.g. "import pets.ndjson.gz export copy.ndjson.gz" loads a file into
+ * the in-memory repository and writes it out again. soak runs the application through the load profiles
+ * of the soak section and writes a JSON report, meant for the memory engine or the Mongo stand-in.
+ */
 public class ClientApplication
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientApplication.class);
     public static void main(String[] args) {
 
         Injector injector = Guice.createInjector(new ApplicationModule());
+        if (args.length > 0 && args[0].equals("soak"))
+        {
+            runSoak(injector, args.length > 1 ? args[1] : null);
+            return;
+        }
+        if (args.length > 0)
+        {
+            addShutdownHook(null);
+            runCommands(injector, args);
+            return;
+        }
         LOGGER.info("Initializing Application");
         Application application = injector.getInstance(Application.class);
+        addShutdownHook(application);
         try
         {
             application.run();
+            application.awaitWorkload();
+            application.close();
         }
         catch (Exception ex)
         {
@@ -23,4 +62,104 @@ public class ClientApplication
             application.close();
         }
     }
+
+    /**
+     * Closes the application when the process is stopped, e.g. with SIGTERM or Ctrl+C, so that queued
+     * pets are written, the spool is forced to disk and the used names are saved. Logging is stopped
+     * last, which drains the async appenders, so what close logs is not lost.
+     */
+    private static void addShutdownHook(Application application)
+    {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (application != null)
+            {
+                application.close();
+            }
+            if (LoggerFactory.getILoggerFactory() instanceof LoggerContext)
+            {
+                ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+            }
+        }, "shutdown"));
+    }
+
+    /**
+     * Boots the application, drives it through the soak profiles and writes the report.
+     */
+    private static void runSoak(Injector injector, String reportFile)
+    {
+        ConfigurationService configService = injector.getInstance(ConfigurationService.class);
+        Application application = injector.getInstance(Application.class);
+        addShutdownHook(application);
+        try
+        {
+            //startup is not part of the measurement
+            configService.whenReady().get();
+            Configuration configuration = configService.getConfiguration();
+            if (configuration.getRepository().usesMongo() && !configuration.getStandIn().isEnabled())
+            {
+                LOGGER.warn("Soak run against {} instead of the stand-in", configuration.getMongoConnectionString());
+            }
+            application.run(SoakDriver.workload(configuration));
+            SoakReport report = new SoakDriver(configuration, application.getWorkloadEngine(),
+                    application.getWriteMetrics()).run();
+            Path path = Paths.get(reportFile != null ? reportFile : configuration.getSoak().getReportFile());
+            report.write(path);
+            LOGGER.info("Soak report written to {}", path.toAbsolutePath());
+        }
+        catch (Exception ex)
+        {
+            LOGGER.error("Soak run failed: {}", ex.toString());
+        }
+        finally
+        {
+            application.close();
+        }
+    }
+
+    private static void runCommands(Injector injector, String[] args)
+    {
+        if (args.length % 2 != 0)
+        {
+            LOGGER.error("Usage: ClientApplication [export <file>|import <file>|seed <count>]...");
+            return;
+        }
+        ConfigurationService configService = injector.getInstance(ConfigurationService.class);
+        PetRepository repository = injector.getInstance(PetRepository.class);
+        try
+        {
+            configService.whenReady().get();
+            Configuration settings = configService.getConfiguration();
+            TransferConfiguration configuration = settings.getTransfer();
+            for (int i = 0; i < args.length; i += 2)
+            {
+                switch (args[i])
+                {
+                    case "export":
+                        new PetExporter(repository, configuration.getBatchSize(), configuration.getCompressionLevel())
+                                .export(Paths.get(args[i + 1]));
+                        break;
+                    case "import":
+                        new PetImporter(repository, configuration.getBatchSize(), configuration.getImportThreads())
+                                .importFrom(Paths.get(args[i + 1]));
+                        break;
+                    case "seed":
+                        new PetSeeder(repository, new PetGenerator(settings.getGenerator()), settings.getSeed())
+                                .seed(Long.parseLong(args[i + 1]));
+                        break;
+                    default:
+                        LOGGER.error("Unknown command: {}", args[i]);
+                        return;
+                }
+            }
+        }
+        catch (Exception ex)
+        {
+            LOGGER.error("Command failed: {}", ex.toString());
+        }
+        finally
+        {
+            repository.close();
+            configService.close();
+        }
+    }
 }
@@ -0,0 +1,59 @@
+package aggregate;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Copy of the {@link PetAggregates} at one point in time. The counters are read one after the other
+ * while inserts continue, so the parts may differ by the pets recorded in between.
+ */
+public class AggregateSnapshot
+{
+    private final GroupSnapshot total;
+    private final Map<String, GroupSnapshot> byColor;
+    private final int ageBucketWidth;
+    private final long[] ageBuckets;
+    private final int weightBucketWidth;
+    private final long[] weightBuckets;
+
+    AggregateSnapshot(GroupSnapshot total, Map<String, GroupSnapshot> byColor, int ageBucketWidth, long[] ageBuckets,
+                      int weightBucketWidth, long[] weightBuckets)
+    {
+        this.total = total;
+        this.byColor = Collections.unmodifiableMap(byColor);
+        this.ageBucketWidth = ageBucketWidth;
+        this.ageBuckets = ageBuckets;
+        this.weightBucketWidth = weightBucketWidth;
+        this.weightBuckets = weightBuckets;
+    }
+
+    public GroupSnapshot getTotal() {
+        return total;
+    }
+
+    public Map<String, GroupSnapshot> getByColor() {
+        return byColor;
+    }
+
+    public int getAgeBucketWidth() {
+        return ageBucketWidth;
+    }
+
+    /**
+     * Pets by age, bucket i holds the ages from i * ageBucketWidth, the last one everything above.
+     */
+    public long[] getAgeBuckets() {
+        return ageBuckets.clone();
+    }
+
+    public int getWeightBucketWidth() {
+        return weightBucketWidth;
+    }
+
+    /**
+     * Pets by weight, bucket i holds the weights from i * weightBucketWidth, the last one everything above.
+     */
+    public long[] getWeightBuckets() {
+        return weightBuckets.clone();
+    }
+}
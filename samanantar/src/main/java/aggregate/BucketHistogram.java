@@ -0,0 +1,50 @@
+package aggregate;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of small integer values in buckets of a fixed width, starting at zero. Values beyond the
+ * last bucket are counted in it. Every bucket is a {@link LongAdder}, so concurrent recording does not
+ * contend on a shared counter.
+ */
+public class BucketHistogram
+{
+    private final int bucketWidth;
+    private final LongAdder[] counts;
+
+    /**
+     * @param maxValue largest value expected, the last bucket ends with it
+     */
+    public BucketHistogram(int bucketWidth, int maxValue)
+    {
+        this.bucketWidth = bucketWidth;
+        this.counts = new LongAdder[maxValue / bucketWidth + 1];
+        for (int i = 0; i < counts.length; i++)
+        {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(int value)
+    {
+        counts[Math.min(Math.max(0, value) / bucketWidth, counts.length - 1)].increment();
+    }
+
+    public int getBucketWidth() {
+        return bucketWidth;
+    }
+
+    /**
+     * Counts by bucket, bucket i holds the values from i * bucketWidth. Concurrent recordings may or
+     * may not be included.
+     */
+    public long[] snapshot()
+    {
+        long[] copy = new long[counts.length];
+        for (int i = 0; i < counts.length; i++)
+        {
+            copy[i] = counts[i].sum();
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,36 @@
+package aggregate;
+
+/**
+ * Count and averages of the pets in one group at the time of a {@link PetAggregates#snapshot()}.
+ */
+public class GroupSnapshot
+{
+    private final long count;
+    private final long weightSum;
+    private final long ageSum;
+
+    GroupSnapshot(GroupStats stats)
+    {
+        this.count = stats.getCount();
+        this.weightSum = stats.getWeightSum();
+        this.ageSum = stats.getAgeSum();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getAverageWeight() {
+        return count > 0 ? (double) weightSum / count : 0;
+    }
+
+    public double getAverageAge() {
+        return count > 0 ? (double) ageSum / count : 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("count: %d, avg weight: %.1f, avg age: %.1f", count, getAverageWeight(), getAverageAge());
+    }
+}
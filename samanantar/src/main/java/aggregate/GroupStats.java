@@ -0,0 +1,32 @@
+package aggregate;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running count and sums of the pets in one group, from which averages follow without a scan.
+ */
+class GroupStats
+{
+    private final LongAdder count = new LongAdder();
+    private final LongAdder weightSum = new LongAdder();
+    private final LongAdder ageSum = new LongAdder();
+
+    void record(int weight, int age)
+    {
+        count.increment();
+        weightSum.add(weight);
+        ageSum.add(age);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getWeightSum() {
+        return weightSum.sum();
+    }
+
+    long getAgeSum() {
+        return ageSum.sum();
+    }
+}
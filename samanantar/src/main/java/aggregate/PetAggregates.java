@@ -0,0 +1,166 @@
+package aggregate;
+
+import codec.PetCodec;
+import com.mongodb.bulk.BulkWriteError;
+import generator.PetGenerator;
+import metrics.RollingMetrics;
+import model.Pet;
+import writer.BatchListener;
+import writer.BatchResult;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Count and average statistics of the pets inserted by this process, maintained at insert time so
+ * that reading them does not scan the collection.
+ *
+ * As a {@link BatchListener} it records the documents the server acknowledged: pets of batches that
+ * failed as a whole, pets rejected with a write error and pets an ordered batch skipped are not counted.
+ * Pets replayed from the spool carry only their BSON form and are decoded for the statistics, so in
+ * spool mode pets are counted when they reach Mongo, which includes pets a previous run spooled.
+ *
+ * Pets are counted by color, by age and by weight. Every counter is a LongAdder, so the flush
+ * threads reporting batches do not contend with each other when the write limiter runs several.
+ * The statistics are kept in memory per process and cover only the pets it inserted since start,
+ * not those already in the collection. Replay is at-least-once, so a pet that reached Mongo shortly
+ * before a crash is replayed after the restart, its duplicate key counts as written, and it is
+ * counted by both runs.
+ */
+public class PetAggregates implements BatchListener<Pet>, PetAggregatesMBean, RollingMetrics
+{
+    private static final int AGE_BUCKET_WIDTH = 5;
+    private static final int MAX_AGE = 50;
+    private static final int WEIGHT_BUCKET_WIDTH = 10;
+    private static final int MAX_WEIGHT = 100;
+    //pets without a color are grouped under this
+    private static final String NO_COLOR = "";
+
+    private final PetCodec codec = new PetCodec();
+    private final GroupStats total = new GroupStats();
+    private final ConcurrentHashMap<String, GroupStats> byColor = new ConcurrentHashMap<>();
+    private final BucketHistogram ages = new BucketHistogram(AGE_BUCKET_WIDTH, MAX_AGE);
+    private final BucketHistogram weights = new BucketHistogram(WEIGHT_BUCKET_WIDTH, MAX_WEIGHT);
+
+    public PetAggregates()
+    {
+        //known colors up front, so recording a pet never has to add to the map
+        for (String color : PetGenerator.COLORS)
+        {
+            byColor.put(color, new GroupStats());
+        }
+    }
+
+    public void record(Pet pet)
+    {
+        int weight = pet.getWeight();
+        int age = pet.getAge();
+        total.record(weight, age);
+        String color = pet.getColor() != null ? pet.getColor() : NO_COLOR;
+        GroupStats colorStats = byColor.get(color);
+        if (colorStats == null)
+        {
+            colorStats = byColor.computeIfAbsent(color, key -> new GroupStats());
+        }
+        colorStats.record(weight, age);
+        ages.record(age);
+        weights.record(weight);
+    }
+
+    @Override
+    public void onBatch(List<? extends Pet> batch, BatchResult result)
+    {
+        if (result.getFailure() != null)
+        {
+            return;
+        }
+        BitSet rejected = new BitSet(batch.size());
+        int firstError = batch.size();
+        for (BulkWriteError error : result.getWriteErrors())
+        {
+            rejected.set(error.getIndex());
+            firstError = Math.min(firstError, error.getIndex());
+        }
+        //an ordered batch stops at its first error
+        int end = result.isOrdered() ? firstError : batch.size();
+        for (int i = 0; i < end; i++)
+        {
+            if (!rejected.get(i))
+            {
+                Pet pet = batch.get(i);
+                record(pet.getName() == null && pet.getEncoded() != null ? pet.getEncoded().decode(codec) : pet);
+            }
+        }
+    }
+
+    public long count()
+    {
+        return total.getCount();
+    }
+
+    public long countByColor(String color)
+    {
+        GroupStats stats = byColor.get(color);
+        return stats != null ? stats.getCount() : 0;
+    }
+
+    public double averageWeightByColor(String color)
+    {
+        GroupStats stats = byColor.get(color);
+        return stats != null ? new GroupSnapshot(stats).getAverageWeight() : 0;
+    }
+
+    public AggregateSnapshot snapshot()
+    {
+        Map<String, GroupSnapshot> colors = new LinkedHashMap<>();
+        for (Map.Entry<String, GroupStats> entry : byColor.entrySet())
+        {
+            colors.put(entry.getKey(), new GroupSnapshot(entry.getValue()));
+        }
+        return new AggregateSnapshot(new GroupSnapshot(total), colors, AGE_BUCKET_WIDTH, ages.snapshot(),
+                WEIGHT_BUCKET_WIDTH, weights.snapshot());
+    }
+
+    @Override
+    public String roll()
+    {
+        return "Pet aggregates: " + new GroupSnapshot(total) + ", by color: " + String.join("; ", getByColor());
+    }
+
+    @Override
+    public long getCount() {
+        return count();
+    }
+
+    @Override
+    public double getAverageWeight() {
+        return new GroupSnapshot(total).getAverageWeight();
+    }
+
+    @Override
+    public double getAverageAge() {
+        return new GroupSnapshot(total).getAverageAge();
+    }
+
+    @Override
+    public String[] getByColor()
+    {
+        return byColor.entrySet().stream()
+                .filter(entry -> entry.getValue().getCount() > 0)
+                .map(entry -> entry.getKey() + ": " + new GroupSnapshot(entry.getValue()))
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public long[] getAgeBuckets() {
+        return ages.snapshot();
+    }
+
+    @Override
+    public long[] getWeightBuckets() {
+        return weights.snapshot();
+    }
+}
@@ -0,0 +1,28 @@
+package aggregate;
+
+/**
+ * JMX view of the {@link PetAggregates}.
+ */
+public interface PetAggregatesMBean
+{
+    long getCount();
+
+    double getAverageWeight();
+
+    double getAverageAge();
+
+    /**
+     * Count and averages per color.
+     */
+    String[] getByColor();
+
+    /**
+     * Pets per age bucket of 5 years, the last bucket holds all older pets.
+     */
+    long[] getAgeBuckets();
+
+    /**
+     * Pets per weight bucket of 10 pounds, the last bucket holds all heavier pets.
+     */
+    long[] getWeightBuckets();
+}
@@ -0,0 +1,184 @@
+package cache;
+
+import codec.PetCodec;
+import model.Pet;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import repository.PetQuery;
+import repository.PetQueryService;
+import writer.BatchListener;
+import writer.BatchResult;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caches the results of frequent read queries in front of a {@link PetQueryService} and keeps them in
+ * step with the write path.
+ *
+ * Registered as a listener on the writers, it marks the queries a batch affects before the batch is
+ * sent and applies the batch once it has been acknowledged: counts are adjusted by the number of
+ * matching pets and owner lookups are dropped. When it is unclear what a batch wrote, e.g. after a
+ * partial failure or for pets replayed from the spool which may have been written before a restart,
+ * every affected query is dropped instead.
+ */
+public class CachedPetQueries implements BatchListener<Pet>
+{
+    private static final String COUNT_KEY = "count";
+    private static final String COLOR_PREFIX = "color:";
+    private static final String OWNER_PREFIX = "owner:";
+
+    private final PetQueryService queryService;
+    //null when caching is disabled
+    private final ResultCache<String, Object> cache;
+    //write versions of the batch in flight on each writer thread, by cache key
+    private final ThreadLocal<Map<String, Long>> inFlight = ThreadLocal.withInitial(HashMap::new);
+
+    public CachedPetQueries(PetQueryService queryService, ResultCache<String, Object> cache)
+    {
+        this.queryService = queryService;
+        this.cache = cache;
+    }
+
+    public long countAll()
+    {
+        return count(COUNT_KEY, PetQuery.all());
+    }
+
+    public long countByColor(String color)
+    {
+        return count(COLOR_PREFIX + color, PetQuery.all().color(color));
+    }
+
+    private long count(String key, PetQuery query)
+    {
+        if (cache == null)
+        {
+            return queryService.count(query);
+        }
+        return (Long) cache.get(key, () -> queryService.count(query));
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Pet> findByOwner(String ownerName)
+    {
+        if (cache == null)
+        {
+            return queryService.findByOwner(ownerName);
+        }
+        return (List<Pet>) cache.get(OWNER_PREFIX + ownerName,
+                () -> Collections.unmodifiableList(queryService.findByOwner(ownerName)));
+    }
+
+    public ResultCache<String, Object> getCache() {
+        return cache;
+    }
+
+    @Override
+    public void onFlush(List<? extends Pet> batch)
+    {
+        if (cache == null)
+        {
+            return;
+        }
+        Map<String, Long> versions = inFlight.get();
+        versions.clear();
+        versions.put(COUNT_KEY, cache.beginWrite(COUNT_KEY));
+        for (Pet pet : batch)
+        {
+            String color = COLOR_PREFIX + color(pet);
+            if (!versions.containsKey(color))
+            {
+                versions.put(color, cache.beginWrite(color));
+            }
+            String owner = OWNER_PREFIX + ownerName(pet);
+            if (!versions.containsKey(owner))
+            {
+                versions.put(owner, cache.beginWrite(owner));
+            }
+        }
+    }
+
+    @Override
+    public void onBatch(List<? extends Pet> batch, BatchResult result)
+    {
+        if (cache == null)
+        {
+            return;
+        }
+        Map<String, Long> versions = inFlight.get();
+        if (!result.isSuccess() || isReplayed(batch))
+        {
+            for (String key : versions.keySet())
+            {
+                cache.invalidate(key);
+            }
+            versions.clear();
+            return;
+        }
+        Map<String, Long> inserted = new HashMap<>();
+        inserted.put(COUNT_KEY, (long) batch.size());
+        for (Pet pet : batch)
+        {
+            inserted.merge(COLOR_PREFIX + color(pet), 1L, Long::sum);
+        }
+        for (Map.Entry<String, Long> entry : versions.entrySet())
+        {
+            Long delta = inserted.get(entry.getKey());
+            if (delta != null)
+            {
+                cache.update(entry.getKey(), entry.getValue(), count -> (Long) count + delta);
+            }
+            else
+            {
+                cache.invalidate(entry.getKey());
+            }
+        }
+        versions.clear();
+    }
+
+    /**
+     * Whether the batch contains pets replayed from the spool, which may already have been written
+     * before a restart.
+     */
+    private static boolean isReplayed(List<? extends Pet> batch)
+    {
+        for (Pet pet : batch)
+        {
+            if (pet.getName() == null && pet.getEncoded() != null)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String color(Pet pet)
+    {
+        if (pet.getName() == null && pet.getEncoded() != null)
+        {
+            return string(pet.getEncoded(), PetCodec.COLOR);
+        }
+        return pet.getColor();
+    }
+
+    private static String ownerName(Pet pet)
+    {
+        RawBsonDocument encoded = pet.getEncoded();
+        if (pet.getName() == null && encoded != null)
+        {
+            BsonValue owner = encoded.get(PetCodec.OWNER);
+            return owner != null && owner.isDocument() ? string(owner.asDocument(), PetCodec.OWNER_NAME) : null;
+        }
+        return pet.getOwner() != null ? pet.getOwner().getName() : null;
+    }
+
+    private static String string(BsonDocument document, String field)
+    {
+        BsonValue value = document.get(field);
+        return value != null && value.isString() ? value.asString().getValue() : null;
+    }
+}
@@ -0,0 +1,266 @@
+package cache;
+
+import metrics.RollingMetrics;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Bounded read-through cache with least recently used eviction and a time to live per entry.
+ *
+ * Writers keep it consistent with the database in two steps: {@link #beginWrite(Object)} before the
+ * write is sent and {@link #update} or {@link #invalidate(Object)} once it has been acknowledged.
+ * Both bump a version that is kept per stripe of keys. A load only stores its result if no write to
+ * the stripe began or completed while it ran, so a value read concurrently with a write is returned
+ * but never cached. An update is only applied to an entry that was loaded before the write began and
+ * therefore cannot contain it yet; any other entry is dropped.
+ */
+public class ResultCache<K, V> implements ResultCacheMBean, RollingMetrics
+{
+    private static final int STRIPES = 1024;
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+    //access ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder uncachedLoads = new LongAdder();
+
+    private long lastHits;
+    private long lastMisses;
+    private volatile double intervalHitRatio;
+
+    public ResultCache(String name, int maxEntries, long ttl, TimeUnit unit)
+    {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest)
+            {
+                if (size() > ResultCache.this.maxEntries)
+                {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached value, or loads it on the calling thread and caches it.
+     */
+    public V get(K key, Supplier<V> loader)
+    {
+        long now = System.nanoTime();
+        synchronized (entries)
+        {
+            Entry<V> entry = entries.get(key);
+            if (entry != null)
+            {
+                if (now - entry.loadedNanos < ttlNanos)
+                {
+                    entry.hits++;
+                    hits.increment();
+                    return entry.value;
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+        }
+        misses.increment();
+        int stripe = stripe(key);
+        long version = versions.get(stripe);
+        V value = loader.get();
+        synchronized (entries)
+        {
+            if (versions.get(stripe) != version)
+            {
+                uncachedLoads.increment();
+                return value;
+            }
+            Entry<V> previous = entries.get(key);
+            Entry<V> entry = new Entry<>(value, version, System.nanoTime());
+            entry.loads = previous != null ? previous.loads + 1 : 1;
+            entries.put(key, entry);
+        }
+        return value;
+    }
+
+    /**
+     * Marks a write that affects the key as started.
+     * @return the version to pass to {@link #update} once the write has been acknowledged
+     */
+    public long beginWrite(K key)
+    {
+        return versions.incrementAndGet(stripe(key));
+    }
+
+    /**
+     * Applies an acknowledged write to the cached value, or drops the value if it may already
+     * contain the write.
+     */
+    public void update(K key, long writeVersion, UnaryOperator<V> update)
+    {
+        synchronized (entries)
+        {
+            versions.incrementAndGet(stripe(key));
+            Entry<V> entry = entries.get(key);
+            if (entry == null)
+            {
+                return;
+            }
+            if (entry.version < writeVersion)
+            {
+                entry.value = update.apply(entry.value);
+                updates.increment();
+            }
+            else
+            {
+                entries.remove(key);
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops the cached value after a write whose effect on it is unknown.
+     */
+    public void invalidate(K key)
+    {
+        synchronized (entries)
+        {
+            versions.incrementAndGet(stripe(key));
+            if (entries.remove(key) != null)
+            {
+                invalidations.increment();
+            }
+        }
+    }
+
+    private int stripe(K key)
+    {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+
+    @Override
+    public synchronized String roll()
+    {
+        long currentHits = hits.sum();
+        long currentMisses = misses.sum();
+        long intervalHits = currentHits - lastHits;
+        long intervalLookups = intervalHits + currentMisses - lastMisses;
+        intervalHitRatio = intervalLookups > 0 ? (double) intervalHits / intervalLookups : 0;
+        lastHits = currentHits;
+        lastMisses = currentMisses;
+        return String.format("%s cache: size: %d, hit ratio: %.3f, hits: %d, misses: %d, uncached loads: %d,"
+                        + " updates: %d, invalidations: %d, evictions: %d, expirations: %d",
+                name, getSize(), intervalHitRatio, getHits(), getMisses(), getUncachedLoads(), getUpdates(),
+                getInvalidations(), getEvictions(), getExpirations());
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (entries)
+        {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        return intervalHitRatio;
+    }
+
+    @Override
+    public long getUncachedLoads() {
+        return uncachedLoads.sum();
+    }
+
+    @Override
+    public long getUpdates() {
+        return updates.sum();
+    }
+
+    @Override
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    @Override
+    public String[] getTopEntries()
+    {
+        List<Map.Entry<K, Entry<V>>> snapshot;
+        synchronized (entries)
+        {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+        snapshot.sort((a, b) -> Long.compare(b.getValue().hits, a.getValue().hits));
+        List<String> top = new ArrayList<>();
+        Iterator<Map.Entry<K, Entry<V>>> iterator = snapshot.iterator();
+        while (iterator.hasNext() && top.size() < TOP_ENTRIES)
+        {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            top.add(entry.getKey() + ": hits: " + entry.getValue().hits + ", loads: " + entry.getValue().loads);
+        }
+        return top.toArray(new String[0]);
+    }
+
+    private static final class Entry<V>
+    {
+        private V value;
+        //version of the key's stripe when the load began
+        private final long version;
+        private final long loadedNanos;
+        //guarded by the entries lock
+        private long hits;
+        private long loads;
+
+        private Entry(V value, long version, long loadedNanos)
+        {
+            this.value = value;
+            this.version = version;
+            this.loadedNanos = loadedNanos;
+        }
+    }
+}
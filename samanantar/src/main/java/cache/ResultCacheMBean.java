@@ -0,0 +1,36 @@
+package cache;
+
+/**
+ * JMX view of a {@link ResultCache}. Counters are totals since start, the hit ratio covers the last
+ * reporting interval.
+ */
+public interface ResultCacheMBean
+{
+    int TOP_ENTRIES = 10;
+
+    int getSize();
+
+    long getHits();
+
+    long getMisses();
+
+    double getHitRatio();
+
+    /**
+     * Loads whose result was not cached because a write to the same keys ran concurrently.
+     */
+    long getUncachedLoads();
+
+    long getUpdates();
+
+    long getInvalidations();
+
+    long getEvictions();
+
+    long getExpirations();
+
+    /**
+     * The most used entries with their hits and the number of times they were loaded.
+     */
+    String[] getTopEntries();
+}
@@ -0,0 +1,206 @@
+package codec;
+
+import model.Owner;
+import model.Pet;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonObjectId;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.BsonWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.ByteBufferBsonInput;
+import org.bson.types.ObjectId;
+
+/**
+ * Hand-written codec for {@link Pet}, writing the same document shape the application has always
+ * stored: name, weigh(LB), age, colors and an embedded owner.
+ *
+ * Pets that were pre-encoded by {@link PetEncoder} are piped into the writer byte for byte.
+ * Decoding tolerates missing fields so that projected queries can be read back as pets.
+ */
+public class PetCodec implements CollectibleCodec<Pet>
+{
+    public static final String ID = "_id";
+    public static final String NAME = "name";
+    public static final String WEIGHT = "weigh(LB)";
+    public static final String AGE = "age";
+    public static final String COLOR = "colors";
+    public static final String OWNER = "owner";
+    public static final String OWNER_NAME = "name";
+    public static final String OWNER_ADDRESS = "address";
+
+    @Override
+    public void encode(BsonWriter writer, Pet pet, EncoderContext encoderContext)
+    {
+        RawBsonDocument encoded = pet.getEncoded();
+        if (encoded != null)
+        {
+            writer.pipe(new BsonBinaryReader(new ByteBufferBsonInput(encoded.getByteBuffer())));
+            return;
+        }
+        writer.writeStartDocument();
+        if (pet.getId() != null)
+        {
+            writer.writeObjectId(ID, pet.getId());
+        }
+        writeString(writer, NAME, pet.getName());
+        writer.writeInt32(WEIGHT, pet.getWeight());
+        writer.writeInt32(AGE, pet.getAge());
+        writeString(writer, COLOR, pet.getColor());
+        Owner owner = pet.getOwner();
+        if (owner != null)
+        {
+            writer.writeStartDocument(OWNER);
+            writeString(writer, OWNER_NAME, owner.getName());
+            writeString(writer, OWNER_ADDRESS, owner.getAddress());
+            writer.writeEndDocument();
+        }
+        writer.writeEndDocument();
+    }
+
+    private static void writeString(BsonWriter writer, String name, String value)
+    {
+        if (value == null)
+        {
+            writer.writeNull(name);
+        }
+        else
+        {
+            writer.writeString(name, value);
+        }
+    }
+
+    @Override
+    public Pet decode(BsonReader reader, DecoderContext decoderContext)
+    {
+        Pet pet = new Pet();
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT)
+        {
+            switch (reader.readName())
+            {
+                case ID:
+                    if (reader.getCurrentBsonType() == BsonType.OBJECT_ID)
+                    {
+                        pet.setId(reader.readObjectId());
+                    }
+                    else
+                    {
+                        reader.skipValue();
+                    }
+                    break;
+                case NAME:
+                    pet.setName(readString(reader));
+                    break;
+                case WEIGHT:
+                    pet.setWeight(readInt(reader));
+                    break;
+                case AGE:
+                    pet.setAge(readInt(reader));
+                    break;
+                case COLOR:
+                    pet.setColor(readString(reader));
+                    break;
+                case OWNER:
+                    pet.setOwner(readOwner(reader));
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return pet;
+    }
+
+    private static Owner readOwner(BsonReader reader)
+    {
+        if (reader.getCurrentBsonType() != BsonType.DOCUMENT)
+        {
+            reader.skipValue();
+            return null;
+        }
+        String name = null;
+        String address = null;
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT)
+        {
+            String field = reader.readName();
+            if (OWNER_NAME.equals(field))
+            {
+                name = readString(reader);
+            }
+            else if (OWNER_ADDRESS.equals(field))
+            {
+                address = readString(reader);
+            }
+            else
+            {
+                reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+        return new Owner(name, address);
+    }
+
+    private static String readString(BsonReader reader)
+    {
+        if (reader.getCurrentBsonType() == BsonType.STRING)
+        {
+            return reader.readString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    private static int readInt(BsonReader reader)
+    {
+        switch (reader.getCurrentBsonType())
+        {
+            case INT32:
+                return reader.readInt32();
+            case INT64:
+                return (int) reader.readInt64();
+            case DOUBLE:
+                return (int) reader.readDouble();
+            default:
+                reader.skipValue();
+                return 0;
+        }
+    }
+
+    @Override
+    public Class<Pet> getEncoderClass()
+    {
+        return Pet.class;
+    }
+
+    @Override
+    public Pet generateIdIfAbsentFromDocument(Pet pet)
+    {
+        if (pet.getId() == null)
+        {
+            pet.setId(new ObjectId());
+        }
+        return pet;
+    }
+
+    @Override
+    public boolean documentHasId(Pet pet)
+    {
+        return pet.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(Pet pet)
+    {
+        if (pet.getId() == null)
+        {
+            throw new IllegalStateException("The pet does not contain an _id");
+        }
+        return new BsonObjectId(pet.getId());
+    }
+}
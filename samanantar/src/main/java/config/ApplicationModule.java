@@ -1,14 +1,14 @@
 package config;
 
 import com.google.inject.AbstractModule;
-import com.google.inject.Scopes;
-import com.mongodb.ConnectionString;
-import com.mongodb.MongoClientSettings;
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.MongoClients;
-import com.mongodb.client.MongoDatabase;
-import config.ConfigurationService;
-import config.ConfigurationServiceImpl;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import model.Pet;
+import org.bson.BsonDocument;
+import repository.BucketedPetRepository;
+import repository.InMemoryPetRepository;
+import repository.MongoPetRepository;
+import repository.PetRepository;
 
 public class ApplicationModule extends AbstractModule
 {
@@ -18,4 +18,26 @@ public class ApplicationModule extends AbstractModule
         bind(ConfigurationService.class).to(ConfigurationServiceImpl.class).asEagerSingleton();
         // could define additional bindings here
     }
+
+    /**
+     * Selects the storage engine configured in the repository section of appsettings.json.
+     */
+    @Provides
+    @Singleton
+    PetRepository providePetRepository(ConfigurationService configService)
+    {
+        RepositoryConfiguration configuration = configService.getConfiguration().getRepository();
+        switch (configuration.getEngine())
+        {
+            case "mongo":
+                return new MongoPetRepository(configService.getDatabase().getCollection(configuration.getCollection(), Pet.class));
+            case "bucketed":
+                return new BucketedPetRepository(configService.getDatabase().getCollection(configuration.getCollection(),
+                        BsonDocument.class), configuration.getBucketWindowSeconds(), configuration.getMaxBucketSize());
+            case "memory":
+                return new InMemoryPetRepository(configuration.getInitialCapacity());
+            default:
+                throw new IllegalArgumentException("Unknown repository engine: " + configuration.getEngine());
+        }
+    }
 }
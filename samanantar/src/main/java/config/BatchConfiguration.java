@@ -0,0 +1,70 @@
+package config;
+
+public class BatchConfiguration
+{
+    private int size = 500;
+    private long lingerMillis = 50;
+    private int queueCapacity = 10000;
+    private boolean ordered = false;
+    //encode pets to raw BSON on the producer threads instead of on the writer thread
+    private boolean preEncode = false;
+    //retries of a batch that failed as a whole, e.g. on a network error
+    private int maxRetries = 3;
+    private long retryBackoffMillis = 100;
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public long getLingerMillis() {
+        return lingerMillis;
+    }
+
+    public void setLingerMillis(long lingerMillis) {
+        this.lingerMillis = lingerMillis;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    public boolean isPreEncode() {
+        return preEncode;
+    }
+
+    public void setPreEncode(boolean preEncode) {
+        this.preEncode = preEncode;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getRetryBackoffMillis() {
+        return retryBackoffMillis;
+    }
+
+    public void setRetryBackoffMillis(long retryBackoffMillis) {
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+}
@@ -0,0 +1,34 @@
+package config;
+
+public class CacheConfiguration
+{
+    private boolean enabled = true;
+    //least recently used results are evicted beyond this
+    private int maxEntries = 10000;
+    //results are reloaded after this even if no write touched them, e.g. to pick up other writers
+    private long ttlSeconds = 60;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
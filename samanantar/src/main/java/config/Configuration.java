@@ -1,8 +1,42 @@
 package config;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Settings loaded from appsettings.json. A loaded configuration is never modified, a reload replaces it
+ * as a whole, so readers can hold on to the instance they got.
+ */
 public class Configuration
 {
+    //settings the application applies while running, all others keep their startup values until a restart
+    public static final List<String> LIVE_SETTINGS = Collections.unmodifiableList(Arrays.asList(
+            "workload.targetOpsPerSecond", "batch.size", "batch.lingerMillis", "logging.summaryIntervalSeconds"));
+
     private String mongoConnectionString;
+    private MongoClientConfiguration mongoClient = new MongoClientConfiguration();
+    private BatchConfiguration batch = new BatchConfiguration();
+    private WorkloadConfiguration workload = new WorkloadConfiguration();
+    private GeneratorConfiguration generator = new GeneratorConfiguration();
+    private SpoolConfiguration spool = new SpoolConfiguration();
+    private MetricsConfiguration metrics = new MetricsConfiguration();
+    private RepositoryConfiguration repository = new RepositoryConfiguration();
+    private LoggingConfiguration logging = new LoggingConfiguration();
+    private ReloadConfiguration reload = new ReloadConfiguration();
+    private CacheConfiguration cache = new CacheConfiguration();
+    private LimiterConfiguration limiter = new LimiterConfiguration();
+    private TransferConfiguration transfer = new TransferConfiguration();
+    private SeedConfiguration seed = new SeedConfiguration();
+    private StandInConfiguration standIn = new StandInConfiguration();
+    private SoakConfiguration soak = new SoakConfiguration();
 
     public String getMongoConnectionString() {
         return mongoConnectionString;
@@ -11,4 +45,191 @@ public class Configuration
     public void setMongoConnectionString(String mongoConnectionString) {
         this.mongoConnectionString = mongoConnectionString;
     }
+
+    public MongoClientConfiguration getMongoClient() {
+        return mongoClient;
+    }
+
+    public void setMongoClient(MongoClientConfiguration mongoClient) {
+        this.mongoClient = mongoClient;
+    }
+
+    public BatchConfiguration getBatch() {
+        return batch;
+    }
+
+    public void setBatch(BatchConfiguration batch) {
+        this.batch = batch;
+    }
+
+    public WorkloadConfiguration getWorkload() {
+        return workload;
+    }
+
+    public void setWorkload(WorkloadConfiguration workload) {
+        this.workload = workload;
+    }
+
+    public GeneratorConfiguration getGenerator() {
+        return generator;
+    }
+
+    public void setGenerator(GeneratorConfiguration generator) {
+        this.generator = generator;
+    }
+
+    public SpoolConfiguration getSpool() {
+        return spool;
+    }
+
+    public void setSpool(SpoolConfiguration spool) {
+        this.spool = spool;
+    }
+
+    public MetricsConfiguration getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(MetricsConfiguration metrics) {
+        this.metrics = metrics;
+    }
+
+    public RepositoryConfiguration getRepository() {
+        return repository;
+    }
+
+    public void setRepository(RepositoryConfiguration repository) {
+        this.repository = repository;
+    }
+
+    public LoggingConfiguration getLogging() {
+        return logging;
+    }
+
+    public void setLogging(LoggingConfiguration logging) {
+        this.logging = logging;
+    }
+
+    public ReloadConfiguration getReload() {
+        return reload;
+    }
+
+    public void setReload(ReloadConfiguration reload) {
+        this.reload = reload;
+    }
+
+    public CacheConfiguration getCache() {
+        return cache;
+    }
+
+    public void setCache(CacheConfiguration cache) {
+        this.cache = cache;
+    }
+
+    public LimiterConfiguration getLimiter() {
+        return limiter;
+    }
+
+    public void setLimiter(LimiterConfiguration limiter) {
+        this.limiter = limiter;
+    }
+
+    public TransferConfiguration getTransfer() {
+        return transfer;
+    }
+
+    public void setTransfer(TransferConfiguration transfer) {
+        this.transfer = transfer;
+    }
+
+    public SeedConfiguration getSeed() {
+        return seed;
+    }
+
+    public void setSeed(SeedConfiguration seed) {
+        this.seed = seed;
+    }
+
+    public StandInConfiguration getStandIn() {
+        return standIn;
+    }
+
+    public void setStandIn(StandInConfiguration standIn) {
+        this.standIn = standIn;
+    }
+
+    public SoakConfiguration getSoak() {
+        return soak;
+    }
+
+    public void setSoak(SoakConfiguration soak) {
+        this.soak = soak;
+    }
+
+    /**
+     * Names of the settings whose values differ in the other configuration, e.g. "batch.size".
+     */
+    public List<String> changedSettings(Configuration other)
+    {
+        Gson gson = new Gson();
+        List<String> changed = new ArrayList<>();
+        addChanges("", gson.toJsonTree(this), gson.toJsonTree(other), changed);
+        return changed;
+    }
+
+    /**
+     * A copy of this configuration with the {@link #LIVE_SETTINGS} taken from the reloaded one.
+     * Nothing is shared with either instance, so neither can be changed through the copy.
+     */
+    public Configuration withLiveSettings(Configuration reloaded)
+    {
+        Gson gson = new Gson();
+        JsonObject copy = gson.toJsonTree(this).getAsJsonObject();
+        JsonObject source = gson.toJsonTree(reloaded).getAsJsonObject();
+        for (String setting : LIVE_SETTINGS)
+        {
+            String[] path = setting.split("\\.");
+            JsonObject target = copy;
+            JsonObject from = source;
+            for (int i = 0; i < path.length - 1; i++)
+            {
+                if (!target.has(path[i]))
+                {
+                    target.add(path[i], new JsonObject());
+                }
+                target = target.getAsJsonObject(path[i]);
+                from = from != null ? from.getAsJsonObject(path[i]) : null;
+            }
+            String name = path[path.length - 1];
+            if (from != null && from.has(name))
+            {
+                target.add(name, from.get(name));
+            }
+            else
+            {
+                target.remove(name);
+            }
+        }
+        return gson.fromJson(copy, Configuration.class);
+    }
+
+    private static void addChanges(String path, JsonElement these, JsonElement others, List<String> changed)
+    {
+        if (these == null || others == null || !these.isJsonObject() || !others.isJsonObject())
+        {
+            if (these == null ? others != null : !these.equals(others))
+            {
+                changed.add(path);
+            }
+            return;
+        }
+        JsonObject theseObject = these.getAsJsonObject();
+        JsonObject othersObject = others.getAsJsonObject();
+        Set<String> keys = new LinkedHashSet<>(theseObject.keySet());
+        keys.addAll(othersObject.keySet());
+        for (String key : keys)
+        {
+            addChanges(path.isEmpty() ? key : path + "." + key, theseObject.get(key), othersObject.get(key), changed);
+        }
+    }
 }
@@ -0,0 +1,10 @@
+package config;
+
+/**
+ * Notified on the reloader thread after appsettings.json has been reloaded.
+ */
+@FunctionalInterface
+public interface ConfigurationListener
+{
+    void onChange(Configuration previous, Configuration current);
+}
@@ -0,0 +1,107 @@
+package config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a file with a {@link WatchService} and runs a callback on its own thread whenever the file
+ * has been created or modified. Changes that arrive within the debounce time are handled once.
+ */
+class ConfigurationReloader implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationReloader.class);
+
+    private final Path file;
+    private final long debounceMillis;
+    private final Runnable onChange;
+    private final WatchService watchService;
+    private final Thread watchThread;
+
+    ConfigurationReloader(Path file, long debounceMillis, Runnable onChange) throws IOException
+    {
+        this.file = file.toAbsolutePath();
+        this.debounceMillis = debounceMillis;
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.watchThread = new Thread(this::watch, "configuration-reloader");
+        this.watchThread.setDaemon(true);
+    }
+
+    void start()
+    {
+        watchThread.start();
+        LOGGER.info("Watching {} for changes", file);
+    }
+
+    private void watch()
+    {
+        try
+        {
+            while (true)
+            {
+                if (!isChanged(watchService.take()))
+                {
+                    continue;
+                }
+                //let the writer finish and swallow the events it causes meanwhile
+                TimeUnit.MILLISECONDS.sleep(debounceMillis);
+                WatchKey key;
+                while ((key = watchService.poll()) != null)
+                {
+                    isChanged(key);
+                }
+                try
+                {
+                    onChange.run();
+                }
+                catch (RuntimeException ex)
+                {
+                    LOGGER.error("Could not apply changes of {}: {}", file, ex.toString());
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e)
+        {
+            LOGGER.debug("Stopped watching {}", file);
+        }
+    }
+
+    private boolean isChanged(WatchKey key)
+    {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents())
+        {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context()))
+            {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            watchService.close();
+        }
+        catch (IOException e)
+        {
+            LOGGER.warn("Could not close watch service: {}", e.toString());
+        }
+    }
+}
@@ -3,12 +3,32 @@ package config;
 
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoDatabase;
+import metrics.CommandMetrics;
+import metrics.ConnectionPoolMetrics;
+
+import java.util.concurrent.CompletableFuture;
 
 public interface ConfigurationService {
 
+    Configuration getConfiguration();
+
+    /**
+     * Completes once the configuration is loaded and the database can be used.
+     */
+    CompletableFuture<Void> whenReady();
+
+    /**
+     * Registers a listener for changes to appsettings.json made while the application runs.
+     */
+    void addListener(ConfigurationListener listener);
+
     MongoClient getMongoClient();
 
     MongoDatabase getDatabase();
 
+    ConnectionPoolMetrics getConnectionPoolMetrics();
+
+    CommandMetrics getCommandMetrics();
+
     void close();
 }
@@ -1,57 +1,413 @@
 package config;
 
+import codec.PetCodec;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCompressor;
+import com.mongodb.WriteConcern;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoDatabase;
-import jdk.nashorn.internal.runtime.regexp.joni.Config;
+import metrics.CommandMetrics;
+import metrics.ConnectionPoolMetrics;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import standin.StandInServer;
+import util.ConcurrentUtils;
 
-import javax.annotation.PostConstruct;
 import javax.inject.Singleton;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Loads appsettings.json and warms up the Mongo client on a background thread, so that creating the
+ * service never blocks. {@link #whenReady()} completes once the configuration is loaded and, when the
+ * mongo repository engine is used, the first connection to the server has been made.
+ *
+ * Afterwards the file is watched and every change replaces the configuration as a whole, so readers
+ * get a consistent snapshot with a single volatile read. Only the {@link Configuration#LIVE_SETTINGS}
+ * are taken from the changed file, every other setting stays as it was at startup, so e.g. a Mongo
+ * client created after a reload still uses the startup pool size.
+ */
 @Singleton
 public class ConfigurationServiceImpl implements ConfigurationService
 {
-    private static MongoClient mongoClient;
-    private static MongoDatabase mongoDatabase;
-    private static Configuration configuration;
-
     private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurationServiceImpl.class);
 
-    public ConfigurationServiceImpl() throws Exception {
+    private static final Path CONFIG_PATH = Paths.get("appsettings.json");
+
+    private final ConnectionPoolMetrics connectionPoolMetrics = new ConnectionPoolMetrics();
+    private final CommandMetrics commandMetrics = new CommandMetrics();
+    private final ExecutorService startupExecutor =
+            ConcurrentUtils.newFixedThreadPool("configuration-startup", 1, true);
+    private final CompletableFuture<Configuration> initialConfiguration;
+    private final CompletableFuture<Void> ready;
+    private final List<ConfigurationListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Configuration configuration;
+    private volatile ConfigurationReloader reloader;
+
+    private MongoClient mongoClient;
+    private MongoDatabase mongoDatabase;
+    private StandInServer standInServer;
+
+    public ConfigurationServiceImpl() {
         LOGGER.info("Creating ConfigurationServiceImpl");
-        final Path configPath = Paths.get( "appsettings.json");
-        try (final BufferedReader reader = Files.newBufferedReader(configPath))
+        initialConfiguration = CompletableFuture.supplyAsync(this::loadConfiguration, startupExecutor);
+        ready = initialConfiguration.thenAcceptAsync(loaded -> {
+            startReloader(loaded);
+            warmUp(loaded);
+        }, startupExecutor);
+        ready.whenComplete((result, failure) -> {
+            startupExecutor.shutdown();
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            if (failure == null)
+            {
+                LOGGER.info("ConfigurationServiceImpl ready {}ms after JVM start", uptime);
+            }
+            else
+            {
+                LOGGER.error("ConfigurationServiceImpl startup failed {}ms after JVM start: {}", uptime,
+                        failure.getCause() != null ? failure.getCause().toString() : failure.toString());
+            }
+        });
+    }
+
+    private Configuration loadConfiguration()
+    {
+        try
         {
-            configuration = new Gson().fromJson(reader, Configuration.class);
-            mongoClient = MongoClients.create(configuration.getMongoConnectionString());
-            mongoDatabase = mongoClient.getDatabase("samanantar");
-            LOGGER.info("ConfigurationServiceImpl has been created with configuration: {}, mongoClient: {}",
-                    configuration, mongoClient );
+            Configuration loaded = readConfiguration();
+            configuration = loaded;
+            LOGGER.info("ConfigurationServiceImpl has been created with configuration: {}", loaded);
+            return loaded;
         } catch (IOException e) {
-            LOGGER.error("Cound not initialized the ConfigurationServiceImpl with file: {}", configPath);
+            LOGGER.error("Cound not initialized the ConfigurationServiceImpl with file: {}", CONFIG_PATH);
             LOGGER.error(e.toString());
-            throw new Exception("Could not initialized dependency for application");
+            throw new UncheckedIOException("Could not initialized dependency for application", e);
+        }
+    }
+
+    private static Configuration readConfiguration() throws IOException
+    {
+        try (final BufferedReader reader = Files.newBufferedReader(CONFIG_PATH))
+        {
+            Configuration loaded = new Gson().fromJson(reader, Configuration.class);
+            if (loaded == null)
+            {
+                throw new IOException(CONFIG_PATH + " is empty");
+            }
+            return loaded;
+        }
+        catch (JsonParseException e)
+        {
+            throw new IOException("Could not parse " + CONFIG_PATH + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void startReloader(Configuration loaded)
+    {
+        if (!loaded.getReload().isEnabled())
+        {
+            return;
+        }
+        try
+        {
+            reloader = new ConfigurationReloader(CONFIG_PATH, loaded.getReload().getDebounceMillis(), this::reload);
+            reloader.start();
+        }
+        catch (IOException e)
+        {
+            LOGGER.warn("Could not watch {} for changes: {}", CONFIG_PATH, e.toString());
+        }
+    }
+
+    /**
+     * Replaces the configuration with one that takes the live settings from the current content of the
+     * file and notifies the listeners. A file that cannot be read or parsed leaves the configuration unchanged.
+     */
+    private void reload()
+    {
+        Configuration reloaded;
+        try
+        {
+            reloaded = readConfiguration();
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Keeping the current configuration: {}", e.toString());
+            return;
+        }
+        Configuration previous = configuration;
+        List<String> changed = previous.changedSettings(reloaded);
+        List<String> restartRequired = new ArrayList<>(changed);
+        restartRequired.removeAll(Configuration.LIVE_SETTINGS);
+        if (!restartRequired.isEmpty())
+        {
+            LOGGER.warn("Changes to {} take effect after a restart", restartRequired);
+        }
+        changed.retainAll(Configuration.LIVE_SETTINGS);
+        if (changed.isEmpty())
+        {
+            return;
+        }
+        Configuration next = previous.withLiveSettings(reloaded);
+        configuration = next;
+        LOGGER.info("Reloaded {}, changed: {}", CONFIG_PATH, changed);
+        for (ConfigurationListener listener : listeners)
+        {
+            try
+            {
+                listener.onChange(previous, next);
+            }
+            catch (RuntimeException ex)
+            {
+                LOGGER.error("Configuration listener failed: {}", ex.toString());
+            }
+        }
+    }
+
+    /**
+     * Creates the client and pings the server, which opens the first connection and starts filling
+     * the pool up to its minimum size.
+     */
+    private void warmUp(Configuration loaded)
+    {
+        if (!loaded.getRepository().usesMongo())
+        {
+            return;
+        }
+        long start = System.nanoTime();
+        getMongoClient().getDatabase("admin").runCommand(new Document("ping", 1));
+        LOGGER.info("Mongo client connected in {}ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Returns the current configuration, waiting for it while it is loaded for the first time.
+     */
+    public Configuration getConfiguration() {
+        Configuration current = configuration;
+        return current != null ? current : getStartupConfiguration();
+    }
+
+    /**
+     * The configuration as it was loaded at startup, before any reload.
+     */
+    private Configuration getStartupConfiguration()
+    {
+        try
+        {
+            return initialConfiguration.join();
         }
+        catch (CompletionException e)
+        {
+            throw new IllegalStateException("Could not initialized dependency for application", e.getCause());
+        }
+    }
+
+    public CompletableFuture<Void> whenReady() {
+        return ready;
+    }
+
+    public void addListener(ConfigurationListener listener) {
+        listeners.add(listener);
     }
 
-    public MongoClient getMongoClient() {
+    /**
+     * The client is created on first use, so that nothing connects to Mongo when the in-memory
+     * repository is configured. With the stand-in enabled, the stand-in server is started first and
+     * the client connects to it instead of mongoConnectionString. It is always built from the startup
+     * configuration, also when it is first used after a reload.
+     */
+    public synchronized MongoClient getMongoClient() {
+        if (mongoClient == null)
+        {
+            Configuration startup = getStartupConfiguration();
+            String connectionString = startup.getMongoConnectionString();
+            if (startup.getStandIn().isEnabled())
+            {
+                connectionString = startStandIn(startup.getStandIn());
+            }
+            //the pet codec comes first so it takes precedence over the default codecs
+            CodecRegistry codecRegistry = CodecRegistries.fromRegistries(
+                    CodecRegistries.fromCodecs(new PetCodec()),
+                    MongoClientSettings.getDefaultCodecRegistry());
+            MongoClientSettings.Builder settings = MongoClientSettings.builder()
+                    .applyConnectionString(new ConnectionString(connectionString))
+                    .codecRegistry(codecRegistry)
+                    .addCommandListener(commandMetrics);
+            applyClientConfiguration(settings, startup.getMongoClient());
+            mongoClient = MongoClients.create(settings.build());
+            mongoDatabase = mongoClient.getDatabase("samanantar");
+            LOGGER.info("Created mongoClient: {}", mongoClient);
+        }
         return mongoClient;
     }
 
-    public MongoDatabase getDatabase() {
+    private String startStandIn(StandInConfiguration standIn)
+    {
+        standInServer = new StandInServer(standIn);
+        try
+        {
+            standInServer.start();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not start the Mongo stand-in", e);
+        }
+        return standInServer.getConnectionString();
+    }
+
+    /**
+     * Applies the settings of the mongoClient section on top of the connection string.
+     */
+    private void applyClientConfiguration(MongoClientSettings.Builder settings, MongoClientConfiguration client)
+    {
+        settings.applyToConnectionPoolSettings(pool -> {
+            pool.addConnectionPoolListener(connectionPoolMetrics);
+            if (client.getMaxPoolSize() != null)
+            {
+                pool.maxSize(client.getMaxPoolSize());
+            }
+            if (client.getMinPoolSize() != null)
+            {
+                pool.minSize(client.getMinPoolSize());
+            }
+            if (client.getMaxWaitTimeMillis() != null)
+            {
+                pool.maxWaitTime(client.getMaxWaitTimeMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (client.getMaxConnectionIdleTimeMillis() != null)
+            {
+                pool.maxConnectionIdleTime(client.getMaxConnectionIdleTimeMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (client.getMaxConnectionLifeTimeMillis() != null)
+            {
+                pool.maxConnectionLifeTime(client.getMaxConnectionLifeTimeMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (client.getMaintenanceFrequencyMillis() != null)
+            {
+                pool.maintenanceFrequency(client.getMaintenanceFrequencyMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+        settings.applyToSocketSettings(socket -> {
+            if (client.getConnectTimeoutMillis() != null)
+            {
+                socket.connectTimeout(client.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (client.getSocketReadTimeoutMillis() != null)
+            {
+                socket.readTimeout(client.getSocketReadTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+        settings.applyToClusterSettings(cluster -> {
+            if (client.getServerSelectionTimeoutMillis() != null)
+            {
+                cluster.serverSelectionTimeout(client.getServerSelectionTimeoutMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (client.getLocalThresholdMillis() != null)
+            {
+                cluster.localThreshold(client.getLocalThresholdMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+        if (client.getHeartbeatFrequencyMillis() != null)
+        {
+            settings.applyToServerSettings(server ->
+                    server.heartbeatFrequency(client.getHeartbeatFrequencyMillis(), TimeUnit.MILLISECONDS));
+        }
+        if (client.getApplicationName() != null)
+        {
+            settings.applicationName(client.getApplicationName());
+        }
+        if (client.getWriteConcern() != null || client.getJournal() != null)
+        {
+            WriteConcern writeConcern = WriteConcern.ACKNOWLEDGED;
+            if (client.getWriteConcern() != null)
+            {
+                writeConcern = WriteConcern.MAJORITY.getWString().equals(client.getWriteConcern())
+                        ? WriteConcern.MAJORITY
+                        : new WriteConcern(Integer.parseInt(client.getWriteConcern()));
+            }
+            if (client.getJournal() != null)
+            {
+                writeConcern = writeConcern.withJournal(client.getJournal());
+            }
+            settings.writeConcern(writeConcern);
+        }
+        if (client.getRetryWrites() != null)
+        {
+            settings.retryWrites(client.getRetryWrites());
+        }
+        if (client.getCompressors() != null && !client.getCompressors().isEmpty())
+        {
+            List<MongoCompressor> compressors = new ArrayList<>();
+            for (String compressor : client.getCompressors())
+            {
+                compressors.add(compressor(compressor));
+            }
+            settings.compressorList(compressors);
+        }
+    }
+
+    private static MongoCompressor compressor(String name)
+    {
+        switch (name)
+        {
+            case "zlib":
+                return MongoCompressor.createZlibCompressor();
+            case "snappy":
+                return MongoCompressor.createSnappyCompressor();
+            case "zstd":
+                return MongoCompressor.createZstdCompressor();
+            default:
+                throw new IllegalArgumentException("Unknown compressor: " + name);
+        }
+    }
+
+    public synchronized MongoDatabase getDatabase() {
+        getMongoClient();
         return mongoDatabase;
     }
 
-    public void close()
+    public ConnectionPoolMetrics getConnectionPoolMetrics() {
+        return connectionPoolMetrics;
+    }
+
+    public CommandMetrics getCommandMetrics() {
+        return commandMetrics;
+    }
+
+    public synchronized void close()
     {
-        mongoClient.close();
+        startupExecutor.shutdownNow();
+        if (reloader != null)
+        {
+            reloader.close();
+        }
+        if (mongoClient != null)
+        {
+            mongoClient.close();
+        }
+        if (standInServer != null)
+        {
+            standInServer.close();
+        }
     }
 }
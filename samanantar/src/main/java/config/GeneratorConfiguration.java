@@ -0,0 +1,99 @@
+package config;
+
+public class GeneratorConfiguration
+{
+    //null picks a random seed, set it to make benchmark runs generate the same pets
+    private Long seed;
+    private int namePoolSize = 1 << 16;
+    private int minNameLength = 3;
+    private int maxNameLength = 15;
+    //draw a fresh name per pet and skip names that were probably used before, see generator.UniqueNames
+    private boolean uniqueNames = false;
+    private long expectedNames = 10_000_000;
+    private double nameFalsePositiveRate = 0.001;
+    //where the used names are kept between runs, null to warm them from the collection on every start
+    private String nameFilterFile = "names.bloom";
+    //0 saves the used names only on shutdown
+    private long nameFilterSaveIntervalSeconds = 60;
+    private int maxNameAttempts = 16;
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    public int getNamePoolSize() {
+        return namePoolSize;
+    }
+
+    public void setNamePoolSize(int namePoolSize) {
+        this.namePoolSize = namePoolSize;
+    }
+
+    public int getMinNameLength() {
+        return minNameLength;
+    }
+
+    public void setMinNameLength(int minNameLength) {
+        this.minNameLength = minNameLength;
+    }
+
+    public int getMaxNameLength() {
+        return maxNameLength;
+    }
+
+    public void setMaxNameLength(int maxNameLength) {
+        this.maxNameLength = maxNameLength;
+    }
+
+    public boolean isUniqueNames() {
+        return uniqueNames;
+    }
+
+    public void setUniqueNames(boolean uniqueNames) {
+        this.uniqueNames = uniqueNames;
+    }
+
+    public long getExpectedNames() {
+        return expectedNames;
+    }
+
+    public void setExpectedNames(long expectedNames) {
+        this.expectedNames = expectedNames;
+    }
+
+    public double getNameFalsePositiveRate() {
+        return nameFalsePositiveRate;
+    }
+
+    public void setNameFalsePositiveRate(double nameFalsePositiveRate) {
+        this.nameFalsePositiveRate = nameFalsePositiveRate;
+    }
+
+    public String getNameFilterFile() {
+        return nameFilterFile;
+    }
+
+    public void setNameFilterFile(String nameFilterFile) {
+        this.nameFilterFile = nameFilterFile;
+    }
+
+    public long getNameFilterSaveIntervalSeconds() {
+        return nameFilterSaveIntervalSeconds;
+    }
+
+    public void setNameFilterSaveIntervalSeconds(long nameFilterSaveIntervalSeconds) {
+        this.nameFilterSaveIntervalSeconds = nameFilterSaveIntervalSeconds;
+    }
+
+    public int getMaxNameAttempts() {
+        return maxNameAttempts;
+    }
+
+    public void setMaxNameAttempts(int maxNameAttempts) {
+        this.maxNameAttempts = maxNameAttempts;
+    }
+}
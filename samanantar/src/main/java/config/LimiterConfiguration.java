@@ -0,0 +1,73 @@
+package config;
+
+public class LimiterConfiguration
+{
+    //when disabled the writer sends one batch at a time
+    private boolean enabled = true;
+    private int initialLimit = 2;
+    private int minLimit = 1;
+    //also the number of threads that send batches
+    private int maxLimit = 16;
+    //a batch slower than this multiple of the best recent round trip counts as a sign of overload
+    private double latencyTolerance = 2.0;
+    //the limit is multiplied by this on overload or failure
+    private double backoffRatio = 0.9;
+    //the best round trip is forgotten after this many batches, so the baseline follows lasting changes
+    private int baselineWindow = 500;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public int getBaselineWindow() {
+        return baselineWindow;
+    }
+
+    public void setBaselineWindow(int baselineWindow) {
+        this.baselineWindow = baselineWindow;
+    }
+}
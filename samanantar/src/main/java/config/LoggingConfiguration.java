@@ -0,0 +1,15 @@
+package config;
+
+public class LoggingConfiguration
+{
+    //how often hot path messages are summarized, every message is logged at DEBUG
+    private long summaryIntervalSeconds = 10;
+
+    public long getSummaryIntervalSeconds() {
+        return summaryIntervalSeconds;
+    }
+
+    public void setSummaryIntervalSeconds(long summaryIntervalSeconds) {
+        this.summaryIntervalSeconds = summaryIntervalSeconds;
+    }
+}
@@ -0,0 +1,24 @@
+package config;
+
+public class MetricsConfiguration
+{
+    //0 disables the periodic summary line
+    private long reportIntervalSeconds = 10;
+    private boolean jmxEnabled = true;
+
+    public long getReportIntervalSeconds() {
+        return reportIntervalSeconds;
+    }
+
+    public void setReportIntervalSeconds(long reportIntervalSeconds) {
+        this.reportIntervalSeconds = reportIntervalSeconds;
+    }
+
+    public boolean isJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    public void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+    }
+}
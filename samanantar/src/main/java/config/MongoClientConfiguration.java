@@ -0,0 +1,165 @@
+package config;
+
+import java.util.List;
+
+/**
+ * Tuning of the Mongo client. Settings left null keep the value from the connection string, or the
+ * driver default if the connection string does not set it either.
+ */
+public class MongoClientConfiguration
+{
+    private String applicationName;
+
+    //connection pool, per server
+    private Integer maxPoolSize;
+    private Integer minPoolSize;
+    //how long a thread waits for a connection when the pool is exhausted
+    private Long maxWaitTimeMillis;
+    private Long maxConnectionIdleTimeMillis;
+    private Long maxConnectionLifeTimeMillis;
+    private Long maintenanceFrequencyMillis;
+
+    //sockets
+    private Integer connectTimeoutMillis;
+    private Integer socketReadTimeoutMillis;
+
+    //server selection and monitoring
+    private Long serverSelectionTimeoutMillis;
+    private Long localThresholdMillis;
+    private Long heartbeatFrequencyMillis;
+
+    //"majority" or a number of acknowledging members
+    private String writeConcern;
+    private Boolean journal;
+    private Boolean retryWrites;
+    //"zlib", "snappy" or "zstd", the latter two need their libraries on the class path
+    private List<String> compressors;
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    public void setApplicationName(String applicationName) {
+        this.applicationName = applicationName;
+    }
+
+    public Integer getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public void setMaxPoolSize(Integer maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    public Integer getMinPoolSize() {
+        return minPoolSize;
+    }
+
+    public void setMinPoolSize(Integer minPoolSize) {
+        this.minPoolSize = minPoolSize;
+    }
+
+    public Long getMaxWaitTimeMillis() {
+        return maxWaitTimeMillis;
+    }
+
+    public void setMaxWaitTimeMillis(Long maxWaitTimeMillis) {
+        this.maxWaitTimeMillis = maxWaitTimeMillis;
+    }
+
+    public Long getMaxConnectionIdleTimeMillis() {
+        return maxConnectionIdleTimeMillis;
+    }
+
+    public void setMaxConnectionIdleTimeMillis(Long maxConnectionIdleTimeMillis) {
+        this.maxConnectionIdleTimeMillis = maxConnectionIdleTimeMillis;
+    }
+
+    public Long getMaxConnectionLifeTimeMillis() {
+        return maxConnectionLifeTimeMillis;
+    }
+
+    public void setMaxConnectionLifeTimeMillis(Long maxConnectionLifeTimeMillis) {
+        this.maxConnectionLifeTimeMillis = maxConnectionLifeTimeMillis;
+    }
+
+    public Long getMaintenanceFrequencyMillis() {
+        return maintenanceFrequencyMillis;
+    }
+
+    public void setMaintenanceFrequencyMillis(Long maintenanceFrequencyMillis) {
+        this.maintenanceFrequencyMillis = maintenanceFrequencyMillis;
+    }
+
+    public Integer getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(Integer connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public Integer getSocketReadTimeoutMillis() {
+        return socketReadTimeoutMillis;
+    }
+
+    public void setSocketReadTimeoutMillis(Integer socketReadTimeoutMillis) {
+        this.socketReadTimeoutMillis = socketReadTimeoutMillis;
+    }
+
+    public Long getServerSelectionTimeoutMillis() {
+        return serverSelectionTimeoutMillis;
+    }
+
+    public void setServerSelectionTimeoutMillis(Long serverSelectionTimeoutMillis) {
+        this.serverSelectionTimeoutMillis = serverSelectionTimeoutMillis;
+    }
+
+    public Long getLocalThresholdMillis() {
+        return localThresholdMillis;
+    }
+
+    public void setLocalThresholdMillis(Long localThresholdMillis) {
+        this.localThresholdMillis = localThresholdMillis;
+    }
+
+    public Long getHeartbeatFrequencyMillis() {
+        return heartbeatFrequencyMillis;
+    }
+
+    public void setHeartbeatFrequencyMillis(Long heartbeatFrequencyMillis) {
+        this.heartbeatFrequencyMillis = heartbeatFrequencyMillis;
+    }
+
+    public String getWriteConcern() {
+        return writeConcern;
+    }
+
+    public void setWriteConcern(String writeConcern) {
+        this.writeConcern = writeConcern;
+    }
+
+    public Boolean getJournal() {
+        return journal;
+    }
+
+    public void setJournal(Boolean journal) {
+        this.journal = journal;
+    }
+
+    public Boolean getRetryWrites() {
+        return retryWrites;
+    }
+
+    public void setRetryWrites(Boolean retryWrites) {
+        this.retryWrites = retryWrites;
+    }
+
+    public List<String> getCompressors() {
+        return compressors;
+    }
+
+    public void setCompressors(List<String> compressors) {
+        this.compressors = compressors;
+    }
+}
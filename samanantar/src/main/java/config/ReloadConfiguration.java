@@ -0,0 +1,25 @@
+package config;
+
+public class ReloadConfiguration
+{
+    //watch appsettings.json and apply changes to the settings that can change while running
+    private boolean enabled = true;
+    //editors often write a file in several steps, wait for it to settle before reading
+    private long debounceMillis = 200;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    public void setDebounceMillis(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+}
@@ -0,0 +1,71 @@
+package config;
+
+public class RepositoryConfiguration
+{
+    //"mongo", "bucketed" (pets grouped into bucket documents, see repository.BucketedPetRepository) or "memory"
+    private String engine = "mongo";
+    private String collection = "pets";
+    //create the indexes of the query service at startup
+    private boolean createIndexes = true;
+    //only used by the memory engine
+    private int initialCapacity = 1 << 20;
+    //only used by the bucketed engine: the time span and the most pets a bucket holds
+    private long bucketWindowSeconds = 3600;
+    private int maxBucketSize = 200;
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+
+    public boolean isCreateIndexes() {
+        return createIndexes;
+    }
+
+    public void setCreateIndexes(boolean createIndexes) {
+        this.createIndexes = createIndexes;
+    }
+
+    public int getInitialCapacity() {
+        return initialCapacity;
+    }
+
+    public void setInitialCapacity(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+    }
+
+    public long getBucketWindowSeconds() {
+        return bucketWindowSeconds;
+    }
+
+    public void setBucketWindowSeconds(long bucketWindowSeconds) {
+        this.bucketWindowSeconds = bucketWindowSeconds;
+    }
+
+    public int getMaxBucketSize() {
+        return maxBucketSize;
+    }
+
+    public void setMaxBucketSize(int maxBucketSize) {
+        this.maxBucketSize = maxBucketSize;
+    }
+
+    /**
+     * Whether the engine stores pets in Mongo and needs a client.
+     */
+    public boolean usesMongo()
+    {
+        return !"memory".equals(engine);
+    }
+}
@@ -0,0 +1,33 @@
+package config;
+
+public class SeedConfiguration
+{
+    private int batchSize = 1000;
+    //0 for one per processor
+    private int threads = 0;
+    private long progressIntervalSeconds = 5;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public long getProgressIntervalSeconds() {
+        return progressIntervalSeconds;
+    }
+
+    public void setProgressIntervalSeconds(long progressIntervalSeconds) {
+        this.progressIntervalSeconds = progressIntervalSeconds;
+    }
+}
@@ -0,0 +1,106 @@
+package config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SoakConfiguration
+{
+    //run in this order: "steady", "burst" or "ramp"
+    private List<String> profiles = new ArrayList<>(Arrays.asList("steady", "burst", "ramp"));
+    //at the base rate before the first profile, reported as samples but left out of the totals
+    private long warmupSeconds = 10;
+    //how long each profile runs
+    private long profileSeconds = 60;
+    private long sampleIntervalSeconds = 1;
+    //steady rate, the rate between bursts and where the ramp starts
+    private double baseOpsPerSecond = 2000;
+    //rate during a burst and where the ramp ends
+    private double peakOpsPerSecond = 10000;
+    private long burstSeconds = 5;
+    //time from the start of one burst to the start of the next
+    private long burstPeriodSeconds = 20;
+    //keeps offering the target rate while writes stall, so stalls show up as latency and shed pets
+    private boolean openLoop = true;
+    private String reportFile = "soak-report.json";
+
+    public List<String> getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(List<String> profiles) {
+        this.profiles = profiles;
+    }
+
+    public long getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public void setWarmupSeconds(long warmupSeconds) {
+        this.warmupSeconds = warmupSeconds;
+    }
+
+    public long getProfileSeconds() {
+        return profileSeconds;
+    }
+
+    public void setProfileSeconds(long profileSeconds) {
+        this.profileSeconds = profileSeconds;
+    }
+
+    public long getSampleIntervalSeconds() {
+        return sampleIntervalSeconds;
+    }
+
+    public void setSampleIntervalSeconds(long sampleIntervalSeconds) {
+        this.sampleIntervalSeconds = sampleIntervalSeconds;
+    }
+
+    public double getBaseOpsPerSecond() {
+        return baseOpsPerSecond;
+    }
+
+    public void setBaseOpsPerSecond(double baseOpsPerSecond) {
+        this.baseOpsPerSecond = baseOpsPerSecond;
+    }
+
+    public double getPeakOpsPerSecond() {
+        return peakOpsPerSecond;
+    }
+
+    public void setPeakOpsPerSecond(double peakOpsPerSecond) {
+        this.peakOpsPerSecond = peakOpsPerSecond;
+    }
+
+    public long getBurstSeconds() {
+        return burstSeconds;
+    }
+
+    public void setBurstSeconds(long burstSeconds) {
+        this.burstSeconds = burstSeconds;
+    }
+
+    public long getBurstPeriodSeconds() {
+        return burstPeriodSeconds;
+    }
+
+    public void setBurstPeriodSeconds(long burstPeriodSeconds) {
+        this.burstPeriodSeconds = burstPeriodSeconds;
+    }
+
+    public boolean isOpenLoop() {
+        return openLoop;
+    }
+
+    public void setOpenLoop(boolean openLoop) {
+        this.openLoop = openLoop;
+    }
+
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    public void setReportFile(String reportFile) {
+        this.reportFile = reportFile;
+    }
+}
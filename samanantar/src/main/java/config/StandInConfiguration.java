@@ -0,0 +1,75 @@
+package config;
+
+public class StandInConfiguration
+{
+    //start an in-process stand-in server and connect the client to it instead of mongoConnectionString
+    private boolean enabled = false;
+    //0 picks a free port
+    private int port = 0;
+    //added to every command before it is answered
+    private long latencyMillis = 0;
+    //up to this much more, uniformly distributed
+    private long latencyJitterMillis = 0;
+    //share of commands answered with an error
+    private double errorRate = 0;
+    //share of commands after which the connection is closed without an answer
+    private double disconnectRate = 0;
+    //false acknowledges inserts without keeping the documents, for pure write throughput tests
+    private boolean storeDocuments = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public long getLatencyJitterMillis() {
+        return latencyJitterMillis;
+    }
+
+    public void setLatencyJitterMillis(long latencyJitterMillis) {
+        this.latencyJitterMillis = latencyJitterMillis;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public double getDisconnectRate() {
+        return disconnectRate;
+    }
+
+    public void setDisconnectRate(double disconnectRate) {
+        this.disconnectRate = disconnectRate;
+    }
+
+    public boolean isStoreDocuments() {
+        return storeDocuments;
+    }
+
+    public void setStoreDocuments(boolean storeDocuments) {
+        this.storeDocuments = storeDocuments;
+    }
+}
@@ -0,0 +1,35 @@
+package config;
+
+public class TransferConfiguration
+{
+    //pets fetched per cursor batch on export and inserted per bulk write on import
+    private int batchSize = 1000;
+    //threads parsing and inserting on import, 0 for one per processor
+    private int importThreads = 0;
+    //gzip level of exported files, from 1 (fastest) to 9 (smallest)
+    private int compressionLevel = 1;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getImportThreads() {
+        return importThreads;
+    }
+
+    public void setImportThreads(int importThreads) {
+        this.importThreads = importThreads;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+}
@@ -0,0 +1,51 @@
+package config;
+
+public class WorkloadConfiguration
+{
+    private double targetOpsPerSecond = 1000;
+    private int producerThreads = 4;
+    private long rampUpSeconds = 10;
+    //0 keeps the workload running until the application is closed
+    private long durationSeconds = 0;
+    private boolean openLoop = false;
+
+    public double getTargetOpsPerSecond() {
+        return targetOpsPerSecond;
+    }
+
+    public void setTargetOpsPerSecond(double targetOpsPerSecond) {
+        this.targetOpsPerSecond = targetOpsPerSecond;
+    }
+
+    public int getProducerThreads() {
+        return producerThreads;
+    }
+
+    public void setProducerThreads(int producerThreads) {
+        this.producerThreads = producerThreads;
+    }
+
+    public long getRampUpSeconds() {
+        return rampUpSeconds;
+    }
+
+    public void setRampUpSeconds(long rampUpSeconds) {
+        this.rampUpSeconds = rampUpSeconds;
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(long durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public boolean isOpenLoop() {
+        return openLoop;
+    }
+
+    public void setOpenLoop(boolean openLoop) {
+        this.openLoop = openLoop;
+    }
+}
@@ -0,0 +1,56 @@
+package generator;
+
+import model.Owner;
+
+import java.util.SplittableRandom;
+
+/**
+ * Pet names generated once up front, together with the owner of every name.
+ *
+ * Picking a pet then costs one random index instead of building a new string and two concatenations.
+ * Owners are immutable and shared between all pets with the same name.
+ */
+public class NamePool
+{
+    private static final char[] LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private final String[] names;
+    private final Owner[] owners;
+
+    public NamePool(SplittableRandom random, int size, int minLength, int maxLength)
+    {
+        this.names = new String[size];
+        this.owners = new Owner[size];
+        for (int i = 0; i < size; i++)
+        {
+            String name = randomName(random, minLength, maxLength);
+            names[i] = name;
+            owners[i] = new Owner(name + "_owner", name + "_home");
+        }
+    }
+
+    static String randomName(SplittableRandom random, int minLength, int maxLength)
+    {
+        char[] chars = new char[random.nextInt(minLength, maxLength + 1)];
+        for (int i = 0; i < chars.length; i++)
+        {
+            chars[i] = LETTERS[random.nextInt(LETTERS.length)];
+        }
+        return new String(chars);
+    }
+
+    public int size()
+    {
+        return names.length;
+    }
+
+    public String name(int index)
+    {
+        return names[index];
+    }
+
+    public Owner owner(int index)
+    {
+        return owners[index];
+    }
+}
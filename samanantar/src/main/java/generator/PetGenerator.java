@@ -0,0 +1,146 @@
+package generator;
+
+import config.GeneratorConfiguration;
+import model.Owner;
+import model.Pet;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates random pets without contending on a shared random number generator.
+ *
+ * Every thread that asks for a pet gets its own {@link SplittableRandom}. The n-th thread to do so
+ * is seeded from the configured seed and n, so with a fixed seed and the same number of producers a
+ * run produces the same stream of pets per producer.
+ *
+ * Names normally come from a {@link NamePool} and repeat. With {@link UniqueNames} every pet gets a
+ * freshly drawn name instead, and names that were probably used before are skipped.
+ */
+public class PetGenerator
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PetGenerator.class);
+
+    public static final String[] COLORS = {"white", "black", "green", "brown", "orange", "red"};
+
+    private static final int MIN_WEIGHT = 5;
+    private static final int MAX_WEIGHT = 100;
+    private static final int MIN_AGE = 1;
+    private static final int MAX_AGE = 50;
+
+    //Odd constant from SplittableRandom's own seed spacing, keeps per-thread streams apart.
+    private static final long STREAM_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final long seed;
+    private final NamePool namePool;
+    private final int minNameLength;
+    private final int maxNameLength;
+    //null unless names have to be unique
+    private final UniqueNames uniqueNames;
+    private final AtomicInteger streams = new AtomicInteger();
+    private final ThreadLocal<SplittableRandom> random;
+
+    public PetGenerator(GeneratorConfiguration configuration)
+    {
+        this(configuration, null);
+    }
+
+    public PetGenerator(GeneratorConfiguration configuration, UniqueNames uniqueNames)
+    {
+        this.uniqueNames = uniqueNames;
+        this.minNameLength = configuration.getMinNameLength();
+        this.maxNameLength = configuration.getMaxNameLength();
+        this.seed = configuration.getSeed() != null ? configuration.getSeed() : System.nanoTime();
+        this.namePool = new NamePool(new SplittableRandom(seed), configuration.getNamePoolSize(),
+                configuration.getMinNameLength(), configuration.getMaxNameLength());
+        this.random = ThreadLocal.withInitial(() -> new SplittableRandom(seed + streams.incrementAndGet() * STREAM_GAMMA));
+        LOGGER.info("Pet generator created with seed: {}, name pool size: {}", seed, namePool.size());
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * A random number generator seeded from the configured seed alone, to split for parallel generation.
+     */
+    public SplittableRandom newRandom()
+    {
+        return new SplittableRandom(seed);
+    }
+
+    public String nextName()
+    {
+        return namePool.name(random.get().nextInt(namePool.size()));
+    }
+
+    public Pet nextPet()
+    {
+        return nextPet(random.get());
+    }
+
+    /**
+     * Generates a pet from the given random number generator instead of the calling thread's own,
+     * e.g. from a generator split off for a range of pets.
+     */
+    public Pet nextPet(SplittableRandom rnd)
+    {
+        if (uniqueNames != null)
+        {
+            String name = nextUniqueName(rnd);
+            return new Pet(name,
+                    rnd.nextInt(MIN_WEIGHT, MAX_WEIGHT + 1),
+                    rnd.nextInt(MIN_AGE, MAX_AGE + 1),
+                    COLORS[rnd.nextInt(COLORS.length)],
+                    new Owner(name + "_owner", name + "_home"));
+        }
+        int nameIndex = rnd.nextInt(namePool.size());
+        return new Pet(namePool.name(nameIndex),
+                rnd.nextInt(MIN_WEIGHT, MAX_WEIGHT + 1),
+                rnd.nextInt(MIN_AGE, MAX_AGE + 1),
+                COLORS[rnd.nextInt(COLORS.length)],
+                namePool.owner(nameIndex));
+    }
+
+    /**
+     * Draws names until one is probably unused. Gives up after the configured attempts and returns the
+     * last name, which the database then rejects if it really is a duplicate.
+     */
+    private String nextUniqueName(SplittableRandom rnd)
+    {
+        for (int attempt = 1; ; attempt++)
+        {
+            String name = NamePool.randomName(rnd, minNameLength, maxNameLength);
+            if (uniqueNames.claim(name))
+            {
+                return name;
+            }
+            if (attempt >= uniqueNames.getMaxAttempts())
+            {
+                uniqueNames.recordExhausted();
+                return name;
+            }
+        }
+    }
+
+    /**
+     * The same random pet as a generic {@link Document}, the way it was inserted before the
+     * {@link codec.PetCodec} existed. Kept for comparing both write paths.
+     */
+    public Document nextDocument()
+    {
+        SplittableRandom rnd = random.get();
+        int nameIndex = rnd.nextInt(namePool.size());
+        Owner owner = namePool.owner(nameIndex);
+        //weight and age stay within the Integer cache, so boxing them does not allocate
+        return new Document("name", namePool.name(nameIndex))
+                .append("weigh(LB)", rnd.nextInt(MIN_WEIGHT, MAX_WEIGHT + 1))
+                .append("age", rnd.nextInt(MIN_AGE, MAX_AGE + 1))
+                .append("colors", COLORS[rnd.nextInt(COLORS.length)])
+                .append("owner", new Document("name", owner.getName()).append("address", owner.getAddress()));
+    }
+}
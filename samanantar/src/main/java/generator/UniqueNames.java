@@ -0,0 +1,225 @@
+package generator;
+
+import config.GeneratorConfiguration;
+import metrics.RollingMetrics;
+import model.Pet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import repository.PetCursor;
+import repository.PetField;
+import repository.PetQuery;
+import repository.PetRepository;
+import util.ConcurrentBloomFilter;
+import util.ConcurrentUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the pet names already used in a {@link ConcurrentBloomFilter}, so the generator can skip a
+ * name that would fail on a unique index before it costs a round trip.
+ *
+ * The filter is loaded from a file written by the previous run, or else warmed from the collection
+ * once the database is ready. Names generated while warming are only checked against what has been
+ * loaded so far. A false positive merely skips a name that was free, while two producers claiming the
+ * same name at the same time can both get it, so a unique index remains the authority.
+ *
+ * The filter is saved periodically and on {@link #close()}, but only once it holds every stored name: a
+ * filter saved halfway through warming would be loaded by the next run as if it were complete.
+ */
+public class UniqueNames implements UniqueNamesMBean, RollingMetrics, AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(UniqueNames.class);
+
+    private static final int WARM_BATCH_SIZE = 10_000;
+
+    private final ConcurrentBloomFilter filter;
+    private final Path file;
+    private final int maxAttempts;
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final boolean loaded;
+    //loaded or warmed, so that saving it loses no names
+    private volatile boolean complete;
+    private ScheduledExecutorService saver;
+
+    public UniqueNames(GeneratorConfiguration configuration)
+    {
+        this.file = configuration.getNameFilterFile() != null ? Paths.get(configuration.getNameFilterFile()) : null;
+        this.maxAttempts = Math.max(1, configuration.getMaxNameAttempts());
+        ConcurrentBloomFilter stored = load(file);
+        this.loaded = stored != null;
+        this.complete = loaded;
+        this.filter = loaded ? stored
+                : new ConcurrentBloomFilter(configuration.getExpectedNames(), configuration.getNameFalsePositiveRate());
+        LOGGER.info("Tracking used names in {} bits with {} hashes, {} names {}", filter.getBitCount(),
+                filter.getHashCount(), filter.getInserted(), loaded ? "loaded from " + file : "known so far");
+    }
+
+    private static ConcurrentBloomFilter load(Path file)
+    {
+        if (file == null || !Files.exists(file))
+        {
+            return null;
+        }
+        try
+        {
+            return ConcurrentBloomFilter.readFrom(file);
+        }
+        catch (IOException ex)
+        {
+            LOGGER.warn("Could not load used names from {}, warming from the collection instead: {}", file,
+                    ex.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Whether the filter was restored from the previous run and does not need warming.
+     */
+    public boolean isLoaded()
+    {
+        return loaded;
+    }
+
+    /**
+     * Marks the name as used.
+     * @return false if it was probably used before and should be skipped
+     */
+    public boolean claim(String name)
+    {
+        if (filter.put(name))
+        {
+            return true;
+        }
+        skipped.increment();
+        return false;
+    }
+
+    int getMaxAttempts()
+    {
+        return maxAttempts;
+    }
+
+    void recordExhausted()
+    {
+        exhausted.increment();
+    }
+
+    /**
+     * Adds the names of all pets in the repository.
+     */
+    public void warm(PetRepository repository)
+    {
+        long start = System.nanoTime();
+        long names = 0;
+        try (PetCursor cursor = repository.stream(PetQuery.all().include(PetField.NAME).batchSize(WARM_BATCH_SIZE)))
+        {
+            while (cursor.hasNext())
+            {
+                Pet pet = cursor.next();
+                if (pet.getName() != null)
+                {
+                    filter.put(pet.getName());
+                    names++;
+                }
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            LOGGER.error("Warming used names stopped after {} pets: {}", names, ex.toString());
+            return;
+        }
+        complete = true;
+        LOGGER.info("Warmed used names from {} pets in {}ms", names, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Saves the filter every interval, so a process that is killed loses at most one interval of names.
+     */
+    public synchronized void startSaving(long interval, TimeUnit unit)
+    {
+        if (file == null || interval <= 0 || saver != null)
+        {
+            return;
+        }
+        saver = ConcurrentUtils.newScheduledThreadPool("name-filter-save", 1);
+        saver.scheduleWithFixedDelay(this::save, interval, interval, unit);
+    }
+
+    /**
+     * Writes the filter to the configured file for the next run.
+     */
+    public synchronized void save()
+    {
+        if (file == null)
+        {
+            return;
+        }
+        if (!complete)
+        {
+            LOGGER.warn("Not saving used names to {} before warming finished", file);
+            return;
+        }
+        try
+        {
+            filter.writeTo(file);
+            LOGGER.info("Saved {} used names to {}", filter.getInserted(), file);
+        }
+        catch (IOException ex)
+        {
+            LOGGER.error("Could not save used names to {}: {}", file, ex.toString());
+        }
+    }
+
+    /**
+     * Stops the periodic saving and saves one last time.
+     */
+    @Override
+    public void close()
+    {
+        ScheduledExecutorService current;
+        synchronized (this)
+        {
+            current = saver;
+            saver = null;
+        }
+        if (current != null)
+        {
+            ConcurrentUtils.stop(current);
+        }
+        save();
+    }
+
+    @Override
+    public String roll()
+    {
+        return String.format("Unique names: tracked: %d, skipped: %d, exhausted attempts: %d, expected fpp: %.2e",
+                getNamesTracked(), getSkippedNames(), getExhaustedAttempts(), getExpectedFalsePositiveRate());
+    }
+
+    @Override
+    public long getNamesTracked() {
+        return filter.getInserted();
+    }
+
+    @Override
+    public long getSkippedNames() {
+        return skipped.sum();
+    }
+
+    @Override
+    public long getExhaustedAttempts() {
+        return exhausted.sum();
+    }
+
+    @Override
+    public double getExpectedFalsePositiveRate() {
+        return filter.getExpectedFalsePositiveRate();
+    }
+}
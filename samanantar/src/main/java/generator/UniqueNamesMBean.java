@@ -0,0 +1,24 @@
+package generator;
+
+/**
+ * JMX view of {@link UniqueNames}.
+ */
+public interface UniqueNamesMBean
+{
+    /**
+     * Names tracked as used, including those loaded at startup.
+     */
+    long getNamesTracked();
+
+    /**
+     * Names skipped as probably used, each one a duplicate key error that did not reach the database.
+     */
+    long getSkippedNames();
+
+    /**
+     * Pets that got a name the filter still considered used after all attempts.
+     */
+    long getExhaustedAttempts();
+
+    double getExpectedFalsePositiveRate();
+}
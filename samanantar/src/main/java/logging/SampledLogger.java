@@ -0,0 +1,96 @@
+package logging;
+
+import org.slf4j.Logger;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logger for messages on the hot path that would otherwise be logged once per document.
+ *
+ * Events are only counted. At most once per interval the thread that logs an event past the end of the
+ * interval writes a single INFO line with the number of events since the last one, followed by that
+ * event's message as a sample. With DEBUG enabled on the underlying logger every event is also logged
+ * individually at DEBUG.
+ */
+public class SampledLogger
+{
+    private final Logger logger;
+    private final String description;
+    private volatile long intervalNanos;
+    private final LongAdder count = new LongAdder();
+    private final AtomicLong intervalStartNanos = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param description what is counted, e.g. "inserts scheduled"
+     */
+    public SampledLogger(Logger logger, String description, long interval, TimeUnit unit)
+    {
+        this.logger = logger;
+        this.description = description;
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    public void log(String message)
+    {
+        count.increment();
+        if (logger.isDebugEnabled())
+        {
+            logger.debug(message);
+        }
+        long start = intervalStartNanos.get();
+        long now = System.nanoTime();
+        if (now - start >= intervalNanos && intervalStartNanos.compareAndSet(start, now))
+        {
+            summarize(now - start, message);
+        }
+    }
+
+    public void log(String format, Object argument)
+    {
+        count.increment();
+        if (logger.isDebugEnabled())
+        {
+            logger.debug(format, argument);
+        }
+        long start = intervalStartNanos.get();
+        long now = System.nanoTime();
+        if (now - start >= intervalNanos && intervalStartNanos.compareAndSet(start, now))
+        {
+            summarize(now - start, MessageFormatter.format(format, argument).getMessage());
+        }
+    }
+
+    private void summarize(long elapsedNanos, String sample)
+    {
+        if (logger.isInfoEnabled())
+        {
+            logger.info("{} {} in the last {}ms, latest: {}", count.sumThenReset(), description,
+                    TimeUnit.NANOSECONDS.toMillis(elapsedNanos), sample);
+        }
+    }
+
+    /**
+     * Changes the summary interval, starting with the current interval.
+     */
+    public void setInterval(long interval, TimeUnit unit)
+    {
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Logs the events counted since the last summary, if any.
+     */
+    public void flush()
+    {
+        long now = System.nanoTime();
+        long start = intervalStartNanos.getAndSet(now);
+        long events = count.sumThenReset();
+        if (events > 0)
+        {
+            logger.info("{} {} in the last {}ms", events, description, TimeUnit.NANOSECONDS.toMillis(now - start));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency of every command the Mongo client sends, per command name, fed as a {@link CommandListener}.
+ * The latency is the driver's own measurement from sending the command until the reply was decoded.
+ */
+public class CommandMetrics implements CommandListener, CommandMetricsMBean, RollingMetrics
+{
+    private static final String INSERT = "insert";
+
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private Map<String, HistogramSnapshot> lastLatencies = new TreeMap<>();
+
+    private volatile Map<String, HistogramSnapshot> intervalLatencies = new TreeMap<>();
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event)
+    {
+        succeeded.increment();
+        record(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event)
+    {
+        failed.increment();
+        record(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private void record(String command, long nanos)
+    {
+        LatencyHistogram histogram = latencies.get(command);
+        if (histogram == null)
+        {
+            histogram = latencies.computeIfAbsent(command, name -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    @Override
+    public synchronized String roll()
+    {
+        Map<String, HistogramSnapshot> current = new TreeMap<>();
+        Map<String, HistogramSnapshot> interval = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet())
+        {
+            HistogramSnapshot snapshot = entry.getValue().snapshot();
+            HistogramSnapshot last = lastLatencies.get(entry.getKey());
+            current.put(entry.getKey(), snapshot);
+            interval.put(entry.getKey(), last == null ? snapshot : snapshot.minus(last));
+        }
+        lastLatencies = current;
+        intervalLatencies = interval;
+        return String.format("commands: ok: %d, failed: %d | %s", getSucceeded(), getFailed(), getLatencySummary());
+    }
+
+    private static double millis(long nanos)
+    {
+        return nanos / 1_000_000d;
+    }
+
+    private long insertMicros(double percentile)
+    {
+        HistogramSnapshot insert = intervalLatencies.get(INSERT);
+        return insert == null ? 0 : TimeUnit.NANOSECONDS.toMicros(insert.getValueAtPercentile(percentile));
+    }
+
+    @Override
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getInsertLatencyP50Micros() {
+        return insertMicros(50);
+    }
+
+    @Override
+    public long getInsertLatencyP99Micros() {
+        return insertMicros(99);
+    }
+
+    @Override
+    public long getInsertLatencyMaxMicros() {
+        HistogramSnapshot insert = intervalLatencies.get(INSERT);
+        return insert == null ? 0 : TimeUnit.NANOSECONDS.toMicros(insert.getMax());
+    }
+
+    @Override
+    public String getLatencySummary()
+    {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, HistogramSnapshot> entry : intervalLatencies.entrySet())
+        {
+            HistogramSnapshot latency = entry.getValue();
+            if (latency.getCount() == 0)
+            {
+                continue;
+            }
+            if (summary.length() > 0)
+            {
+                summary.append(", ");
+            }
+            summary.append(String.format("%s ms p50: %.2f p99: %.2f max: %.2f", entry.getKey(),
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                    millis(latency.getMax())));
+        }
+        return summary.length() > 0 ? summary.toString() : "none";
+    }
+}
@@ -0,0 +1,23 @@
+package metrics;
+
+/**
+ * JMX view of {@link CommandMetrics}. Counters are totals since start, latencies (in microseconds)
+ * cover the last reporting interval.
+ */
+public interface CommandMetricsMBean
+{
+    long getSucceeded();
+
+    long getFailed();
+
+    long getInsertLatencyP50Micros();
+
+    long getInsertLatencyP99Micros();
+
+    long getInsertLatencyMaxMicros();
+
+    /**
+     * Latency of every command seen in the last interval, one "command: p50 p99 max" entry each.
+     */
+    String getLatencySummary();
+}
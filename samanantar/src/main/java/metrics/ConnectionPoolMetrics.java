@@ -0,0 +1,211 @@
+package metrics;
+
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckOutStartedEvent;
+import com.mongodb.event.ConnectionCheckedInEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionClosedEvent;
+import com.mongodb.event.ConnectionCreatedEvent;
+import com.mongodb.event.ConnectionPoolClearedEvent;
+import com.mongodb.event.ConnectionPoolCreatedEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool usage of the Mongo client, fed as a {@link ConnectionPoolListener}.
+ *
+ * The sync driver raises the check out started and checked out events on the thread asking for a
+ * connection, so the time in between is how long that thread waited for the pool. Connections in use
+ * and threads waiting are summed over the pools of all servers, the peaks of an interval show how close
+ * the pool came to being exhausted.
+ */
+public class ConnectionPoolMetrics implements ConnectionPoolListener, ConnectionPoolMetricsMBean, RollingMetrics
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionPoolMetrics.class);
+
+    private final ThreadLocal<long[]> checkoutStartNanos = ThreadLocal.withInitial(() -> new long[1]);
+    private final LatencyHistogram checkoutWait = new LatencyHistogram();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger peakInUse = new AtomicInteger();
+    private final AtomicInteger peakWaiting = new AtomicInteger();
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder failedCheckouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder connectionsClosed = new LongAdder();
+
+    private HistogramSnapshot lastCheckoutWait = HistogramSnapshot.empty();
+
+    private volatile int maxSize;
+    private volatile int intervalPeakInUse;
+    private volatile int intervalPeakWaiting;
+    private volatile HistogramSnapshot intervalCheckoutWait = HistogramSnapshot.empty();
+
+    @Override
+    public void connectionPoolCreated(ConnectionPoolCreatedEvent event)
+    {
+        maxSize = event.getSettings().getMaxSize();
+        LOGGER.info("Connection pool created for {} with max size: {}, max wait: {}ms", event.getServerId().getAddress(),
+                maxSize, event.getSettings().getMaxWaitTime(TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void connectionPoolCleared(ConnectionPoolClearedEvent event)
+    {
+        LOGGER.warn("Connection pool cleared for {}", event.getServerId().getAddress());
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event)
+    {
+        checkoutStartNanos.get()[0] = System.nanoTime();
+        updatePeak(peakWaiting, waiting.incrementAndGet());
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event)
+    {
+        checkoutWait.record(System.nanoTime() - checkoutStartNanos.get()[0]);
+        waiting.decrementAndGet();
+        checkouts.increment();
+        updatePeak(peakInUse, inUse.incrementAndGet());
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event)
+    {
+        checkoutWait.record(System.nanoTime() - checkoutStartNanos.get()[0]);
+        waiting.decrementAndGet();
+        failedCheckouts.increment();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event)
+    {
+        inUse.decrementAndGet();
+    }
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event)
+    {
+        connectionsCreated.increment();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event)
+    {
+        connectionsClosed.increment();
+    }
+
+    private static void updatePeak(AtomicInteger peak, int value)
+    {
+        int current = peak.get();
+        while (value > current && !peak.compareAndSet(current, value))
+        {
+            current = peak.get();
+        }
+    }
+
+    @Override
+    public synchronized String roll()
+    {
+        HistogramSnapshot wait = checkoutWait.snapshot();
+        intervalCheckoutWait = wait.minus(lastCheckoutWait);
+        lastCheckoutWait = wait;
+        //the next interval starts from what is in use right now
+        intervalPeakInUse = peakInUse.getAndSet(inUse.get());
+        intervalPeakWaiting = peakWaiting.getAndSet(waiting.get());
+        return summary();
+    }
+
+    private String summary()
+    {
+        HistogramSnapshot wait = intervalCheckoutWait;
+        return String.format("pool: max size: %d, in use: %d, peak in use: %d, peak waiting: %d, checkouts: %d,"
+                        + " failed checkouts: %d, connections: %d | checkout wait ms p50: %.2f p99: %.2f max: %.2f",
+                getMaxSize(), getInUse(), getPeakInUse(), getPeakWaiting(), getCheckouts(), getFailedCheckouts(),
+                getConnectionsCreated() - getConnectionsClosed(), millis(wait.getValueAtPercentile(50)),
+                millis(wait.getValueAtPercentile(99)), millis(wait.getMax()));
+    }
+
+    private static double millis(long nanos)
+    {
+        return nanos / 1_000_000d;
+    }
+
+    private static long micros(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    @Override
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    @Override
+    public int getPeakInUse() {
+        return intervalPeakInUse;
+    }
+
+    @Override
+    public int getPeakWaiting() {
+        return intervalPeakWaiting;
+    }
+
+    @Override
+    public double getPeakSaturation() {
+        int max = maxSize;
+        return max > 0 ? (double) intervalPeakInUse / max : 0;
+    }
+
+    @Override
+    public long getCheckouts() {
+        return checkouts.sum();
+    }
+
+    @Override
+    public long getFailedCheckouts() {
+        return failedCheckouts.sum();
+    }
+
+    @Override
+    public long getConnectionsCreated() {
+        return connectionsCreated.sum();
+    }
+
+    @Override
+    public long getConnectionsClosed() {
+        return connectionsClosed.sum();
+    }
+
+    @Override
+    public long getCheckoutWaitP50Micros() {
+        return micros(intervalCheckoutWait.getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getCheckoutWaitP99Micros() {
+        return micros(intervalCheckoutWait.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getCheckoutWaitMaxMicros() {
+        return micros(intervalCheckoutWait.getMax());
+    }
+}
@@ -0,0 +1,34 @@
+package metrics;
+
+/**
+ * JMX view of {@link ConnectionPoolMetrics}. Gauges are current values, counters are totals since
+ * start, peaks and checkout wait times (in microseconds) cover the last reporting interval.
+ */
+public interface ConnectionPoolMetricsMBean
+{
+    int getMaxSize();
+
+    int getInUse();
+
+    int getWaiting();
+
+    int getPeakInUse();
+
+    int getPeakWaiting();
+
+    double getPeakSaturation();
+
+    long getCheckouts();
+
+    long getFailedCheckouts();
+
+    long getConnectionsCreated();
+
+    long getConnectionsClosed();
+
+    long getCheckoutWaitP50Micros();
+
+    long getCheckoutWaitP99Micros();
+
+    long getCheckoutWaitMaxMicros();
+}
@@ -0,0 +1,135 @@
+package metrics;
+
+import util.ConcurrentUtils;
+import util.ElasticThreadPoolExecutor;
+import util.ExecutorStats;
+import util.InstrumentedExecutor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Thread pools created through {@link ConcurrentUtils}: their size, active threads and queue depth, and per
+ * interval the rejections and how long tasks waited for a thread compared to how long they ran. A wait
+ * that grows next to a steady run time means the pool is too small for its load. Elastic pools add how
+ * they are sized and why.
+ */
+public class ExecutorMetrics implements ExecutorMetricsMBean, RollingMetrics
+{
+    private Map<String, ExecutorStats> last = new HashMap<>();
+
+    private volatile String summary = "";
+
+    @Override
+    public synchronized String roll()
+    {
+        Map<String, ExecutorStats> current = new HashMap<>();
+        StringJoiner joiner = new StringJoiner(" | ");
+        for (InstrumentedExecutor executor : ConcurrentUtils.registry().executors())
+        {
+            ExecutorStats stats = executor.getStats();
+            current.put(stats.getName(), stats);
+            ExecutorStats previous = last.get(stats.getName());
+            long completed = stats.getCompleted() - (previous == null ? 0 : previous.getCompleted());
+            long waitNanos = stats.getWaitNanos() - (previous == null ? 0 : previous.getWaitNanos());
+            long runNanos = stats.getRunNanos() - (previous == null ? 0 : previous.getRunNanos());
+            long rejected = stats.getRejected() - (previous == null ? 0 : previous.getRejected());
+            joiner.add(String.format("%s: %d threads, %d active, %d queued, %d rejected, wait %.2fms, run %.2fms",
+                    stats.getName(), stats.getPoolSize(), stats.getActiveThreads(), stats.getQueueDepth(), rejected,
+                    mean(waitNanos, completed), mean(runNanos, completed)) + sizing(executor));
+        }
+        last = current;
+        summary = joiner.toString();
+        return "executors: " + summary;
+    }
+
+    private static String sizing(InstrumentedExecutor executor)
+    {
+        if (!(executor instanceof ElasticThreadPoolExecutor))
+        {
+            return "";
+        }
+        ElasticThreadPoolExecutor elastic = (ElasticThreadPoolExecutor) executor;
+        return String.format(", sized %d of %d..%d, %.0f%% on CPU, %d grows, %d shrinks, last: %s",
+                elastic.getTargetSize(), elastic.getMinThreads(), elastic.getMaxThreads(), elastic.getCpuShare() * 100,
+                elastic.getGrows(), elastic.getShrinks(), elastic.getLastDecision());
+    }
+
+    private static double mean(long nanos, long count)
+    {
+        return count == 0 ? 0 : nanos / 1_000_000d / count;
+    }
+
+    @Override
+    public int getExecutors()
+    {
+        return ConcurrentUtils.registry().executors().size();
+    }
+
+    @Override
+    public int getActiveThreads()
+    {
+        int active = 0;
+        for (ExecutorStats stats : ConcurrentUtils.registry().snapshot())
+        {
+            active += stats.getActiveThreads();
+        }
+        return active;
+    }
+
+    @Override
+    public long getQueueDepth()
+    {
+        long queued = 0;
+        for (ExecutorStats stats : ConcurrentUtils.registry().snapshot())
+        {
+            queued += stats.getQueueDepth();
+        }
+        return queued;
+    }
+
+    @Override
+    public long getCompleted()
+    {
+        long completed = 0;
+        for (ExecutorStats stats : ConcurrentUtils.registry().snapshot())
+        {
+            completed += stats.getCompleted();
+        }
+        return completed;
+    }
+
+    @Override
+    public long getRejected()
+    {
+        long rejected = 0;
+        for (ExecutorStats stats : ConcurrentUtils.registry().snapshot())
+        {
+            rejected += stats.getRejected();
+        }
+        return rejected;
+    }
+
+    @Override
+    public long getResizes()
+    {
+        long resizes = 0;
+        for (InstrumentedExecutor executor : ConcurrentUtils.registry().executors())
+        {
+            if (executor instanceof ElasticThreadPoolExecutor)
+            {
+                resizes += ((ElasticThreadPoolExecutor) executor).getGrows()
+                        + ((ElasticThreadPoolExecutor) executor).getShrinks();
+            }
+        }
+        return resizes;
+    }
+
+    @Override
+    public String getExecutorSummary()
+    {
+        return summary;
+    }
+}
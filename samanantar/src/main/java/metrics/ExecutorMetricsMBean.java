@@ -0,0 +1,28 @@
+package metrics;
+
+/**
+ * JMX view of {@link ExecutorMetrics}. Gauges are current values summed over all executors, counters are
+ * totals since start.
+ */
+public interface ExecutorMetricsMBean
+{
+    int getExecutors();
+
+    int getActiveThreads();
+
+    long getQueueDepth();
+
+    long getCompleted();
+
+    long getRejected();
+
+    /**
+     * Grows and shrinks of all elastic pools.
+     */
+    long getResizes();
+
+    /**
+     * Every executor in the last interval, one "name: threads active queued rejected wait run" entry each.
+     */
+    String getExecutorSummary();
+}
@@ -0,0 +1,84 @@
+package metrics;
+
+/**
+ * Point-in-time copy of a {@link LatencyHistogram}. Subtracting an earlier snapshot gives the
+ * distribution of just the values recorded in between.
+ */
+public class HistogramSnapshot
+{
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    //exact for cumulative snapshots, the bucket bound for interval snapshots
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long sum, long max)
+    {
+        this.counts = counts;
+        long total = 0;
+        for (long bucket : counts)
+        {
+            total += bucket;
+        }
+        this.count = total;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public static HistogramSnapshot empty()
+    {
+        return new HistogramSnapshot(new long[LatencyHistogram.BUCKET_COUNT], 0, 0);
+    }
+
+    public HistogramSnapshot minus(HistogramSnapshot earlier)
+    {
+        long[] interval = new long[counts.length];
+        int highest = -1;
+        for (int i = 0; i < counts.length; i++)
+        {
+            interval[i] = counts[i] - earlier.counts[i];
+            if (interval[i] > 0)
+            {
+                highest = i;
+            }
+        }
+        long intervalMax = highest < 0 ? 0 : Math.min(max, LatencyHistogram.bucketUpperBound(highest));
+        return new HistogramSnapshot(interval, sum - earlier.sum, intervalMax);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean()
+    {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return upper bound of the bucket holding the percentile, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= rank)
+            {
+                return Math.min(LatencyHistogram.bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+}
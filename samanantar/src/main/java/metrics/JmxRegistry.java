@@ -0,0 +1,66 @@
+package metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registers the application's MBeans with the platform MBean server under the "samanantar" domain.
+ */
+public class JmxRegistry
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmxRegistry.class);
+
+    public static final String DOMAIN = "samanantar";
+
+    private JmxRegistry()
+    {
+    }
+
+    /**
+     * Registers an MBean as samanantar:type=&lt;type&gt;, replacing one registered earlier under the same name.
+     */
+    public static void register(String type, Object mbean)
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = objectName(type);
+            if (server.isRegistered(name))
+            {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+        }
+        catch (JMException e)
+        {
+            LOGGER.error("Could not register MBean {}: {}", type, e.toString());
+        }
+    }
+
+    public static void unregister(String type)
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = objectName(type);
+            if (server.isRegistered(name))
+            {
+                server.unregisterMBean(name);
+            }
+        }
+        catch (JMException e)
+        {
+            LOGGER.error("Could not unregister MBean {}: {}", type, e.toString());
+        }
+    }
+
+    private static ObjectName objectName(String type) throws JMException
+    {
+        return new ObjectName(DOMAIN + ":type=" + type);
+    }
+}
@@ -0,0 +1,92 @@
+package metrics;
+
+import config.MetricsConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.ConcurrentUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes metrics over JMX and logs a one-line summary of each every reporting interval.
+ */
+public class MetricsReporter implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetricsReporter.class);
+
+    public static final String WRITE_METRICS = "WriteMetrics";
+    public static final String CONNECTION_POOL_METRICS = "ConnectionPoolMetrics";
+    public static final String COMMAND_METRICS = "CommandMetrics";
+    public static final String QUERY_CACHE_METRICS = "QueryCache";
+    public static final String PET_AGGREGATES = "PetAggregates";
+    public static final String UNIQUE_NAMES = "UniqueNames";
+    public static final String WRITE_LIMITER = "WriteLimiter";
+    public static final String EXECUTOR_METRICS = "Executors";
+
+    private final MetricsConfiguration configuration;
+    //reported in the order they were registered
+    private final Map<String, RollingMetrics> metrics = new LinkedHashMap<>();
+    private final ScheduledExecutorService scheduler = ConcurrentUtils.newScheduledThreadPool("metrics-reporter", 1);
+
+    public MetricsReporter(MetricsConfiguration configuration)
+    {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Adds metrics to report, published over JMX as samanantar:type=&lt;type&gt;. The object has to
+     * implement a standard MBean interface.
+     */
+    public synchronized void register(String type, RollingMetrics rollingMetrics)
+    {
+        metrics.put(type, rollingMetrics);
+        if (configuration.isJmxEnabled())
+        {
+            JmxRegistry.register(type, rollingMetrics);
+        }
+    }
+
+    public void start()
+    {
+        long interval = configuration.getReportIntervalSeconds();
+        if (interval > 0)
+        {
+            scheduler.scheduleAtFixedRate(() -> report(""), interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private synchronized void report(String prefix)
+    {
+        for (RollingMetrics rollingMetrics : metrics.values())
+        {
+            try
+            {
+                LOGGER.info("{}{}", prefix, rollingMetrics.roll());
+            }
+            catch (RuntimeException ex)
+            {
+                LOGGER.error("Could not report metrics: {}", ex.toString());
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        ConcurrentUtils.stop(scheduler);
+        report("Final ");
+        if (configuration.isJmxEnabled())
+        {
+            synchronized (this)
+            {
+                for (String type : metrics.keySet())
+                {
+                    JmxRegistry.unregister(type);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package metrics;
+
+/**
+ * Metrics that are reported per interval by the {@link MetricsReporter}.
+ */
+public interface RollingMetrics
+{
+    /**
+     * Closes the current interval. Called by a single reporting thread.
+     * @return summary of the interval that was just closed
+     */
+    String roll();
+}
@@ -0,0 +1,197 @@
+package metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import writer.BatchListener;
+import writer.BatchResult;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and counters for the write path, fed as a {@link BatchListener}.
+ *
+ * Operation latency is measured from the moment a document was queued, or appended to the spool,
+ * until its batch completed, batch latency is the duration of the insertMany call. {@link #roll()}
+ * closes a reporting interval; the JMX rates and percentiles always describe the last closed interval.
+ * The time from JVM start until the first document was written is logged once and kept as time to
+ * first insert.
+ */
+public class WriteMetrics implements BatchListener<Object>, WriteMetricsMBean, RollingMetrics
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteMetrics.class);
+
+    private final AtomicLong timeToFirstInsertMillis = new AtomicLong(-1);
+    private final LatencyHistogram operationLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private HistogramSnapshot lastOperationSnapshot = HistogramSnapshot.empty();
+    private HistogramSnapshot lastBatchSnapshot = HistogramSnapshot.empty();
+    private long lastOperations;
+    private long lastRollNanos = System.nanoTime();
+
+    private volatile HistogramSnapshot intervalOperationLatency = HistogramSnapshot.empty();
+    private volatile HistogramSnapshot intervalBatchLatency = HistogramSnapshot.empty();
+    private volatile double opsPerSecond;
+
+    @Override
+    public void onBatch(List<?> batch, BatchResult result)
+    {
+        batches.increment();
+        if (result.getInserted() > 0 && timeToFirstInsertMillis.get() < 0)
+        {
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            if (timeToFirstInsertMillis.compareAndSet(-1, uptime))
+            {
+                LOGGER.info("First insert written {}ms after JVM start", uptime);
+            }
+        }
+        succeeded.add(result.getInserted());
+        failed.add(result.getSize() - result.getInserted());
+        batchLatency.record(result.getElapsedNanos());
+        long[] enqueuedNanos = result.getEnqueuedNanos();
+        if (enqueuedNanos != null)
+        {
+            long completed = result.getCompletedNanos();
+            for (long enqueued : enqueuedNanos)
+            {
+                operationLatency.record(completed - enqueued);
+            }
+        }
+    }
+
+    @Override
+    public void onRetry(List<?> batch, Throwable failure, int attempt)
+    {
+        retries.increment();
+    }
+
+    @Override
+    public synchronized String roll()
+    {
+        long now = System.nanoTime();
+        HistogramSnapshot operations = operationLatency.snapshot();
+        HistogramSnapshot batchSnapshot = batchLatency.snapshot();
+        intervalOperationLatency = operations.minus(lastOperationSnapshot);
+        intervalBatchLatency = batchSnapshot.minus(lastBatchSnapshot);
+        long total = succeeded.sum() + failed.sum();
+        opsPerSecond = (total - lastOperations) * 1_000_000_000d / Math.max(1, now - lastRollNanos);
+        lastOperationSnapshot = operations;
+        lastBatchSnapshot = batchSnapshot;
+        lastOperations = total;
+        lastRollNanos = now;
+        return summary();
+    }
+
+    private String summary()
+    {
+        HistogramSnapshot operations = intervalOperationLatency;
+        HistogramSnapshot batchSnapshot = intervalBatchLatency;
+        return String.format("writes: %.1f ops/s, ok: %d, failed: %d, retries: %d, batches: %d"
+                        + " | op ms p50: %.2f p99: %.2f p999: %.2f max: %.2f"
+                        + " | batch ms p50: %.2f p99: %.2f max: %.2f",
+                opsPerSecond, getSucceeded(), getFailed(), getRetries(), getBatches(),
+                millis(operations.getValueAtPercentile(50)), millis(operations.getValueAtPercentile(99)),
+                millis(operations.getValueAtPercentile(99.9)), millis(operations.getMax()),
+                millis(batchSnapshot.getValueAtPercentile(50)), millis(batchSnapshot.getValueAtPercentile(99)),
+                millis(batchSnapshot.getMax()));
+    }
+
+    private static double millis(long nanos)
+    {
+        return nanos / 1_000_000d;
+    }
+
+    private static long micros(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Cumulative operation latency since start, in nanoseconds.
+     */
+    public HistogramSnapshot getOperationLatency()
+    {
+        return operationLatency.snapshot();
+    }
+
+    /**
+     * Cumulative batch latency since start, in nanoseconds.
+     */
+    public HistogramSnapshot getBatchLatency()
+    {
+        return batchLatency.snapshot();
+    }
+
+    @Override
+    public long getTimeToFirstInsertMillis() {
+        return timeToFirstInsertMillis.get();
+    }
+
+    @Override
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    @Override
+    public double getOpsPerSecond() {
+        return opsPerSecond;
+    }
+
+    @Override
+    public long getOperationLatencyP50Micros() {
+        return micros(intervalOperationLatency.getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getOperationLatencyP99Micros() {
+        return micros(intervalOperationLatency.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getOperationLatencyP999Micros() {
+        return micros(intervalOperationLatency.getValueAtPercentile(99.9));
+    }
+
+    @Override
+    public long getOperationLatencyMaxMicros() {
+        return micros(intervalOperationLatency.getMax());
+    }
+
+    @Override
+    public long getBatchLatencyP50Micros() {
+        return micros(intervalBatchLatency.getValueAtPercentile(50));
+    }
+
+    @Override
+    public long getBatchLatencyP99Micros() {
+        return micros(intervalBatchLatency.getValueAtPercentile(99));
+    }
+
+    @Override
+    public long getBatchLatencyMaxMicros() {
+        return micros(intervalBatchLatency.getMax());
+    }
+}
@@ -0,0 +1,37 @@
+package metrics;
+
+/**
+ * JMX view of {@link WriteMetrics}. Counters are totals since start, rates and latencies (in
+ * microseconds) cover the last reporting interval.
+ */
+public interface WriteMetricsMBean
+{
+    /**
+     * Milliseconds from JVM start until the first document was written, -1 until then.
+     */
+    long getTimeToFirstInsertMillis();
+
+    long getSucceeded();
+
+    long getFailed();
+
+    long getRetries();
+
+    long getBatches();
+
+    double getOpsPerSecond();
+
+    long getOperationLatencyP50Micros();
+
+    long getOperationLatencyP99Micros();
+
+    long getOperationLatencyP999Micros();
+
+    long getOperationLatencyMaxMicros();
+
+    long getBatchLatencyP50Micros();
+
+    long getBatchLatencyP99Micros();
+
+    long getBatchLatencyMaxMicros();
+}
@@ -0,0 +1,27 @@
+package model;
+
+public class Owner
+{
+    private final String name;
+    private final String address;
+
+    public Owner(String name, String address)
+    {
+        this.name = name;
+        this.address = address;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Owner{name='" + name + "', address='" + address + "'}";
+    }
+}
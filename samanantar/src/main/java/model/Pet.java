@@ -0,0 +1,96 @@
+package model;
+
+import org.bson.RawBsonDocument;
+import org.bson.types.ObjectId;
+
+/**
+ * A pet as stored in the pets collection. Encoded and decoded by {@link codec.PetCodec}.
+ */
+public class Pet
+{
+    private ObjectId id;
+    private String name;
+    private int weight;
+    private int age;
+    private String color;
+    private Owner owner;
+
+    //BSON form of this pet when it was encoded ahead of the insert, see codec.PetEncoder
+    private RawBsonDocument encoded;
+
+    public Pet()
+    {
+    }
+
+    public Pet(String name, int weight, int age, String color, Owner owner)
+    {
+        this.name = name;
+        this.weight = weight;
+        this.age = age;
+        this.color = color;
+        this.owner = owner;
+    }
+
+    public ObjectId getId() {
+        return id;
+    }
+
+    public void setId(ObjectId id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public void setWeight(int weight) {
+        this.weight = weight;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public void setAge(int age) {
+        this.age = age;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public void setColor(String color) {
+        this.color = color;
+    }
+
+    public Owner getOwner() {
+        return owner;
+    }
+
+    public void setOwner(Owner owner) {
+        this.owner = owner;
+    }
+
+    public RawBsonDocument getEncoded() {
+        return encoded;
+    }
+
+    public void setEncoded(RawBsonDocument encoded) {
+        this.encoded = encoded;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Pet{id=" + id + ", name='" + name + "', weight=" + weight + ", age=" + age
+                + ", color='" + color + "', owner=" + owner + "}";
+    }
+}
@@ -0,0 +1,381 @@
+package repository;
+
+import codec.PetCodec;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import model.Pet;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores pets in bucket documents that each hold up to a maximum number of pets of one color inserted
+ * in the same time window:
+ *
+ *   {color: "red", window: ISODate(...), count: 3, pets: [{_id: ..., name: ..., ...}, ...]}
+ *
+ * A batch of pets becomes one upsert per color, which appends the pets to a bucket of the current
+ * window with room for them, or starts a new bucket. Compared with a document per pet, this means far
+ * fewer documents, index entries on the bucket key and write operations. Queries unpack the buckets
+ * on the server and return the pets as if they were stored flat.
+ *
+ * Pets without a color are stored in buckets with a null color, which queries without a color see.
+ * Pets are grouped by color, so an ordered insert is ordered by bucket rather than by pet. Appending
+ * does not detect pets that are already stored, so pets replayed from the spool after a crash may be
+ * stored twice.
+ */
+public class BucketedPetRepository implements PetRepository
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(BucketedPetRepository.class);
+
+    static final String COLOR = "color";
+    static final String WINDOW = "window";
+    static final String COUNT = "count";
+    static final String PETS = "pets";
+
+    //lookups by name and owner still need an entry per pet, the bucket key needs one per bucket
+    private static final List<IndexModel> INDEXES = Arrays.asList(
+            new IndexModel(Indexes.ascending(COLOR, WINDOW)),
+            new IndexModel(Indexes.ascending(PETS + "." + PetCodec.NAME)),
+            new IndexModel(Indexes.ascending(PETS + "." + PetCodec.OWNER + "." + PetCodec.OWNER_NAME)));
+
+    private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+    private static final BulkWriteOptions ORDERED = new BulkWriteOptions().ordered(true);
+    private static final BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private final MongoCollection<BsonDocument> collection;
+    private final long windowMillis;
+    private final int maxBucketSize;
+    private final PetCodec petCodec = new PetCodec();
+
+    public BucketedPetRepository(MongoCollection<BsonDocument> collection, long windowSeconds, int maxBucketSize)
+    {
+        this.collection = collection;
+        this.windowMillis = TimeUnit.SECONDS.toMillis(windowSeconds);
+        this.maxBucketSize = maxBucketSize;
+    }
+
+    @Override
+    public void insertMany(List<? extends Pet> pets, boolean ordered)
+    {
+        List<WriteModel<BsonDocument>> updates = new ArrayList<>();
+        //indexes into pets of the pets appended by each update
+        List<List<Integer>> updatedPets = new ArrayList<>();
+        long window = System.currentTimeMillis() / windowMillis * windowMillis;
+        for (Map.Entry<String, List<Integer>> group : groupByColor(pets).entrySet())
+        {
+            List<Integer> indexes = group.getValue();
+            for (int from = 0; from < indexes.size(); from += maxBucketSize)
+            {
+                List<Integer> chunk = indexes.subList(from, Math.min(indexes.size(), from + maxBucketSize));
+                List<BsonDocument> documents = new ArrayList<>(chunk.size());
+                for (int index : chunk)
+                {
+                    documents.add(encode(pets.get(index)));
+                }
+                updates.add(append(group.getKey(), window, documents));
+                updatedPets.add(chunk);
+            }
+        }
+        try
+        {
+            collection.bulkWrite(updates, ordered ? ORDERED : UNORDERED);
+        }
+        catch (MongoBulkWriteException ex)
+        {
+            throw perPet(ex, updatedPets, ordered);
+        }
+    }
+
+    private Map<String, List<Integer>> groupByColor(List<? extends Pet> pets)
+    {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < pets.size(); i++)
+        {
+            Pet pet = pets.get(i);
+            if (pet.getId() == null)
+            {
+                pet.setId(new ObjectId());
+            }
+            //pets without a color share buckets whose color is null, which unpack to pets without a color again
+            groups.computeIfAbsent(decoded(pet).getColor(), color -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+
+    /**
+     * Pets replayed from the spool carry nothing but their id and BSON, those are decoded to find their color.
+     */
+    private Pet decoded(Pet pet)
+    {
+        RawBsonDocument encoded = pet.getEncoded();
+        if (encoded == null || pet.getName() != null)
+        {
+            return pet;
+        }
+        try (BsonBinaryReader reader = new BsonBinaryReader(encoded.getByteBuffer().asNIO()))
+        {
+            return petCodec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    /**
+     * The pet as stored in a bucket, without the color that the bucket holds.
+     */
+    private BsonDocument encode(Pet pet)
+    {
+        BsonDocument document = new BsonDocument();
+        petCodec.encode(new BsonDocumentWriter(document), pet, ENCODER_CONTEXT);
+        document.remove(PetCodec.COLOR);
+        return document;
+    }
+
+    /**
+     * Appends to a bucket of the color and window that still has room, or creates one. The condition on
+     * the count is not an equality, so an upsert copies only color and window into the new bucket.
+     */
+    UpdateOneModel<BsonDocument> append(String color, long window, List<BsonDocument> documents)
+    {
+        Bson filter = Filters.and(Filters.eq(COLOR, color), Filters.eq(WINDOW, new BsonDateTime(window)),
+                Filters.lte(COUNT, maxBucketSize - documents.size()));
+        Bson update = Updates.combine(Updates.pushEach(PETS, documents), Updates.inc(COUNT, documents.size()));
+        return new UpdateOneModel<>(filter, update, UPSERT);
+    }
+
+    /**
+     * Reports the failed updates of a bulk write as failures of the pets they were appending, which is
+     * what the callers of insertMany expect.
+     */
+    private static MongoBulkWriteException perPet(MongoBulkWriteException ex, List<List<Integer>> updatedPets,
+                                                  boolean ordered)
+    {
+        boolean[] failed = new boolean[updatedPets.size()];
+        List<BulkWriteError> errors = new ArrayList<>();
+        int firstFailure = updatedPets.size();
+        for (BulkWriteError error : ex.getWriteErrors())
+        {
+            failed[error.getIndex()] = true;
+            firstFailure = Math.min(firstFailure, error.getIndex());
+            for (int pet : updatedPets.get(error.getIndex()))
+            {
+                errors.add(new BulkWriteError(error.getCode(), error.getMessage(), error.getDetails(), pet));
+            }
+        }
+        int inserted = 0;
+        for (int i = 0; i < updatedPets.size(); i++)
+        {
+            //an ordered bulk write stops at the first failure
+            if (!failed[i] && (!ordered || i < firstFailure))
+            {
+                inserted += updatedPets.get(i).size();
+            }
+        }
+        //pets are appended to buckets, none is a document of its own with an _id to report as inserted
+        return new MongoBulkWriteException(BulkWriteResult.acknowledged(inserted, 0, 0, 0, new ArrayList<>(),
+                new ArrayList<>()), errors, ex.getWriteConcernError(), ex.getServerAddress());
+    }
+
+    @Override
+    public List<Pet> find(PetQuery query)
+    {
+        return unpack(query).into(new ArrayList<>());
+    }
+
+    @Override
+    public PetCursor stream(PetQuery query)
+    {
+        MongoCursor<Pet> cursor = unpack(query).iterator();
+        return new PetCursor()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public Pet next()
+            {
+                return cursor.next();
+            }
+
+            @Override
+            public void close()
+            {
+                cursor.close();
+            }
+        };
+    }
+
+    private AggregateIterable<Pet> unpack(PetQuery query)
+    {
+        List<Bson> pipeline = unpackPipeline(query);
+        if (query.getProjection() != null)
+        {
+            List<String> fields = new ArrayList<>();
+            for (PetField field : query.getProjection())
+            {
+                fields.add(field.getBsonName());
+            }
+            pipeline.add(Aggregates.project(Projections.include(fields)));
+        }
+        if (query.getLimit() > 0)
+        {
+            pipeline.add(Aggregates.limit(query.getLimit()));
+        }
+        AggregateIterable<Pet> iterable = collection.withDocumentClass(Pet.class).aggregate(pipeline);
+        if (query.getBatchSize() > 0)
+        {
+            iterable.batchSize(query.getBatchSize());
+        }
+        return iterable;
+    }
+
+    /**
+     * Selects the buckets that contain a matching pet, unwinds them and turns every matching pet back
+     * into a flat pet document with its bucket's color.
+     */
+    static List<Bson> unpackPipeline(PetQuery query)
+    {
+        List<Bson> pipeline = new ArrayList<>();
+        Bson bucketFilter = bucketFilter(query);
+        if (bucketFilter != null)
+        {
+            pipeline.add(Aggregates.match(bucketFilter));
+        }
+        pipeline.add(Aggregates.unwind("$" + PETS));
+        List<Bson> petFilters = petFilters(query, PETS + ".");
+        if (!petFilters.isEmpty())
+        {
+            pipeline.add(Aggregates.match(Filters.and(petFilters)));
+        }
+        pipeline.add(Aggregates.replaceRoot(new Document("$mergeObjects",
+                Arrays.asList("$" + PETS, new Document(PetCodec.COLOR, "$" + COLOR)))));
+        return pipeline;
+    }
+
+    private static Bson bucketFilter(PetQuery query)
+    {
+        List<Bson> filters = new ArrayList<>();
+        if (query.getColor() != null)
+        {
+            filters.add(Filters.eq(COLOR, query.getColor()));
+        }
+        List<Bson> petFilters = petFilters(query, "");
+        if (!petFilters.isEmpty())
+        {
+            filters.add(Filters.elemMatch(PETS, Filters.and(petFilters)));
+        }
+        return filters.isEmpty() ? null : Filters.and(filters);
+    }
+
+    private static List<Bson> petFilters(PetQuery query, String prefix)
+    {
+        List<Bson> filters = new ArrayList<>();
+        if (query.getName() != null)
+        {
+            filters.add(Filters.eq(prefix + PetCodec.NAME, query.getName()));
+        }
+        if (query.getOwnerName() != null)
+        {
+            filters.add(Filters.eq(prefix + PetCodec.OWNER + "." + PetCodec.OWNER_NAME, query.getOwnerName()));
+        }
+        if (query.getMinAge() != null)
+        {
+            filters.add(Filters.gte(prefix + PetCodec.AGE, query.getMinAge()));
+        }
+        if (query.getMaxAge() != null)
+        {
+            filters.add(Filters.lte(prefix + PetCodec.AGE, query.getMaxAge()));
+        }
+        if (query.getMinWeight() != null)
+        {
+            filters.add(Filters.gte(prefix + PetCodec.WEIGHT, query.getMinWeight()));
+        }
+        if (query.getMaxWeight() != null)
+        {
+            filters.add(Filters.lte(prefix + PetCodec.WEIGHT, query.getMaxWeight()));
+        }
+        return filters;
+    }
+
+    /**
+     * Counts by summing the bucket counts when only the color is given, otherwise by unpacking.
+     */
+    @Override
+    public long count(PetQuery query)
+    {
+        List<Bson> pipeline;
+        if (petFilters(query, "").isEmpty())
+        {
+            pipeline = new ArrayList<>();
+            if (query.getColor() != null)
+            {
+                pipeline.add(Aggregates.match(Filters.eq(COLOR, query.getColor())));
+            }
+            pipeline.add(Aggregates.group(null, Accumulators.sum(COUNT, "$" + COUNT)));
+        }
+        else
+        {
+            pipeline = unpackPipeline(query);
+            pipeline.add(Aggregates.count(COUNT));
+        }
+        BsonDocument result = collection.aggregate(pipeline).first();
+        return result != null ? result.getNumber(COUNT).longValue() : 0;
+    }
+
+    @Override
+    public void createIndexes()
+    {
+        long start = System.nanoTime();
+        List<String> names = collection.createIndexes(INDEXES);
+        LOGGER.info("Indexes on {} ready in {}ms: {}", getName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), names);
+    }
+
+    @Override
+    public String getName()
+    {
+        return collection.getNamespace().getFullName();
+    }
+
+    /**
+     * The client is owned by the ConfigurationService, which closes it.
+     */
+    @Override
+    public void close()
+    {
+    }
+}
@@ -0,0 +1,175 @@
+package repository;
+
+import codec.PetCodec;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteInsert;
+import com.mongodb.bulk.BulkWriteResult;
+import model.Pet;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonObjectId;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps pets in a concurrent hash map keyed by id, for running the application and benchmarks
+ * without a server.
+ *
+ * Inserts behave like Mongo's: missing ids are assigned, and a pet whose id is already stored is
+ * reported as a duplicate key error in a {@link MongoBulkWriteException}, after which an ordered
+ * insert stops. Queries scan all pets and cursors iterate the map directly, without copying it.
+ */
+public class InMemoryPetRepository implements PetRepository
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryPetRepository.class);
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+    private static final ServerAddress ADDRESS = new ServerAddress("in-memory");
+
+    private final ConcurrentHashMap<ObjectId, Pet> pets;
+    private final PetCodec petCodec = new PetCodec();
+
+    public InMemoryPetRepository(int initialCapacity)
+    {
+        this.pets = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    @Override
+    public void insertMany(List<? extends Pet> batch, boolean ordered)
+    {
+        List<BulkWriteInsert> inserted = new ArrayList<>();
+        List<BulkWriteError> errors = null;
+        for (int i = 0; i < batch.size(); i++)
+        {
+            Pet pet = batch.get(i);
+            if (pet.getId() == null)
+            {
+                pet.setId(new ObjectId());
+            }
+            if (pets.putIfAbsent(pet.getId(), stored(pet)) == null)
+            {
+                inserted.add(new BulkWriteInsert(i, new BsonObjectId(pet.getId())));
+                continue;
+            }
+            if (errors == null)
+            {
+                errors = new ArrayList<>();
+            }
+            errors.add(new BulkWriteError(DUPLICATE_KEY_ERROR, "E11000 duplicate key error index: _id_ dup key: "
+                    + pet.getId(), new BsonDocument(), i));
+            if (ordered)
+            {
+                break;
+            }
+        }
+        if (errors != null)
+        {
+            throw new MongoBulkWriteException(BulkWriteResult.acknowledged(inserted.size(), 0, 0, 0,
+                    Collections.emptyList(), inserted), errors, null, ADDRESS);
+        }
+    }
+
+    /**
+     * Pets replayed from the spool carry nothing but their id and BSON, those are decoded so that
+     * queries can see their fields.
+     */
+    private Pet stored(Pet pet)
+    {
+        RawBsonDocument encoded = pet.getEncoded();
+        if (encoded == null || pet.getName() != null)
+        {
+            return pet;
+        }
+        try (BsonBinaryReader reader = new BsonBinaryReader(encoded.getByteBuffer().asNIO()))
+        {
+            return petCodec.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    @Override
+    public List<Pet> find(PetQuery query)
+    {
+        return matching(query).collect(Collectors.toList());
+    }
+
+    @Override
+    public PetCursor stream(PetQuery query)
+    {
+        Iterator<Pet> iterator = matching(query).iterator();
+        return new PetCursor()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Pet next()
+            {
+                return iterator.next();
+            }
+
+            @Override
+            public void close()
+            {
+            }
+        };
+    }
+
+    /**
+     * Matching pets, evaluated lazily while the map is iterated.
+     */
+    private Stream<Pet> matching(PetQuery query)
+    {
+        Stream<Pet> matching = pets.values().stream().filter(query::matches);
+        if (query.getLimit() > 0)
+        {
+            matching = matching.limit(query.getLimit());
+        }
+        return matching.map(query::project);
+    }
+
+    @Override
+    public long count(PetQuery query)
+    {
+        if (query.isEmpty())
+        {
+            return pets.mappingCount();
+        }
+        return pets.values().stream().filter(query::matches).count();
+    }
+
+    /**
+     * Queries scan all pets, there is nothing to create.
+     */
+    @Override
+    public void createIndexes()
+    {
+    }
+
+    @Override
+    public String getName()
+    {
+        return "in-memory.pets";
+    }
+
+    @Override
+    public void close()
+    {
+        LOGGER.info("In-memory repository closed with {} pets", pets.mappingCount());
+    }
+}
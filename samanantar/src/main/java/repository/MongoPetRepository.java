@@ -0,0 +1,167 @@
+package repository;
+
+import codec.PetCodec;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import model.Pet;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores pets in a Mongo collection. The collection has to be able to encode pets with {@link PetCodec}.
+ */
+public class MongoPetRepository implements PetRepository
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoPetRepository.class);
+
+    //one per lookup of PetQueryService, every index adds to the cost of an insert
+    private static final List<IndexModel> INDEXES = Arrays.asList(
+            new IndexModel(Indexes.ascending(PetCodec.NAME)),
+            new IndexModel(Indexes.ascending(PetCodec.OWNER + "." + PetCodec.OWNER_NAME)),
+            new IndexModel(Indexes.ascending(PetCodec.COLOR, PetCodec.AGE)),
+            new IndexModel(Indexes.ascending(PetCodec.AGE)),
+            new IndexModel(Indexes.ascending(PetCodec.WEIGHT)));
+
+    private static final InsertManyOptions ORDERED = new InsertManyOptions().ordered(true);
+    private static final InsertManyOptions UNORDERED = new InsertManyOptions().ordered(false);
+
+    private final MongoCollection<Pet> collection;
+
+    public MongoPetRepository(MongoCollection<Pet> collection)
+    {
+        this.collection = collection;
+    }
+
+    @Override
+    public void insertMany(List<? extends Pet> pets, boolean ordered)
+    {
+        collection.insertMany(pets, ordered ? ORDERED : UNORDERED);
+    }
+
+    @Override
+    public List<Pet> find(PetQuery query)
+    {
+        return iterable(query).into(new ArrayList<>());
+    }
+
+    @Override
+    public PetCursor stream(PetQuery query)
+    {
+        MongoCursor<Pet> cursor = iterable(query).iterator();
+        return new PetCursor()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public Pet next()
+            {
+                return cursor.next();
+            }
+
+            @Override
+            public void close()
+            {
+                cursor.close();
+            }
+        };
+    }
+
+    private FindIterable<Pet> iterable(PetQuery query)
+    {
+        FindIterable<Pet> iterable = collection.find(filter(query)).limit(query.getLimit());
+        if (query.getBatchSize() > 0)
+        {
+            iterable.batchSize(query.getBatchSize());
+        }
+        if (query.getProjection() != null)
+        {
+            List<String> fields = new ArrayList<>();
+            for (PetField field : query.getProjection())
+            {
+                fields.add(field.getBsonName());
+            }
+            iterable.projection(Projections.include(fields));
+        }
+        return iterable;
+    }
+
+    @Override
+    public void createIndexes()
+    {
+        long start = System.nanoTime();
+        List<String> names = collection.createIndexes(INDEXES);
+        LOGGER.info("Indexes on {} ready in {}ms: {}", getName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), names);
+    }
+
+    @Override
+    public long count(PetQuery query)
+    {
+        return query.isEmpty() ? collection.estimatedDocumentCount() : collection.countDocuments(filter(query));
+    }
+
+    private static Bson filter(PetQuery query)
+    {
+        List<Bson> filters = new ArrayList<>();
+        if (query.getName() != null)
+        {
+            filters.add(Filters.eq(PetCodec.NAME, query.getName()));
+        }
+        if (query.getColor() != null)
+        {
+            filters.add(Filters.eq(PetCodec.COLOR, query.getColor()));
+        }
+        if (query.getOwnerName() != null)
+        {
+            filters.add(Filters.eq(PetCodec.OWNER + "." + PetCodec.OWNER_NAME, query.getOwnerName()));
+        }
+        if (query.getMinAge() != null)
+        {
+            filters.add(Filters.gte(PetCodec.AGE, query.getMinAge()));
+        }
+        if (query.getMaxAge() != null)
+        {
+            filters.add(Filters.lte(PetCodec.AGE, query.getMaxAge()));
+        }
+        if (query.getMinWeight() != null)
+        {
+            filters.add(Filters.gte(PetCodec.WEIGHT, query.getMinWeight()));
+        }
+        if (query.getMaxWeight() != null)
+        {
+            filters.add(Filters.lte(PetCodec.WEIGHT, query.getMaxWeight()));
+        }
+        return filters.isEmpty() ? new BsonDocument() : Filters.and(filters);
+    }
+
+    @Override
+    public String getName()
+    {
+        return collection.getNamespace().getFullName();
+    }
+
+    /**
+     * The client is owned by the ConfigurationService, which closes it.
+     */
+    @Override
+    public void close()
+    {
+    }
+}
@@ -0,0 +1,15 @@
+package repository;
+
+import model.Pet;
+
+import java.util.Iterator;
+
+/**
+ * Iterates over the results of a query, fetching them in batches as it goes. Has to be closed when it
+ * is not iterated to the end.
+ */
+public interface PetCursor extends Iterator<Pet>, AutoCloseable
+{
+    @Override
+    void close();
+}
@@ -0,0 +1,26 @@
+package repository;
+
+import codec.PetCodec;
+
+/**
+ * Fields of a pet that a query can project. The id is always returned.
+ */
+public enum PetField
+{
+    NAME(PetCodec.NAME),
+    WEIGHT(PetCodec.WEIGHT),
+    AGE(PetCodec.AGE),
+    COLOR(PetCodec.COLOR),
+    OWNER(PetCodec.OWNER);
+
+    private final String bsonName;
+
+    PetField(String bsonName)
+    {
+        this.bsonName = bsonName;
+    }
+
+    public String getBsonName() {
+        return bsonName;
+    }
+}
@@ -0,0 +1,180 @@
+package repository;
+
+import model.Pet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Criteria for finding pets. Criteria that are not set match every pet.
+ * A projection limits the fields that are returned, the cursor batch size how many pets a cursor
+ * fetches at a time.
+ */
+public class PetQuery
+{
+    private String name;
+    private String color;
+    private String ownerName;
+    private Integer minAge;
+    private Integer maxAge;
+    private Integer minWeight;
+    private Integer maxWeight;
+    //0 returns every matching pet
+    private int limit;
+    //null returns all fields
+    private Set<PetField> projection;
+    //0 leaves the batch size to the server
+    private int batchSize;
+
+    public static PetQuery all()
+    {
+        return new PetQuery();
+    }
+
+    public PetQuery name(String name)
+    {
+        this.name = name;
+        return this;
+    }
+
+    public PetQuery color(String color)
+    {
+        this.color = color;
+        return this;
+    }
+
+    public PetQuery ownerName(String ownerName)
+    {
+        this.ownerName = ownerName;
+        return this;
+    }
+
+    public PetQuery minAge(int minAge)
+    {
+        this.minAge = minAge;
+        return this;
+    }
+
+    public PetQuery maxAge(int maxAge)
+    {
+        this.maxAge = maxAge;
+        return this;
+    }
+
+    public PetQuery minWeight(int minWeight)
+    {
+        this.minWeight = minWeight;
+        return this;
+    }
+
+    public PetQuery maxWeight(int maxWeight)
+    {
+        this.maxWeight = maxWeight;
+        return this;
+    }
+
+    public PetQuery limit(int limit)
+    {
+        this.limit = limit;
+        return this;
+    }
+
+    public PetQuery include(PetField... fields)
+    {
+        this.projection = EnumSet.noneOf(PetField.class);
+        this.projection.addAll(Arrays.asList(fields));
+        return this;
+    }
+
+    public PetQuery batchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    public Integer getMinAge() {
+        return minAge;
+    }
+
+    public Integer getMaxAge() {
+        return maxAge;
+    }
+
+    public Integer getMinWeight() {
+        return minWeight;
+    }
+
+    public Integer getMaxWeight() {
+        return maxWeight;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public Set<PetField> getProjection() {
+        return projection == null ? null : Collections.unmodifiableSet(projection);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isEmpty()
+    {
+        return name == null && color == null && ownerName == null && minAge == null && maxAge == null
+                && minWeight == null && maxWeight == null;
+    }
+
+    public boolean matches(Pet pet)
+    {
+        return (name == null || name.equals(pet.getName()))
+                && (color == null || color.equals(pet.getColor()))
+                && (ownerName == null || (pet.getOwner() != null && ownerName.equals(pet.getOwner().getName())))
+                && (minAge == null || pet.getAge() >= minAge)
+                && (maxAge == null || pet.getAge() <= maxAge)
+                && (minWeight == null || pet.getWeight() >= minWeight)
+                && (maxWeight == null || pet.getWeight() <= maxWeight);
+    }
+
+    /**
+     * Copies the id and the projected fields of a pet, or returns the pet itself without a projection.
+     */
+    public Pet project(Pet pet)
+    {
+        if (projection == null)
+        {
+            return pet;
+        }
+        Pet projected = new Pet();
+        projected.setId(pet.getId());
+        projected.setName(projection.contains(PetField.NAME) ? pet.getName() : null);
+        projected.setWeight(projection.contains(PetField.WEIGHT) ? pet.getWeight() : 0);
+        projected.setAge(projection.contains(PetField.AGE) ? pet.getAge() : 0);
+        projected.setColor(projection.contains(PetField.COLOR) ? pet.getColor() : null);
+        projected.setOwner(projection.contains(PetField.OWNER) ? pet.getOwner() : null);
+        return projected;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PetQuery{name=" + name + ", color=" + color + ", ownerName=" + ownerName + ", minAge=" + minAge
+                + ", maxAge=" + maxAge + ", minWeight=" + minWeight + ", maxWeight=" + maxWeight + ", limit=" + limit
+                + ", projection=" + projection + ", batchSize=" + batchSize + "}";
+    }
+}
@@ -0,0 +1,76 @@
+package repository;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import model.Pet;
+
+import java.util.List;
+
+/**
+ * Read path for pets. Lookups by name and owner return lists, since they match few pets. Lookups that
+ * can match a large part of the collection return a {@link PetCursor} that fetches the given number of
+ * pets at a time, optionally limited to some fields.
+ */
+@Singleton
+public class PetQueryService
+{
+    private final PetRepository repository;
+
+    @Inject
+    public PetQueryService(PetRepository repository)
+    {
+        this.repository = repository;
+    }
+
+    public List<Pet> findByName(String name)
+    {
+        return repository.find(PetQuery.all().name(name));
+    }
+
+    public List<Pet> findByOwner(String ownerName)
+    {
+        return repository.find(PetQuery.all().ownerName(ownerName));
+    }
+
+    public PetCursor streamByColor(String color, int batchSize, PetField... fields)
+    {
+        return stream(PetQuery.all().color(color), batchSize, fields);
+    }
+
+    public PetCursor streamByAge(int minAge, int maxAge, int batchSize, PetField... fields)
+    {
+        return stream(PetQuery.all().minAge(minAge).maxAge(maxAge), batchSize, fields);
+    }
+
+    public PetCursor streamByWeight(int minWeight, int maxWeight, int batchSize, PetField... fields)
+    {
+        return stream(PetQuery.all().minWeight(minWeight).maxWeight(maxWeight), batchSize, fields);
+    }
+
+    private PetCursor stream(PetQuery query, int batchSize, PetField... fields)
+    {
+        if (fields.length > 0)
+        {
+            query.include(fields);
+        }
+        return repository.stream(query.batchSize(batchSize));
+    }
+
+    /**
+     * Runs a query combining several criteria, see {@link PetQuery}.
+     */
+    public PetCursor stream(PetQuery query)
+    {
+        return repository.stream(query);
+    }
+
+    public List<Pet> find(PetQuery query)
+    {
+        return repository.find(query);
+    }
+
+    public long count(PetQuery query)
+    {
+        return repository.count(query);
+    }
+}
@@ -0,0 +1,33 @@
+package repository;
+
+import model.Pet;
+import writer.BatchSink;
+
+import java.util.List;
+
+/**
+ * Storage for pets. The engine is selected with the repository section of appsettings.json.
+ */
+public interface PetRepository extends BatchSink<Pet>, AutoCloseable
+{
+    /**
+     * Returns the pets matching the query, at most {@link PetQuery#getLimit()} of them.
+     */
+    List<Pet> find(PetQuery query);
+
+    /**
+     * Returns a cursor over the pets matching the query, which fetches {@link PetQuery#getBatchSize()}
+     * pets at a time instead of loading all of them.
+     */
+    PetCursor stream(PetQuery query);
+
+    long count(PetQuery query);
+
+    /**
+     * Creates the indexes the queries of {@link PetQueryService} rely on, if they do not exist yet.
+     */
+    void createIndexes();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,77 @@
+package seed;
+
+import generator.PetGenerator;
+import model.Pet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Generates a range of pets in batches. Splitting halves the range at a batch boundary and splits the
+ * random number generator along with it, so every part generates independently and without
+ * contention, and the same seed always yields the same pets per part.
+ */
+class PetBatchSpliterator implements Spliterator<List<Pet>>
+{
+    private final PetGenerator generator;
+    private final SplittableRandom random;
+    private final int batchSize;
+    private long origin;
+    private final long fence;
+
+    PetBatchSpliterator(PetGenerator generator, SplittableRandom random, int batchSize, long origin, long fence)
+    {
+        this.generator = generator;
+        this.random = random;
+        this.batchSize = batchSize;
+        this.origin = origin;
+        this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super List<Pet>> action)
+    {
+        if (origin >= fence)
+        {
+            return false;
+        }
+        int size = (int) Math.min(batchSize, fence - origin);
+        List<Pet> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+        {
+            batch.add(generator.nextPet(random));
+        }
+        origin += size;
+        action.accept(batch);
+        return true;
+    }
+
+    @Override
+    public Spliterator<List<Pet>> trySplit()
+    {
+        long batches = (fence - origin + batchSize - 1) / batchSize;
+        if (batches < 2)
+        {
+            return null;
+        }
+        long middle = origin + batches / 2 * batchSize;
+        Spliterator<List<Pet>> prefix = new PetBatchSpliterator(generator, random.split(), batchSize, origin, middle);
+        origin = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+        return (fence - origin + batchSize - 1) / batchSize;
+    }
+
+    @Override
+    public int characteristics()
+    {
+        return SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,126 @@
+package seed;
+
+import com.mongodb.MongoBulkWriteException;
+import config.SeedConfiguration;
+import generator.PetGenerator;
+import model.Pet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import repository.PetRepository;
+import util.ConcurrentUtils;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.StreamSupport;
+
+/**
+ * Fills the repository with a given number of generated pets as fast as it takes them.
+ *
+ * The count is split across a {@link ForkJoinPool} by a {@link PetBatchSpliterator}. Every worker
+ * generates its own batches and writes them with an unordered insertMany, so there is no shared queue
+ * or writer thread. Progress is logged periodically with the rate and the estimated time remaining.
+ * The seeding stops at the first batch that fails as a whole.
+ */
+public class PetSeeder
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PetSeeder.class);
+
+    private final PetRepository repository;
+    private final PetGenerator generator;
+    private final int batchSize;
+    private final int threads;
+    private final long progressIntervalSeconds;
+
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public PetSeeder(PetRepository repository, PetGenerator generator, SeedConfiguration configuration)
+    {
+        this.repository = repository;
+        this.generator = generator;
+        this.batchSize = Math.max(1, configuration.getBatchSize());
+        this.threads = configuration.getThreads() > 0 ? configuration.getThreads()
+                : Runtime.getRuntime().availableProcessors();
+        this.progressIntervalSeconds = configuration.getProgressIntervalSeconds();
+    }
+
+    /**
+     * @return the number of pets inserted
+     */
+    public long seed(long count) throws InterruptedException, ExecutionException
+    {
+        LOGGER.info("Seeding {} pets with {} threads in batches of {}", count, threads, batchSize);
+        long start = System.nanoTime();
+        ForkJoinPool pool = ConcurrentUtils.newWorkStealingPool("seed", threads);
+        ScheduledExecutorService progress = ConcurrentUtils.newScheduledThreadPool("seed-progress", 1);
+        Progress tracker = new Progress(count, start);
+        if (progressIntervalSeconds > 0)
+        {
+            progress.scheduleAtFixedRate(tracker::log, progressIntervalSeconds, progressIntervalSeconds,
+                    TimeUnit.SECONDS);
+        }
+        try
+        {
+            PetBatchSpliterator batches = new PetBatchSpliterator(generator, generator.newRandom(), batchSize, 0, count);
+            //a parallel stream started from inside the pool runs its tasks in that pool
+            pool.submit(() -> StreamSupport.stream(batches, true).forEach(this::insert)).get();
+        }
+        finally
+        {
+            ConcurrentUtils.stop(progress);
+            pool.shutdownNow();
+        }
+        double seconds = Math.max(1, System.nanoTime() - start) / 1_000_000_000d;
+        LOGGER.info("Seeded {} pets in {}s: {} pets/sec, {} rejected", inserted.sum(), String.format("%.1f", seconds),
+                String.format("%.0f", inserted.sum() / seconds), rejected.sum());
+        return inserted.sum();
+    }
+
+    private void insert(List<Pet> batch)
+    {
+        try
+        {
+            repository.insertMany(batch, false);
+            inserted.add(batch.size());
+        }
+        catch (MongoBulkWriteException ex)
+        {
+            inserted.add(ex.getWriteResult().getInsertedCount());
+            rejected.add(ex.getWriteErrors().size());
+        }
+    }
+
+    private final class Progress
+    {
+        private final long count;
+        private final long startNanos;
+        private long lastNanos;
+        private long lastProcessed;
+
+        private Progress(long count, long startNanos)
+        {
+            this.count = count;
+            this.startNanos = startNanos;
+            this.lastNanos = startNanos;
+        }
+
+        private void log()
+        {
+            long now = System.nanoTime();
+            long current = inserted.sum() + rejected.sum();
+            double rate = (current - lastProcessed) / (Math.max(1, now - lastNanos) / 1_000_000_000d);
+            //the average since start, the rate of a single interval jumps with garbage collections
+            double averageRate = current / (Math.max(1, now - startNanos) / 1_000_000_000d);
+            long etaSeconds = averageRate > 0 ? (long) ((count - current) / averageRate) : -1;
+            LOGGER.info("Seeded {} of {} pets ({}%), {} pets/sec, ETA: {}", current, count,
+                    String.format("%.1f", 100d * current / Math.max(1, count)), String.format("%.0f", rate),
+                    etaSeconds >= 0 ? String.format("%d:%02d", etaSeconds / 60, etaSeconds % 60) : "unknown");
+            lastNanos = now;
+            lastProcessed = current;
+        }
+    }
+}
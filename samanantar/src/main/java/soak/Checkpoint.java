@@ -0,0 +1,38 @@
+package soak;
+
+import metrics.HistogramSnapshot;
+import metrics.WriteMetrics;
+import workload.WorkloadEngine;
+
+/**
+ * Cumulative counters at one point of a soak run. The difference of two checkpoints describes the
+ * interval between them.
+ */
+final class Checkpoint
+{
+    final long nanos;
+    //integral of the target rate since the start, i.e. the operations that should have been issued
+    final double targetOperations;
+    final long issued;
+    final long shed;
+    final long operationErrors;
+    final long succeeded;
+    final long failed;
+    final long retries;
+    final HistogramSnapshot latency;
+    final HistogramSnapshot gcPauses;
+
+    Checkpoint(WorkloadEngine engine, WriteMetrics writeMetrics, GcMonitor gcMonitor, double targetOperations)
+    {
+        this.nanos = System.nanoTime();
+        this.targetOperations = targetOperations;
+        this.issued = engine.getIssued();
+        this.shed = engine.getShed();
+        this.operationErrors = engine.getFailed();
+        this.succeeded = writeMetrics.getSucceeded();
+        this.failed = writeMetrics.getFailed();
+        this.retries = writeMetrics.getRetries();
+        this.latency = writeMetrics.getOperationLatency();
+        this.gcPauses = gcMonitor.getPauses();
+    }
+}
@@ -0,0 +1,132 @@
+package soak;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import metrics.HistogramSnapshot;
+import metrics.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Records garbage collection pauses and the heap high-water mark from the collectors' JMX notifications.
+ *
+ * Every notification is counted as a pause except those of the concurrent cycle beans of ZGC and
+ * Shenandoah ("... Cycles"), whose duration is mostly spent next to the application. The heap used right
+ * before each collection is where the heap peaks, so together with the samples taken by
+ * {@link #sampleHeap()} it gives the high-water mark.
+ */
+public class GcMonitor implements NotificationListener, AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(GcMonitor.class);
+
+    private final LatencyHistogram pauses = new LatencyHistogram();
+    private final LongAccumulator heapHighWater = new LongAccumulator(Long::max, 0);
+    private final Set<String> heapPools = new HashSet<>();
+
+    public GcMonitor()
+    {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP)
+            {
+                heapPools.add(pool.getName());
+            }
+        }
+    }
+
+    public void start()
+    {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            if (collector instanceof NotificationEmitter)
+            {
+                ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+            }
+        }
+        sampleHeap();
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback)
+    {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+        {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        GcInfo gcInfo = info.getGcInfo();
+        long usedBefore = 0;
+        for (Map.Entry<String, MemoryUsage> pool : gcInfo.getMemoryUsageBeforeGc().entrySet())
+        {
+            if (heapPools.contains(pool.getKey()))
+            {
+                usedBefore += pool.getValue().getUsed();
+            }
+        }
+        heapHighWater.accumulate(usedBefore);
+        if (!info.getGcName().endsWith("Cycles"))
+        {
+            pauses.record(TimeUnit.MILLISECONDS.toNanos(gcInfo.getDuration()));
+        }
+    }
+
+    /**
+     * Takes the currently used heap into account for the high-water mark.
+     * @return the heap used right now, in bytes
+     */
+    public long sampleHeap()
+    {
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        heapHighWater.accumulate(used);
+        return used;
+    }
+
+    /**
+     * Cumulative pause durations since start, in nanoseconds.
+     */
+    public HistogramSnapshot getPauses()
+    {
+        return pauses.snapshot();
+    }
+
+    public long getHeapHighWaterBytes()
+    {
+        return heapHighWater.get();
+    }
+
+    @Override
+    public void close()
+    {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            if (collector instanceof NotificationEmitter)
+            {
+                try
+                {
+                    ((NotificationEmitter) collector).removeNotificationListener(this);
+                }
+                catch (ListenerNotFoundException e)
+                {
+                    LOGGER.debug("GC listener was not registered with {}", collector.getName());
+                }
+            }
+        }
+    }
+}
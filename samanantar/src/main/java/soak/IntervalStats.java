@@ -0,0 +1,103 @@
+package soak;
+
+import metrics.HistogramSnapshot;
+
+/**
+ * Throughput, write latency, errors and GC pauses of one part of a soak run: a sample, a profile or the
+ * whole run. Serialized as is into the report, latencies are in milliseconds.
+ */
+public class IntervalStats
+{
+    private String name;
+    //since the soak started, including the warm-up
+    private double startSeconds;
+    private double durationSeconds;
+    private double targetOpsPerSecond;
+    //issued by the producers, of which shed were dropped because the writer queue was full
+    private long issued;
+    private long shed;
+    //producer calls that threw instead of handing a pet to the writer
+    private long operationErrors;
+    //writes completed in the interval, whenever they were issued
+    private long succeeded;
+    private long failed;
+    private long retries;
+    private double achievedOpsPerSecond;
+    private double latencyP50Millis;
+    private double latencyP99Millis;
+    private double latencyP999Millis;
+    private double latencyMaxMillis;
+    private long gcPauses;
+    private double gcPauseMillis;
+    private double gcMaxPauseMillis;
+    private double heapUsedMb;
+
+    static IntervalStats between(String name, Checkpoint origin, Checkpoint from, Checkpoint to, long heapUsedBytes)
+    {
+        IntervalStats stats = new IntervalStats();
+        double seconds = Math.max(1, to.nanos - from.nanos) / 1_000_000_000d;
+        stats.name = name;
+        stats.startSeconds = (from.nanos - origin.nanos) / 1_000_000_000d;
+        stats.durationSeconds = seconds;
+        stats.targetOpsPerSecond = (to.targetOperations - from.targetOperations) / seconds;
+        stats.issued = to.issued - from.issued;
+        stats.shed = to.shed - from.shed;
+        stats.operationErrors = to.operationErrors - from.operationErrors;
+        stats.succeeded = to.succeeded - from.succeeded;
+        stats.failed = to.failed - from.failed;
+        stats.retries = to.retries - from.retries;
+        stats.achievedOpsPerSecond = (stats.succeeded + stats.failed) / seconds;
+        HistogramSnapshot latency = to.latency.minus(from.latency);
+        stats.latencyP50Millis = millis(latency.getValueAtPercentile(50));
+        stats.latencyP99Millis = millis(latency.getValueAtPercentile(99));
+        stats.latencyP999Millis = millis(latency.getValueAtPercentile(99.9));
+        stats.latencyMaxMillis = millis(latency.getMax());
+        HistogramSnapshot pauses = to.gcPauses.minus(from.gcPauses);
+        stats.gcPauses = pauses.getCount();
+        stats.gcPauseMillis = millis((long) (pauses.getMean() * pauses.getCount()));
+        stats.gcMaxPauseMillis = millis(pauses.getMax());
+        stats.heapUsedMb = heapUsedBytes / (1024d * 1024d);
+        return stats;
+    }
+
+    private static double millis(long nanos)
+    {
+        return nanos / 1_000_000d;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getAchievedOpsPerSecond() {
+        return achievedOpsPerSecond;
+    }
+
+    public double getLatencyP50Millis() {
+        return latencyP50Millis;
+    }
+
+    public double getLatencyP99Millis() {
+        return latencyP99Millis;
+    }
+
+    public double getLatencyMaxMillis() {
+        return latencyMaxMillis;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getShed() {
+        return shed;
+    }
+
+    public long getGcPauses() {
+        return gcPauses;
+    }
+
+    public double getGcMaxPauseMillis() {
+        return gcMaxPauseMillis;
+    }
+}
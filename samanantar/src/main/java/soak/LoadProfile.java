@@ -0,0 +1,67 @@
+package soak;
+
+import config.SoakConfiguration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shape of the target rate over the course of a soak profile.
+ */
+public enum LoadProfile
+{
+    /**
+     * The base rate throughout.
+     */
+    STEADY
+    {
+        @Override
+        double rate(long elapsedNanos, SoakConfiguration configuration)
+        {
+            return configuration.getBaseOpsPerSecond();
+        }
+    },
+    /**
+     * The base rate with periodic bursts at the peak rate, starting with a burst.
+     */
+    BURST
+    {
+        @Override
+        double rate(long elapsedNanos, SoakConfiguration configuration)
+        {
+            long period = TimeUnit.SECONDS.toNanos(Math.max(1, configuration.getBurstPeriodSeconds()));
+            boolean bursting = elapsedNanos % period < TimeUnit.SECONDS.toNanos(configuration.getBurstSeconds());
+            return bursting ? configuration.getPeakOpsPerSecond() : configuration.getBaseOpsPerSecond();
+        }
+    },
+    /**
+     * Linear growth from the base to the peak rate over the length of the profile.
+     */
+    RAMP
+    {
+        @Override
+        double rate(long elapsedNanos, SoakConfiguration configuration)
+        {
+            double progress = Math.min(1, (double) elapsedNanos
+                    / TimeUnit.SECONDS.toNanos(Math.max(1, configuration.getProfileSeconds())));
+            return configuration.getBaseOpsPerSecond()
+                    + progress * (configuration.getPeakOpsPerSecond() - configuration.getBaseOpsPerSecond());
+        }
+    };
+
+    /**
+     * Target rate at the given time since the profile started.
+     */
+    abstract double rate(long elapsedNanos, SoakConfiguration configuration);
+
+    static LoadProfile forName(String name)
+    {
+        try
+        {
+            return valueOf(name.toUpperCase());
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Unknown soak profile: " + name);
+        }
+    }
+}
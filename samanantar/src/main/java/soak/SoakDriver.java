@@ -0,0 +1,168 @@
+package soak;
+
+import config.Configuration;
+import config.SoakConfiguration;
+import config.WorkloadConfiguration;
+import metrics.WriteMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import workload.WorkloadEngine;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steers a running workload through the configured load profiles and records what the write path did.
+ *
+ * The target rate is adjusted ten times a second. Every sample interval the throughput, the write
+ * latency of the pets completed in that interval, errors, GC pauses and heap usage are recorded, and
+ * every profile gets the same numbers for its whole length. The warm-up is sampled but not part of the
+ * totals. Latency is measured from queueing to the end of the batch, so with an open loop a stalled
+ * writer shows up in the percentiles instead of lowering the offered rate.
+ */
+public class SoakDriver
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SoakDriver.class);
+
+    private static final long CONTROL_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final SoakConfiguration configuration;
+    private final WorkloadEngine engine;
+    private final WriteMetrics writeMetrics;
+    private final GcMonitor gcMonitor = new GcMonitor();
+    private final SoakReport report;
+
+    private Checkpoint origin;
+    private double currentRate;
+    private double targetOperations;
+    private long lastAdvanceNanos;
+
+    public SoakDriver(Configuration configuration, WorkloadEngine engine, WriteMetrics writeMetrics)
+    {
+        this.configuration = configuration.getSoak();
+        this.engine = engine;
+        this.writeMetrics = writeMetrics;
+        this.report = new SoakReport(Instant.now().toString(), configuration);
+        for (String profile : this.configuration.getProfiles())
+        {
+            //fails before anything runs
+            LoadProfile.forName(profile);
+        }
+    }
+
+    /**
+     * Workload to start the application with: the configured producers, without a duration or ramp-up
+     * of its own, since the driver sets the rate and decides when the run ends.
+     */
+    public static WorkloadConfiguration workload(Configuration configuration)
+    {
+        WorkloadConfiguration workload = new WorkloadConfiguration();
+        workload.setProducerThreads(configuration.getWorkload().getProducerThreads());
+        workload.setOpenLoop(configuration.getSoak().isOpenLoop());
+        workload.setTargetOpsPerSecond(configuration.getSoak().getBaseOpsPerSecond());
+        workload.setRampUpSeconds(0);
+        workload.setDurationSeconds(0);
+        return workload;
+    }
+
+    /**
+     * Runs the warm-up and all profiles and stops offering load afterwards.
+     */
+    public SoakReport run() throws InterruptedException
+    {
+        gcMonitor.start();
+        try
+        {
+            lastAdvanceNanos = System.nanoTime();
+            currentRate = engine.getTargetOpsPerSecond();
+            origin = checkpoint();
+            if (configuration.getWarmupSeconds() > 0)
+            {
+                runProfile("warmup", LoadProfile.STEADY, configuration.getWarmupSeconds());
+            }
+            Checkpoint measured = checkpoint();
+            for (String name : configuration.getProfiles())
+            {
+                Checkpoint start = checkpoint();
+                runProfile(name, LoadProfile.forName(name), configuration.getProfileSeconds());
+                IntervalStats profile = IntervalStats.between(name, origin, start, checkpoint(), gcMonitor.sampleHeap());
+                report.addProfile(profile);
+                log("Soak profile", profile);
+            }
+            engine.setTargetOpsPerSecond(0);
+            IntervalStats total = IntervalStats.between("total", origin, measured, checkpoint(), gcMonitor.sampleHeap());
+            report.complete(total, gcMonitor.getHeapHighWaterBytes());
+            log("Soak run", total);
+            LOGGER.info("Soak heap high-water mark: {}MB", String.format("%.1f", report.getHeapHighWaterMb()));
+            return report;
+        }
+        finally
+        {
+            gcMonitor.close();
+        }
+    }
+
+    private void runProfile(String name, LoadProfile profile, long seconds) throws InterruptedException
+    {
+        LOGGER.info("Soak profile {} starting for {}s", name, seconds);
+        long durationNanos = TimeUnit.SECONDS.toNanos(seconds);
+        long sampleNanos = TimeUnit.SECONDS.toNanos(Math.max(1, configuration.getSampleIntervalSeconds()));
+        long start = System.nanoTime();
+        long nextSample = start + sampleNanos;
+        Checkpoint sampleStart = checkpoint();
+        while (true)
+        {
+            long now = System.nanoTime();
+            long elapsed = now - start;
+            if (now >= nextSample || elapsed >= durationNanos)
+            {
+                Checkpoint sampleEnd = checkpoint();
+                report.addSample(IntervalStats.between(name, origin, sampleStart, sampleEnd, gcMonitor.sampleHeap()));
+                sampleStart = sampleEnd;
+                nextSample += sampleNanos;
+            }
+            if (elapsed >= durationNanos)
+            {
+                return;
+            }
+            setRate(profile.rate(elapsed, configuration));
+            long sleep = Math.min(CONTROL_INTERVAL_NANOS, Math.min(nextSample, start + durationNanos) - System.nanoTime());
+            if (sleep > 0)
+            {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+        }
+    }
+
+    private void setRate(double rate)
+    {
+        advance();
+        currentRate = rate;
+        engine.setTargetOpsPerSecond(rate);
+    }
+
+    /**
+     * Adds the operations the current rate asked for since the last call to the target.
+     */
+    private void advance()
+    {
+        long now = System.nanoTime();
+        targetOperations += currentRate * (now - lastAdvanceNanos) / 1_000_000_000d;
+        lastAdvanceNanos = now;
+    }
+
+    private Checkpoint checkpoint()
+    {
+        advance();
+        return new Checkpoint(engine, writeMetrics, gcMonitor, targetOperations);
+    }
+
+    private static void log(String what, IntervalStats stats)
+    {
+        LOGGER.info("{} {}: {} ops/s, latency ms p50: {} p99: {} max: {}, failed: {}, shed: {}, gc pauses: {} max: {}ms",
+                what, stats.getName(), String.format("%.1f", stats.getAchievedOpsPerSecond()),
+                String.format("%.2f", stats.getLatencyP50Millis()), String.format("%.2f", stats.getLatencyP99Millis()),
+                String.format("%.2f", stats.getLatencyMaxMillis()), stats.getFailed(), stats.getShed(),
+                stats.getGcPauses(), String.format("%.1f", stats.getGcMaxPauseMillis()));
+    }
+}
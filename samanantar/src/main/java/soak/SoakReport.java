@@ -0,0 +1,83 @@
+package soak;
+
+import com.google.gson.GsonBuilder;
+import config.Configuration;
+import config.SoakConfiguration;
+import config.StandInConfiguration;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a soak run, written as JSON: the setup it ran with, totals for the whole run and per profile,
+ * the samples over time and the heap high-water mark.
+ */
+public class SoakReport
+{
+    private final String startedAt;
+    private final String javaVersion = System.getProperty("java.version");
+    private final int availableProcessors = Runtime.getRuntime().availableProcessors();
+    private final String engine;
+    //null when the run did not use the stand-in
+    private final StandInConfiguration standIn;
+    private final SoakConfiguration settings;
+    private final double maxHeapMb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax() / (1024d * 1024d);
+    private double heapHighWaterMb;
+    private IntervalStats total;
+    private final List<IntervalStats> profiles = new ArrayList<>();
+    private final List<IntervalStats> samples = new ArrayList<>();
+
+    SoakReport(String startedAt, Configuration configuration)
+    {
+        this.startedAt = startedAt;
+        this.engine = configuration.getRepository().getEngine();
+        this.standIn = configuration.getRepository().usesMongo() && configuration.getStandIn().isEnabled()
+                ? configuration.getStandIn() : null;
+        this.settings = configuration.getSoak();
+    }
+
+    void addSample(IntervalStats sample)
+    {
+        samples.add(sample);
+    }
+
+    void addProfile(IntervalStats profile)
+    {
+        profiles.add(profile);
+    }
+
+    void complete(IntervalStats total, long heapHighWaterBytes)
+    {
+        this.total = total;
+        this.heapHighWaterMb = heapHighWaterBytes / (1024d * 1024d);
+    }
+
+    public IntervalStats getTotal()
+    {
+        return total;
+    }
+
+    public List<IntervalStats> getProfiles()
+    {
+        return profiles;
+    }
+
+    public double getHeapHighWaterMb()
+    {
+        return heapHighWaterMb;
+    }
+
+    public void write(Path path) throws IOException
+    {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8))
+        {
+            new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create().toJson(this, writer);
+        }
+    }
+}
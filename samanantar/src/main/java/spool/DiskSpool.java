@@ -0,0 +1,310 @@
+package spool;
+
+import config.SpoolConfiguration;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of BSON documents stored in fixed-size memory-mapped segment files.
+ *
+ * A segment is a sequence of records followed by zeros. A record is its length, a CRC32 of the rest of
+ * the record, the time it was appended and the BSON document, all little-endian like BSON itself.
+ * Every record is copied into the mapping length-last, so a reader that sees a non-zero length
+ * always sees the complete record, and the checksum catches records that were only partly on disk
+ * when the machine crashed. A document counts as acknowledged as soon as it has been copied into
+ * the mapping: it survives a crash of the JVM, and it survives a crash of the machine once the
+ * mapping has been forced to disk.
+ *
+ * The append time is stored as wall-clock nanoseconds, so the time a document spent in the spool
+ * can still be measured after a restart, if only to the precision of the wall clock.
+ *
+ * The {@link SpoolReplayer} reads from the last checkpoint and calls {@link #commit(SpoolPosition)}
+ * once documents have reached Mongo. Segments before the checkpoint are then deleted.
+ * On restart, writing continues in a fresh segment and replay resumes from the stored checkpoint.
+ */
+public class DiskSpool implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiskSpool.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    //length, checksum and append time in front of every document
+    static final int RECORD_HEADER_LENGTH = 16;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    //converts System.nanoTime() into wall-clock nanoseconds
+    private final long epochOffsetNanos = System.currentTimeMillis() * 1_000_000 - System.nanoTime();
+    private final CRC32 checksum = new CRC32();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition spaceAvailable = lock.newCondition();
+
+    private MappedByteBuffer segment;
+    private long segmentId;
+    private int offset;
+
+    //segment id in the upper and offset in the lower half, published after every append for readers
+    private volatile long writePosition;
+    private volatile SpoolPosition checkpoint;
+
+    public DiskSpool(SpoolConfiguration configuration) throws IOException
+    {
+        this.directory = Paths.get(configuration.getDirectory());
+        this.segmentSize = configuration.getSegmentSizeMb() * 1024 * 1024;
+        this.maxSegments = configuration.getMaxSegments();
+        Files.createDirectories(directory);
+
+        long firstSegment = Long.MAX_VALUE;
+        long lastSegment = 0;
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX))
+        {
+            for (Path path : segments)
+            {
+                long id = segmentId(path);
+                firstSegment = Math.min(firstSegment, id);
+                lastSegment = Math.max(lastSegment, id);
+            }
+        }
+        SpoolPosition stored = readCheckpoint();
+        if (stored != null)
+        {
+            checkpoint = stored;
+            lastSegment = Math.max(lastSegment, stored.getSegment());
+        }
+        else
+        {
+            checkpoint = new SpoolPosition(firstSegment != Long.MAX_VALUE ? firstSegment : lastSegment + 1, 0);
+        }
+        openSegment(lastSegment + 1);
+        LOGGER.info("Disk spool opened in {} replaying from {}, writing to segment {}",
+                directory.toAbsolutePath(), checkpoint, segmentId);
+    }
+
+    /**
+     * Appends a document without waiting.
+     * @return false if the spool already holds the maximum number of segments
+     */
+    public boolean append(RawBsonDocument document) throws IOException
+    {
+        lock.lock();
+        try
+        {
+            return tryAppend(document);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a document, waiting while the spool holds the maximum number of segments.
+     */
+    public void appendBlocking(RawBsonDocument document) throws IOException, InterruptedException
+    {
+        lock.lock();
+        try
+        {
+            while (!tryAppend(document))
+            {
+                spaceAvailable.await(100, TimeUnit.MILLISECONDS);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private boolean tryAppend(RawBsonDocument document) throws IOException
+    {
+        ByteBuffer bytes = document.getByteBuffer().asNIO();
+        int length = RECORD_HEADER_LENGTH + bytes.remaining();
+        if (length > segmentSize)
+        {
+            throw new IOException("Document of " + bytes.remaining() + " bytes does not fit into a spool segment");
+        }
+        if (offset + length > segmentSize)
+        {
+            if (segmentId - checkpoint.getSegment() + 1 >= maxSegments)
+            {
+                return false;
+            }
+            segment.force();
+            openSegment(segmentId + 1);
+        }
+        //everything after the length first, a reader never sees a length without its record
+        ByteBuffer target = segment.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        target.position(offset + 8);
+        target.putLong(System.nanoTime() + epochOffsetNanos);
+        target.put(bytes);
+        checksum.reset();
+        ByteBuffer checked = target.duplicate();
+        checked.position(offset + 8);
+        checked.limit(offset + length);
+        checksum.update(checked);
+        target.putInt(offset + 4, (int) checksum.getValue());
+        target.putInt(offset, length);
+        offset += length;
+        writePosition = (segmentId << 32) | offset;
+        return true;
+    }
+
+    private void openSegment(long id) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segmentId = id;
+        offset = 0;
+        writePosition = id << 32;
+    }
+
+    /**
+     * Opens an existing segment for reading, or returns null if it has already been deleted.
+     */
+    ByteBuffer mapForReading(long id) throws IOException
+    {
+        Path path = segmentPath(id);
+        if (!Files.exists(path))
+        {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * End of the acknowledged documents, packed as segment id in the upper and offset in the lower half.
+     */
+    long getWritePosition()
+    {
+        return writePosition;
+    }
+
+    /**
+     * Converts an append time read from a record into the {@link System#nanoTime()} of this process.
+     */
+    long toNanoTime(long appendedEpochNanos)
+    {
+        return appendedEpochNanos - epochOffsetNanos;
+    }
+
+    public SpoolPosition getCheckpoint()
+    {
+        return checkpoint;
+    }
+
+    /**
+     * Records that everything before the given position has been written to Mongo and deletes the
+     * segments that are no longer needed.
+     */
+    public void commit(SpoolPosition position) throws IOException
+    {
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(12);
+        buffer.putLong(position.getSegment()).putInt(position.getOffset());
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (buffer.hasRemaining())
+            {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        long previous = checkpoint.getSegment();
+        checkpoint = position;
+        for (long id = previous; id < position.getSegment(); id++)
+        {
+            Files.deleteIfExists(segmentPath(id));
+        }
+        if (position.getSegment() > previous)
+        {
+            lock.lock();
+            try
+            {
+                spaceAvailable.signalAll();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    private SpoolPosition readCheckpoint() throws IOException
+    {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path))
+        {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        return new SpoolPosition(buffer.getLong(), buffer.getInt());
+    }
+
+    /**
+     * Flushes the segment currently being written to disk.
+     */
+    public void force()
+    {
+        lock.lock();
+        try
+        {
+            segment.force();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private Path segmentPath(long id)
+    {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentId(Path path)
+    {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @Override
+    public void close()
+    {
+        force();
+        long position = writePosition;
+        LOGGER.info("Disk spool closed, replay position: {}, write position: segment {} offset {}",
+                checkpoint, position >>> 32, (int) position);
+    }
+}
@@ -0,0 +1,30 @@
+package spool;
+
+/**
+ * A position in the {@link DiskSpool}: a segment and a byte offset within it.
+ */
+public class SpoolPosition
+{
+    private final long segment;
+    private final int offset;
+
+    public SpoolPosition(long segment, int offset)
+    {
+        this.segment = segment;
+        this.offset = offset;
+    }
+
+    public long getSegment() {
+        return segment;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "segment " + segment + " offset " + offset;
+    }
+}
@@ -0,0 +1,141 @@
+package spool;
+
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Reads acknowledged documents from a {@link DiskSpool}, starting at its checkpoint.
+ * Not thread-safe, owned by the {@link SpoolReplayer}.
+ */
+class SpoolReader
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpoolReader.class);
+
+    //smallest possible BSON document: length prefix plus terminating zero
+    private static final int MIN_DOCUMENT_LENGTH = 5;
+
+    private final DiskSpool spool;
+    private final CRC32 checksum = new CRC32();
+    private long segmentId;
+    private int offset;
+    private ByteBuffer segment;
+    private long appendedNanos;
+
+    SpoolReader(DiskSpool spool)
+    {
+        this.spool = spool;
+        SpoolPosition checkpoint = spool.getCheckpoint();
+        this.segmentId = checkpoint.getSegment();
+        this.offset = checkpoint.getOffset();
+    }
+
+    /**
+     * @return the next document, or null if the reader has caught up with the writer
+     */
+    RawBsonDocument next() throws IOException
+    {
+        while (true)
+        {
+            long writePosition = spool.getWritePosition();
+            long writeSegment = writePosition >>> 32;
+            if (segmentId == writeSegment && offset >= (int) writePosition)
+            {
+                return null;
+            }
+            if (segment == null)
+            {
+                segment = spool.mapForReading(segmentId);
+                if (segment == null)
+                {
+                    nextSegment(writePosition);
+                    continue;
+                }
+            }
+            int length = segment.capacity() - offset >= 4 ? segment.getInt(offset) : 0;
+            if (length == 0)
+            {
+                //end of a segment the writer has moved on from
+                nextSegment(writePosition);
+                continue;
+            }
+            String corruption = check(length);
+            if (corruption != null)
+            {
+                LOGGER.error("Corrupt spool record at segment {} offset {}: {}, skipping the rest of the segment",
+                        segmentId, offset, corruption);
+                nextSegment(writePosition);
+                continue;
+            }
+            appendedNanos = spool.toNanoTime(segment.getLong(offset + 8));
+            byte[] bytes = new byte[length - DiskSpool.RECORD_HEADER_LENGTH];
+            ByteBuffer source = segment.duplicate();
+            source.position(offset + DiskSpool.RECORD_HEADER_LENGTH);
+            source.get(bytes);
+            offset += length;
+            return new RawBsonDocument(bytes);
+        }
+    }
+
+    /**
+     * @return what is wrong with the record of the given length at the current offset, or null if it is intact
+     */
+    private String check(int length)
+    {
+        if (length < DiskSpool.RECORD_HEADER_LENGTH + MIN_DOCUMENT_LENGTH || length > segment.capacity() - offset)
+        {
+            return "length " + length;
+        }
+        int documentLength = segment.getInt(offset + DiskSpool.RECORD_HEADER_LENGTH);
+        if (documentLength != length - DiskSpool.RECORD_HEADER_LENGTH)
+        {
+            return "document length " + documentLength + " in a record of " + length + " bytes";
+        }
+        checksum.reset();
+        ByteBuffer checked = segment.duplicate();
+        checked.position(offset + 8);
+        checked.limit(offset + length);
+        checksum.update(checked);
+        if ((int) checksum.getValue() != segment.getInt(offset + 4))
+        {
+            return "checksum mismatch";
+        }
+        return null;
+    }
+
+    /**
+     * The {@link System#nanoTime()} at which the document last returned by {@link #next()} was appended.
+     * For documents appended before a restart this is derived from the wall clock.
+     */
+    long appendedNanos()
+    {
+        return appendedNanos;
+    }
+
+    private void nextSegment(long writePosition)
+    {
+        if (segmentId < writePosition >>> 32)
+        {
+            segmentId++;
+            offset = 0;
+            segment = null;
+        }
+        else
+        {
+            //only reachable for a corrupt record in the segment being written, skip to its end
+            offset = (int) writePosition;
+        }
+    }
+
+    /**
+     * Position right after the last document returned by {@link #next()}.
+     */
+    SpoolPosition position()
+    {
+        return new SpoolPosition(segmentId, offset);
+    }
+}
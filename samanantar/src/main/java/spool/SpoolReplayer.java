@@ -0,0 +1,290 @@
+package spool;
+
+import codec.PetCodec;
+import com.mongodb.MongoBulkWriteException;
+import config.BatchConfiguration;
+import config.SpoolConfiguration;
+import model.Pet;
+import org.bson.RawBsonDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import repository.PetRepository;
+import writer.BatchListener;
+import writer.BatchResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams documents from a {@link DiskSpool} to the {@link PetRepository} in batches and checkpoints the spool behind them.
+ *
+ * A batch that fails as a whole (Mongo down or unreachable) is retried until it succeeds, so nothing
+ * that made it into the spool is lost. Replay is at-least-once: after a crash the documents since the
+ * last checkpoint are sent again. They keep the _id assigned when they were spooled, so the resulting
+ * duplicate key errors are counted as already written. Batches are therefore always unordered.
+ */
+public class SpoolReplayer implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpoolReplayer.class);
+
+    private static final long IDLE_SLEEP_MILLIS = 10;
+
+    private final DiskSpool spool;
+    private final SpoolReader reader;
+    private final PetRepository repository;
+    private final BatchListener<? super Pet> listener;
+    //may be changed while running, the replayer picks up new values with the next batch
+    private volatile int batchSize;
+    private volatile long lingerNanos;
+    private final long retryBackoffMillis;
+    private final long checkpointIntervalNanos;
+    private final long forceIntervalNanos;
+    private final Thread replayThread;
+
+    //append time of every document in the current batch, only touched by the replay thread
+    private long[] appendedNanos = new long[0];
+
+    private volatile boolean running;
+    private volatile Future<?> ready = CompletableFuture.completedFuture(null);
+
+    public SpoolReplayer(DiskSpool spool, PetRepository repository, BatchConfiguration batchConfiguration,
+                         SpoolConfiguration spoolConfiguration, BatchListener<? super Pet> listener)
+    {
+        this.spool = spool;
+        this.reader = new SpoolReader(spool);
+        this.repository = repository;
+        this.listener = listener;
+        this.batchSize = batchConfiguration.getSize();
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(batchConfiguration.getLingerMillis());
+        this.retryBackoffMillis = spoolConfiguration.getRetryBackoffMillis();
+        this.checkpointIntervalNanos = TimeUnit.MILLISECONDS.toNanos(spoolConfiguration.getCheckpointIntervalMillis());
+        this.forceIntervalNanos = TimeUnit.MILLISECONDS.toNanos(spoolConfiguration.getForceIntervalMillis());
+        this.replayThread = new Thread(this::replayLoop, "spool-replayer");
+    }
+
+    public void start()
+    {
+        start(CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Starts replaying once the given future completes, documents keep accumulating in the spool until then.
+     */
+    public void start(Future<?> ready)
+    {
+        this.ready = ready;
+        running = true;
+        replayThread.start();
+        LOGGER.info("Spool replayer started from {}", spool.getCheckpoint());
+    }
+
+    private void replayLoop()
+    {
+        List<Pet> batch = new ArrayList<>(batchSize);
+        long lastCheckpoint = System.nanoTime();
+        long lastForce = System.nanoTime();
+        SpoolPosition written = null;
+        try
+        {
+            awaitReady();
+            //keeps going after close until the spool is drained or Mongo stops accepting writes
+            while (true)
+            {
+                boolean drained = fillBatch(batch);
+                if (!batch.isEmpty())
+                {
+                    if (!write(batch))
+                    {
+                        break;
+                    }
+                    batch.clear();
+                    written = reader.position();
+                }
+                long now = System.nanoTime();
+                if (written != null && (now - lastCheckpoint >= checkpointIntervalNanos || drained))
+                {
+                    spool.commit(written);
+                    lastCheckpoint = now;
+                    written = null;
+                }
+                if (forceIntervalNanos > 0 && now - lastForce >= forceIntervalNanos)
+                {
+                    spool.force();
+                    lastForce = now;
+                }
+                if (drained)
+                {
+                    if (!running)
+                    {
+                        break;
+                    }
+                    TimeUnit.MILLISECONDS.sleep(IDLE_SLEEP_MILLIS);
+                }
+            }
+            if (written != null)
+            {
+                spool.commit(written);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("Spool replay stopped, the backlog stays on disk: {}", e.toString());
+        }
+    }
+
+    private void awaitReady() throws InterruptedException
+    {
+        try
+        {
+            ready.get();
+        }
+        catch (ExecutionException e)
+        {
+            //failed batches are retried until the repository can be reached
+            LOGGER.warn("Replaying although startup failed: {}", e.getCause().toString());
+        }
+    }
+
+    /**
+     * Reads up to a batch of documents, waiting up to the linger time for more once one has been read.
+     * @return true if the reader has caught up with the writer
+     */
+    private boolean fillBatch(List<Pet> batch) throws IOException, InterruptedException
+    {
+        int batchSize = this.batchSize;
+        long lingerNanos = this.lingerNanos;
+        long deadline = 0;
+        if (appendedNanos.length < batchSize)
+        {
+            appendedNanos = Arrays.copyOf(appendedNanos, batchSize);
+        }
+        while (batch.size() < batchSize)
+        {
+            RawBsonDocument document = reader.next();
+            if (document == null)
+            {
+                if (batch.isEmpty() || System.nanoTime() >= deadline || !running)
+                {
+                    return true;
+                }
+                TimeUnit.MILLISECONDS.sleep(1);
+                continue;
+            }
+            if (batch.isEmpty())
+            {
+                deadline = System.nanoTime() + lingerNanos;
+            }
+            Pet pet = new Pet();
+            pet.setId(document.getObjectId(PetCodec.ID).getValue());
+            pet.setEncoded(document);
+            appendedNanos[batch.size()] = reader.appendedNanos();
+            batch.add(pet);
+        }
+        return false;
+    }
+
+    /**
+     * Writes a batch, retrying failures of the whole batch.
+     * @return false if the replayer was closed while the batch could not be written
+     */
+    private boolean write(List<Pet> batch) throws InterruptedException
+    {
+        try
+        {
+            listener.onFlush(batch);
+        }
+        catch (RuntimeException ex)
+        {
+            LOGGER.error("Batch listener failed: {}", ex.toString());
+        }
+        int attempt = 1;
+        while (true)
+        {
+            long start = System.nanoTime();
+            try
+            {
+                repository.insertMany(batch, false);
+                notifyListener(batch, BatchResult.success(batch.size(), false, attempt, System.nanoTime() - start));
+                return true;
+            }
+            catch (MongoBulkWriteException ex)
+            {
+                //documents that were already written before a restart come back as duplicate keys
+                notifyListener(batch, BatchResult.fromBulkWriteException(batch.size(), false, attempt, ex, true,
+                        System.nanoTime() - start));
+                return true;
+            }
+            catch (RuntimeException ex)
+            {
+                if (!running)
+                {
+                    notifyListener(batch, BatchResult.failure(batch.size(), false, attempt, ex,
+                            System.nanoTime() - start));
+                    return false;
+                }
+                try
+                {
+                    listener.onRetry(batch, ex, attempt);
+                }
+                catch (RuntimeException listenerFailure)
+                {
+                    LOGGER.error("Batch listener failed: {}", listenerFailure.toString());
+                }
+                attempt++;
+                TimeUnit.MILLISECONDS.sleep(retryBackoffMillis);
+            }
+        }
+    }
+
+    private void notifyListener(List<Pet> batch, BatchResult result)
+    {
+        try
+        {
+            //operation latency runs from the append to the spool, including any time Mongo was down
+            listener.onBatch(batch, result.withEnqueueTimes(Arrays.copyOf(appendedNanos, batch.size())));
+        }
+        catch (RuntimeException ex)
+        {
+            LOGGER.error("Batch listener failed: {}", ex.toString());
+        }
+    }
+
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    public void setLingerMillis(long lingerMillis)
+    {
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+    }
+
+    /**
+     * Replays what is left in the spool and stops. If Mongo cannot be reached the remaining documents
+     * stay in the spool and are replayed on the next start.
+     */
+    @Override
+    public void close()
+    {
+        running = false;
+        try
+        {
+            replayThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Spool replayer stopped at {}", spool.getCheckpoint());
+    }
+}
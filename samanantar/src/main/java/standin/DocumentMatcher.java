@@ -0,0 +1,244 @@
+package standin;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+
+import java.util.Map;
+
+/**
+ * The subset of the query language the stand-in understands: implicit and explicit $and, $or,
+ * equality and the comparison operators $eq, $ne, $gt, $gte, $lt, $lte, $in, $nin and $exists on
+ * dotted paths. Numbers compare by value regardless of their BSON type. A filter on a field that holds
+ * an array matches if any element matches.
+ */
+final class DocumentMatcher
+{
+    private DocumentMatcher()
+    {
+    }
+
+    static boolean matches(BsonDocument document, BsonDocument filter)
+    {
+        for (Map.Entry<String, BsonValue> entry : filter.entrySet())
+        {
+            String key = entry.getKey();
+            if (key.equals("$and"))
+            {
+                for (BsonValue clause : entry.getValue().asArray())
+                {
+                    if (!matches(document, clause.asDocument()))
+                    {
+                        return false;
+                    }
+                }
+            }
+            else if (key.equals("$or"))
+            {
+                boolean any = false;
+                for (BsonValue clause : entry.getValue().asArray())
+                {
+                    if (matches(document, clause.asDocument()))
+                    {
+                        any = true;
+                        break;
+                    }
+                }
+                if (!any)
+                {
+                    return false;
+                }
+            }
+            else if (key.startsWith("$"))
+            {
+                throw new IllegalArgumentException("unknown top level operator: " + key);
+            }
+            else if (!matchesField(resolve(document, key), entry.getValue()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Value at a dotted path, or null if the document does not have it.
+     */
+    static BsonValue resolve(BsonDocument document, String path)
+    {
+        BsonValue current = document;
+        int start = 0;
+        while (start <= path.length())
+        {
+            int end = path.indexOf('.', start);
+            String name = end < 0 ? path.substring(start) : path.substring(start, end);
+            if (current == null || !current.isDocument())
+            {
+                return null;
+            }
+            current = current.asDocument().get(name);
+            if (end < 0)
+            {
+                return current;
+            }
+            start = end + 1;
+        }
+        return current;
+    }
+
+    private static boolean matchesField(BsonValue value, BsonValue condition)
+    {
+        if (!isOperatorDocument(condition))
+        {
+            return equalsOrContains(value, condition);
+        }
+        for (Map.Entry<String, BsonValue> operator : condition.asDocument().entrySet())
+        {
+            if (!matchesOperator(value, operator.getKey(), operator.getValue()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOperatorDocument(BsonValue condition)
+    {
+        if (!condition.isDocument() || condition.asDocument().isEmpty())
+        {
+            return false;
+        }
+        return condition.asDocument().getFirstKey().startsWith("$");
+    }
+
+    private static boolean matchesOperator(BsonValue value, String operator, BsonValue operand)
+    {
+        switch (operator)
+        {
+            case "$eq":
+                return equalsOrContains(value, operand);
+            case "$ne":
+                return !equalsOrContains(value, operand);
+            case "$gt":
+                return compareAny(value, operand, 1, false);
+            case "$gte":
+                return compareAny(value, operand, 1, true);
+            case "$lt":
+                return compareAny(value, operand, -1, false);
+            case "$lte":
+                return compareAny(value, operand, -1, true);
+            case "$in":
+                for (BsonValue candidate : operand.asArray())
+                {
+                    if (equalsOrContains(value, candidate))
+                    {
+                        return true;
+                    }
+                }
+                return false;
+            case "$nin":
+                return !matchesOperator(value, "$in", operand);
+            case "$exists":
+                return (value != null) == (operand.isBoolean() ? operand.asBoolean().getValue()
+                        : operand.isNumber() && operand.asNumber().doubleValue() != 0);
+            default:
+                throw new IllegalArgumentException("unknown operator: " + operator);
+        }
+    }
+
+    private static boolean equalsOrContains(BsonValue value, BsonValue operand)
+    {
+        if (value == null)
+        {
+            return operand.isNull();
+        }
+        if (valueEquals(value, operand))
+        {
+            return true;
+        }
+        if (value.isArray())
+        {
+            for (BsonValue element : value.asArray())
+            {
+                if (valueEquals(element, operand))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the value, or any element if it is an array, against the operand.
+     * @param sign 1 for greater than, -1 for less than
+     */
+    private static boolean compareAny(BsonValue value, BsonValue operand, int sign, boolean inclusive)
+    {
+        if (value == null)
+        {
+            return false;
+        }
+        if (value.isArray())
+        {
+            BsonArray elements = value.asArray();
+            for (BsonValue element : elements)
+            {
+                if (compareOne(element, operand, sign, inclusive))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return compareOne(value, operand, sign, inclusive);
+    }
+
+    private static boolean compareOne(BsonValue value, BsonValue operand, int sign, boolean inclusive)
+    {
+        Integer comparison = compare(value, operand);
+        if (comparison == null)
+        {
+            return false;
+        }
+        return comparison == 0 ? inclusive : Integer.signum(comparison) == sign;
+    }
+
+    private static boolean valueEquals(BsonValue value, BsonValue operand)
+    {
+        if (value.isNumber() && operand.isNumber())
+        {
+            return value.asNumber().doubleValue() == operand.asNumber().doubleValue();
+        }
+        return value.equals(operand);
+    }
+
+    /**
+     * Orders values of the same kind, or returns null for values that do not compare, like a string
+     * against a number, which never match a range operator.
+     */
+    private static Integer compare(BsonValue value, BsonValue operand)
+    {
+        if (value.isNumber() && operand.isNumber())
+        {
+            return Double.compare(value.asNumber().doubleValue(), operand.asNumber().doubleValue());
+        }
+        if (value.getBsonType() != operand.getBsonType())
+        {
+            return null;
+        }
+        switch (value.getBsonType())
+        {
+            case STRING:
+                return value.asString().getValue().compareTo(operand.asString().getValue());
+            case DATE_TIME:
+                return Long.compare(value.asDateTime().getValue(), operand.asDateTime().getValue());
+            case OBJECT_ID:
+                return value.asObjectId().getValue().compareTo(operand.asObjectId().getValue());
+            case BOOLEAN:
+                return Boolean.compare(value.asBoolean().getValue(), operand.asBoolean().getValue());
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package standin;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Documents of one namespace, kept in insertion order in an append-only array of chunks.
+ *
+ * Inserts are serialized, reads are not: a reader that has seen the size also sees every document
+ * below it, so cursors scan by position without holding a lock and see inserts that happen meanwhile.
+ * Only the unique index on _id is enforced, other indexes are recorded but not used.
+ */
+final class StandInCollection
+{
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private final boolean storeDocuments;
+    private final Map<BsonValue, Boolean> ids = new ConcurrentHashMap<>();
+    private final Map<String, BsonDocument> indexes = new LinkedHashMap<>();
+    //counts acknowledged inserts when documents are not stored
+    private final AtomicLong inserted = new AtomicLong();
+
+    private volatile RawBsonDocument[][] chunks = new RawBsonDocument[16][];
+    private volatile int size;
+
+    StandInCollection(boolean storeDocuments)
+    {
+        this.storeDocuments = storeDocuments;
+        indexes.put("_id_", new BsonDocument("v", new BsonInt32(2))
+                .append("key", new BsonDocument("_id", new BsonInt32(1)))
+                .append("name", new BsonString("_id_")));
+    }
+
+    /**
+     * Adds a document unless its _id is already taken.
+     * @return false for a duplicate _id
+     */
+    boolean insert(RawBsonDocument document)
+    {
+        if (!storeDocuments)
+        {
+            inserted.incrementAndGet();
+            return true;
+        }
+        BsonValue id = document.get("_id");
+        if (id != null && ids.putIfAbsent(id, Boolean.TRUE) != null)
+        {
+            return false;
+        }
+        append(document);
+        return true;
+    }
+
+    private synchronized void append(RawBsonDocument document)
+    {
+        int index = size;
+        RawBsonDocument[][] current = chunks;
+        int chunk = index >>> CHUNK_SHIFT;
+        if (chunk == current.length)
+        {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        if (current[chunk] == null)
+        {
+            current[chunk] = new RawBsonDocument[CHUNK_SIZE];
+        }
+        current[chunk][index & (CHUNK_SIZE - 1)] = document;
+        chunks = current;
+        //publishes the document and the chunk array to readers
+        size = index + 1;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Document at a position below a previously read {@link #size()}.
+     */
+    RawBsonDocument get(int index)
+    {
+        return chunks[index >>> CHUNK_SHIFT][index & (CHUNK_SIZE - 1)];
+    }
+
+    long count()
+    {
+        return storeDocuments ? size : inserted.get();
+    }
+
+    /**
+     * Records indexes by name.
+     * @return the number of indexes before
+     */
+    synchronized int createIndexes(List<BsonDocument> specifications)
+    {
+        int before = indexes.size();
+        for (BsonDocument specification : specifications)
+        {
+            indexes.put(specification.getString("name").getValue(), specification);
+        }
+        return before;
+    }
+
+    synchronized List<BsonDocument> listIndexes()
+    {
+        return new ArrayList<>(indexes.values());
+    }
+
+    synchronized int indexCount()
+    {
+        return indexes.size();
+    }
+}
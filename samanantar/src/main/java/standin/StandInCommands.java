@@ -0,0 +1,621 @@
+package standin;
+
+import org.bson.BsonArray;
+import org.bson.BsonBoolean;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonDouble;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonInvalidOperationException;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes the commands the driver sends for the mongo repository engine against in-memory collections:
+ * the handshake, insert, find with getMore and killCursors, count, createIndexes and listIndexes,
+ * and aggregate for the pipelines countDocuments builds ($match, $skip and $limit followed by $group
+ * with $sum, or $count). Everything else is answered with CommandNotFound.
+ */
+final class StandInCommands
+{
+    static final int MAX_WIRE_VERSION = 8;
+    private static final int MAX_BSON_OBJECT_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_MESSAGE_SIZE = 48_000_000;
+    private static final int MAX_WRITE_BATCH_SIZE = 100_000;
+    //what the server returns in a first batch when the driver does not ask for a batch size
+    private static final int DEFAULT_FIRST_BATCH = 101;
+    //batches are cut at this size, the rest is left for the next getMore
+    private static final int MAX_BATCH_BYTES = MAX_BSON_OBJECT_SIZE - 64 * 1024;
+
+    private final boolean storeDocuments;
+    private final Map<String, StandInCollection> collections = new ConcurrentHashMap<>();
+    private final Map<Long, Cursor> cursors = new ConcurrentHashMap<>();
+    private final AtomicLong cursorIds = new AtomicLong();
+
+    StandInCommands(boolean storeDocuments)
+    {
+        this.storeDocuments = storeDocuments;
+    }
+
+    BsonDocument execute(String database, BsonDocument command, int connectionId)
+    {
+        String name = command.getFirstKey();
+        try
+        {
+            switch (name)
+            {
+                case "isMaster":
+                case "ismaster":
+                case "hello":
+                    return hello(name.equals("hello"), connectionId);
+                case "ping":
+                case "endSessions":
+                    return ok();
+                case "buildInfo":
+                case "buildinfo":
+                    return ok().append("version", new BsonString("4.2.0-standin"))
+                            .append("versionArray", new BsonArray(Arrays.<BsonValue>asList(
+                                    new BsonInt32(4), new BsonInt32(2), new BsonInt32(0), new BsonInt32(0))))
+                            .append("maxBsonObjectSize", new BsonInt32(MAX_BSON_OBJECT_SIZE));
+                case "insert":
+                    return insert(database, command);
+                case "find":
+                    return find(database, command);
+                case "getMore":
+                    return getMore(command);
+                case "killCursors":
+                    return killCursors(command);
+                case "count":
+                    return count(database, command);
+                case "aggregate":
+                    return aggregate(database, command);
+                case "createIndexes":
+                    return createIndexes(database, command);
+                case "listIndexes":
+                    return listIndexes(database, command);
+                case "drop":
+                    return drop(database, command);
+                default:
+                    return error(59, "CommandNotFound", "no such command: '" + name + "'");
+            }
+        }
+        catch (IllegalArgumentException | ClassCastException | BsonInvalidOperationException ex)
+        {
+            return error(2, "BadValue", name + " not understood by the stand-in: " + ex.getMessage());
+        }
+    }
+
+    private static BsonDocument hello(boolean hello, int connectionId)
+    {
+        return new BsonDocument(hello ? "isWritablePrimary" : "ismaster", BsonBoolean.TRUE)
+                .append("maxBsonObjectSize", new BsonInt32(MAX_BSON_OBJECT_SIZE))
+                .append("maxMessageSizeBytes", new BsonInt32(MAX_MESSAGE_SIZE))
+                .append("maxWriteBatchSize", new BsonInt32(MAX_WRITE_BATCH_SIZE))
+                .append("localTime", new BsonDateTime(System.currentTimeMillis()))
+                .append("logicalSessionTimeoutMinutes", new BsonInt32(30))
+                .append("connectionId", new BsonInt32(connectionId))
+                .append("minWireVersion", new BsonInt32(0))
+                .append("maxWireVersion", new BsonInt32(MAX_WIRE_VERSION))
+                .append("readOnly", BsonBoolean.FALSE)
+                .append("ok", new BsonDouble(1));
+    }
+
+    private BsonDocument insert(String database, BsonDocument command)
+    {
+        String namespace = namespace(database, command.getString("insert").getValue());
+        StandInCollection collection = collections.computeIfAbsent(namespace, ns -> new StandInCollection(storeDocuments));
+        boolean ordered = command.getBoolean("ordered", BsonBoolean.TRUE).getValue();
+        BsonArray documents = command.getArray("documents");
+        BsonArray writeErrors = new BsonArray();
+        int inserted = 0;
+        for (int i = 0; i < documents.size(); i++)
+        {
+            RawBsonDocument document = raw(documents.get(i).asDocument());
+            if (collection.insert(document))
+            {
+                inserted++;
+                continue;
+            }
+            writeErrors.add(new BsonDocument("index", new BsonInt32(i))
+                    .append("code", new BsonInt32(11000))
+                    .append("errmsg", new BsonString("E11000 duplicate key error collection: " + namespace
+                            + " index: _id_ dup key: { _id: " + document.get("_id") + " }")));
+            if (ordered)
+            {
+                break;
+            }
+        }
+        BsonDocument reply = new BsonDocument("n", new BsonInt32(inserted));
+        if (!writeErrors.isEmpty())
+        {
+            reply.append("writeErrors", writeErrors);
+        }
+        return reply.append("ok", new BsonDouble(1));
+    }
+
+    private BsonDocument find(String database, BsonDocument command)
+    {
+        String namespace = namespace(database, command.getString("find").getValue());
+        BsonDocument filter = command.getDocument("filter", new BsonDocument());
+        BsonDocument projection = command.getDocument("projection", null);
+        long limit = Math.abs(number(command, "limit", 0));
+        boolean singleBatch = command.getBoolean("singleBatch", BsonBoolean.FALSE).getValue();
+        int batchSize = (int) number(command, "batchSize", DEFAULT_FIRST_BATCH);
+        Cursor cursor = new Cursor(namespace, collections.get(namespace), filter, projection,
+                number(command, "skip", 0), limit > 0 ? limit : Long.MAX_VALUE);
+        BsonArray batch = cursor.next(singleBatch && limit > 0 ? (int) Math.min(limit, Integer.MAX_VALUE) : batchSize);
+        long id = 0;
+        if (!cursor.isExhausted() && !singleBatch)
+        {
+            id = cursorIds.incrementAndGet();
+            cursors.put(id, cursor);
+        }
+        return cursorReply(namespace, "firstBatch", batch, id);
+    }
+
+    private BsonDocument getMore(BsonDocument command)
+    {
+        long id = command.getInt64("getMore").getValue();
+        Cursor cursor = cursors.get(id);
+        if (cursor == null)
+        {
+            return error(43, "CursorNotFound", "cursor id " + id + " not found");
+        }
+        BsonArray batch;
+        //a cursor is only ever used by one thread at a time, this guards against a broken client
+        synchronized (cursor)
+        {
+            batch = cursor.next((int) number(command, "batchSize", 0));
+        }
+        if (cursor.isExhausted())
+        {
+            cursors.remove(id);
+            id = 0;
+        }
+        return cursorReply(cursor.namespace, "nextBatch", batch, id);
+    }
+
+    private BsonDocument killCursors(BsonDocument command)
+    {
+        BsonArray killed = new BsonArray();
+        BsonArray notFound = new BsonArray();
+        for (BsonValue id : command.getArray("cursors"))
+        {
+            (cursors.remove(id.asInt64().getValue()) != null ? killed : notFound).add(id);
+        }
+        return new BsonDocument("cursorsKilled", killed)
+                .append("cursorsNotFound", notFound)
+                .append("cursorsAlive", new BsonArray())
+                .append("cursorsUnknown", new BsonArray())
+                .append("ok", new BsonDouble(1));
+    }
+
+    private BsonDocument count(String database, BsonDocument command)
+    {
+        StandInCollection collection = collections.get(namespace(database, command.getString("count").getValue()));
+        BsonDocument query = command.getDocument("query", new BsonDocument());
+        long skip = number(command, "skip", 0);
+        long limit = number(command, "limit", 0);
+        long n;
+        if (collection == null)
+        {
+            n = 0;
+        }
+        else if (query.isEmpty())
+        {
+            n = collection.count();
+        }
+        else
+        {
+            n = 0;
+            int size = collection.size();
+            for (int i = 0; i < size; i++)
+            {
+                if (DocumentMatcher.matches(collection.get(i), query))
+                {
+                    n++;
+                }
+            }
+        }
+        n = Math.max(0, n - skip);
+        if (limit != 0)
+        {
+            n = Math.min(n, Math.abs(limit));
+        }
+        return new BsonDocument("n", new BsonInt64(n)).append("ok", new BsonDouble(1));
+    }
+
+    /**
+     * Runs $match, $skip and $limit stages over the collection and groups what is left in a final
+     * $group or $count stage. The result always fits into the first batch.
+     */
+    private BsonDocument aggregate(String database, BsonDocument command)
+    {
+        String namespace = namespace(database, command.getString("aggregate").getValue());
+        List<BsonDocument> stages = new ArrayList<>();
+        for (BsonValue stage : command.getArray("pipeline"))
+        {
+            stages.add(stage.asDocument());
+        }
+        BsonDocument last = stages.isEmpty() ? null : stages.remove(stages.size() - 1);
+        if (last == null || !(last.containsKey("$group") || last.containsKey("$count")))
+        {
+            return error(40324, "Location40324", "the stand-in only runs pipelines that end in $group or $count");
+        }
+        for (BsonDocument stage : stages)
+        {
+            String stageName = stage.getFirstKey();
+            if (!stageName.equals("$match") && !stageName.equals("$skip") && !stageName.equals("$limit"))
+            {
+                return error(40324, "Location40324", "Unrecognized pipeline stage name: '" + stageName + "'");
+            }
+        }
+        Group group = last.containsKey("$group") ? new Group(last.getDocument("$group"))
+                : new Group(new BsonDocument("_id", BsonNull.VALUE).append(last.getString("$count").getValue(),
+                        new BsonDocument("$sum", new BsonInt32(1))));
+
+        StandInCollection collection = collections.get(namespace);
+        int size = collection != null ? collection.size() : 0;
+        long[] counters = new long[stages.size()];
+        for (int i = 0; i < size; i++)
+        {
+            RawBsonDocument document = collection.get(i);
+            if (passes(document, stages, counters))
+            {
+                group.add(document);
+            }
+        }
+        BsonArray results = group.results();
+        if (last.containsKey("$count"))
+        {
+            for (BsonValue result : results)
+            {
+                result.asDocument().remove("_id");
+            }
+        }
+        return cursorReply(namespace, "firstBatch", results, 0);
+    }
+
+    private static boolean passes(BsonDocument document, List<BsonDocument> stages, long[] counters)
+    {
+        for (int i = 0; i < stages.size(); i++)
+        {
+            BsonDocument stage = stages.get(i);
+            switch (stage.getFirstKey())
+            {
+                case "$match":
+                    if (!DocumentMatcher.matches(document, stage.getDocument("$match")))
+                    {
+                        return false;
+                    }
+                    break;
+                case "$skip":
+                    if (counters[i]++ < stage.get("$skip").asNumber().longValue())
+                    {
+                        return false;
+                    }
+                    break;
+                default:
+                    if (counters[i]++ >= stage.get("$limit").asNumber().longValue())
+                    {
+                        return false;
+                    }
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private BsonDocument createIndexes(String database, BsonDocument command)
+    {
+        String namespace = namespace(database, command.getString("createIndexes").getValue());
+        boolean created = !collections.containsKey(namespace);
+        StandInCollection collection = collections.computeIfAbsent(namespace, ns -> new StandInCollection(storeDocuments));
+        List<BsonDocument> specifications = new ArrayList<>();
+        for (BsonValue index : command.getArray("indexes"))
+        {
+            specifications.add(index.asDocument());
+        }
+        int before = collection.createIndexes(specifications);
+        return new BsonDocument("createdCollectionAutomatically", BsonBoolean.valueOf(created))
+                .append("numIndexesBefore", new BsonInt32(before))
+                .append("numIndexesAfter", new BsonInt32(collection.indexCount()))
+                .append("ok", new BsonDouble(1));
+    }
+
+    private BsonDocument listIndexes(String database, BsonDocument command)
+    {
+        String namespace = namespace(database, command.getString("listIndexes").getValue());
+        StandInCollection collection = collections.get(namespace);
+        if (collection == null)
+        {
+            return error(26, "NamespaceNotFound", "ns does not exist: " + namespace);
+        }
+        return cursorReply(namespace, "firstBatch", new BsonArray(collection.listIndexes()), 0);
+    }
+
+    private BsonDocument drop(String database, BsonDocument command)
+    {
+        String namespace = namespace(database, command.getString("drop").getValue());
+        StandInCollection collection = collections.remove(namespace);
+        if (collection == null)
+        {
+            return error(26, "NamespaceNotFound", "ns not found");
+        }
+        return new BsonDocument("ns", new BsonString(namespace))
+                .append("nIndexesWas", new BsonInt32(collection.indexCount()))
+                .append("ok", new BsonDouble(1));
+    }
+
+    int openCursors()
+    {
+        return cursors.size();
+    }
+
+    static BsonDocument ok()
+    {
+        return new BsonDocument("ok", new BsonDouble(1));
+    }
+
+    static BsonDocument error(int code, String codeName, String message)
+    {
+        return new BsonDocument("ok", new BsonDouble(0))
+                .append("errmsg", new BsonString(message))
+                .append("code", new BsonInt32(code))
+                .append("codeName", new BsonString(codeName));
+    }
+
+    private static BsonDocument cursorReply(String namespace, String batchName, BsonArray batch, long id)
+    {
+        return new BsonDocument("cursor", new BsonDocument(batchName, batch)
+                .append("id", new BsonInt64(id))
+                .append("ns", new BsonString(namespace)))
+                .append("ok", new BsonDouble(1));
+    }
+
+    private static String namespace(String database, String collection)
+    {
+        return database + "." + collection;
+    }
+
+    private static long number(BsonDocument command, String key, long defaultValue)
+    {
+        BsonValue value = command.get(key);
+        return value != null && value.isNumber() ? value.asNumber().longValue() : defaultValue;
+    }
+
+    private static RawBsonDocument raw(BsonDocument document)
+    {
+        return document instanceof RawBsonDocument ? (RawBsonDocument) document
+                : new RawBsonDocument(document, new BsonDocumentCodec());
+    }
+
+    /**
+     * Position of a find in a collection. The end is fixed when the cursor is opened, so paging through
+     * a collection that is written to meanwhile terminates.
+     */
+    private static final class Cursor
+    {
+        private final String namespace;
+        private final StandInCollection collection;
+        private final BsonDocument filter;
+        private final BsonDocument projection;
+        private final int end;
+        private long skip;
+        private long remaining;
+        private int position;
+
+        private Cursor(String namespace, StandInCollection collection, BsonDocument filter, BsonDocument projection,
+                       long skip, long limit)
+        {
+            this.namespace = namespace;
+            this.collection = collection;
+            this.filter = filter;
+            this.projection = projection != null && !projection.isEmpty() ? projection : null;
+            this.end = collection != null ? collection.size() : 0;
+            this.skip = skip;
+            this.remaining = limit;
+        }
+
+        /**
+         * Next batch of matching documents.
+         * @param batchSize 0 for as many as fit into a reply
+         */
+        private BsonArray next(int batchSize)
+        {
+            BsonArray batch = new BsonArray();
+            long bytes = 0;
+            while (position < end && remaining > 0 && (batchSize <= 0 || batch.size() < batchSize)
+                    && bytes < MAX_BATCH_BYTES)
+            {
+                RawBsonDocument document = collection.get(position++);
+                if (!DocumentMatcher.matches(document, filter))
+                {
+                    continue;
+                }
+                if (skip > 0)
+                {
+                    skip--;
+                    continue;
+                }
+                remaining--;
+                bytes += document.getByteBuffer().remaining();
+                batch.add(projection != null ? project(document, projection) : document);
+            }
+            return batch;
+        }
+
+        private boolean isExhausted()
+        {
+            return position >= end || remaining <= 0;
+        }
+    }
+
+    /**
+     * Applies an inclusion projection on dotted paths, or an exclusion projection on top level fields.
+     * _id is included unless it is excluded explicitly.
+     */
+    static BsonDocument project(BsonDocument document, BsonDocument projection)
+    {
+        boolean inclusion = false;
+        for (Map.Entry<String, BsonValue> field : projection.entrySet())
+        {
+            if (!field.getKey().equals("_id") && isTrue(field.getValue()))
+            {
+                inclusion = true;
+            }
+        }
+        boolean includeId = !projection.containsKey("_id") || isTrue(projection.get("_id"));
+        BsonDocument projected = new BsonDocument();
+        if (!inclusion)
+        {
+            for (Map.Entry<String, BsonValue> field : document.entrySet())
+            {
+                BsonValue specification = projection.get(field.getKey());
+                if (specification == null || isTrue(specification))
+                {
+                    projected.put(field.getKey(), field.getValue());
+                }
+            }
+            return projected;
+        }
+        if (includeId && document.containsKey("_id"))
+        {
+            projected.put("_id", document.get("_id"));
+        }
+        for (Map.Entry<String, BsonValue> field : projection.entrySet())
+        {
+            String path = field.getKey();
+            if (path.equals("_id") || !isTrue(field.getValue()))
+            {
+                continue;
+            }
+            BsonValue value = DocumentMatcher.resolve(document, path);
+            if (value != null)
+            {
+                put(projected, path, value);
+            }
+        }
+        return projected;
+    }
+
+    private static void put(BsonDocument target, String path, BsonValue value)
+    {
+        int dot = path.indexOf('.');
+        if (dot < 0)
+        {
+            target.put(path, value);
+            return;
+        }
+        String name = path.substring(0, dot);
+        BsonValue child = target.get(name);
+        if (child == null || !child.isDocument())
+        {
+            child = new BsonDocument();
+            target.put(name, child);
+        }
+        put(child.asDocument(), path.substring(dot + 1), value);
+    }
+
+    private static boolean isTrue(BsonValue value)
+    {
+        return value.isBoolean() ? value.asBoolean().getValue() : !value.isNumber() || value.asNumber().doubleValue() != 0;
+    }
+
+    /**
+     * A $group stage whose accumulators are all $sum, over a constant or a field.
+     */
+    private static final class Group
+    {
+        private final BsonValue key;
+        private final Map<String, BsonValue> sums = new LinkedHashMap<>();
+        private final Map<BsonValue, double[]> groups = new LinkedHashMap<>();
+        //groups that summed a double, their totals are returned as doubles
+        private final Set<BsonValue> fractional = new HashSet<>();
+
+        private Group(BsonDocument specification)
+        {
+            key = specification.get("_id");
+            if (key == null)
+            {
+                throw new IllegalArgumentException("a group specification must include an _id");
+            }
+            for (Map.Entry<String, BsonValue> field : specification.entrySet())
+            {
+                if (field.getKey().equals("_id"))
+                {
+                    continue;
+                }
+                BsonDocument accumulator = field.getValue().asDocument();
+                if (!accumulator.getFirstKey().equals("$sum"))
+                {
+                    throw new IllegalArgumentException("unsupported accumulator " + accumulator.getFirstKey());
+                }
+                sums.put(field.getKey(), accumulator.get("$sum"));
+            }
+        }
+
+        private void add(BsonDocument document)
+        {
+            BsonValue groupKey = evaluate(key, document);
+            double[] totals = groups.computeIfAbsent(groupKey, k -> new double[sums.size()]);
+            int i = 0;
+            for (BsonValue operand : sums.values())
+            {
+                BsonValue value = evaluate(operand, document);
+                if (value.isNumber())
+                {
+                    totals[i] += value.asNumber().doubleValue();
+                    if (value.isDouble())
+                    {
+                        fractional.add(groupKey);
+                    }
+                }
+                i++;
+            }
+        }
+
+        private static BsonValue evaluate(BsonValue expression, BsonDocument document)
+        {
+            if (expression.isString() && expression.asString().getValue().startsWith("$"))
+            {
+                BsonValue value = DocumentMatcher.resolve(document, expression.asString().getValue().substring(1));
+                return value != null ? value : BsonNull.VALUE;
+            }
+            return expression;
+        }
+
+        private BsonArray results()
+        {
+            BsonArray results = new BsonArray();
+            for (Map.Entry<BsonValue, double[]> group : groups.entrySet())
+            {
+                BsonDocument result = new BsonDocument("_id", group.getKey());
+                boolean integer = !fractional.contains(group.getKey());
+                int i = 0;
+                for (String field : sums.keySet())
+                {
+                    double total = group.getValue()[i++];
+                    result.put(field, integer ? total <= Integer.MAX_VALUE ? new BsonInt32((int) total)
+                            : new BsonInt64((long) total) : new BsonDouble(total));
+                }
+                results.add(result);
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,422 @@
+package standin;
+
+import config.StandInConfiguration;
+import org.bson.BsonArray;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.ConcurrentUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process stand-in for a standalone mongod, for load tests without a Mongo server.
+ *
+ * It listens on localhost and speaks enough of the wire protocol for the sync driver: OP_QUERY for the
+ * connection handshake and OP_MSG, including document sequences, for everything else. Every connection
+ * gets its own thread, like mongod does, so the driver's pool size is the server's concurrency.
+ * Compression is never negotiated.
+ *
+ * Data commands can be slowed down by a fixed latency plus jitter, answered with an error, or answered
+ * by closing the connection, each at a configured rate. The handshake, heartbeats and session commands
+ * are never slowed down or failed, so the driver keeps seeing a healthy server that is merely slow or
+ * flaky under load.
+ */
+public class StandInServer implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(StandInServer.class);
+
+    private static final int OP_REPLY = 1;
+    private static final int OP_QUERY = 2004;
+    private static final int OP_MSG = 2013;
+    private static final int CHECKSUM_PRESENT = 1;
+    private static final int MORE_TO_COME = 1 << 1;
+    private static final int HEADER_SIZE = 16;
+
+    private static final Set<String> CONTROL_COMMANDS = new HashSet<>(Arrays.asList(
+            "isMaster", "ismaster", "hello", "ping", "buildInfo", "buildinfo", "endSessions", "killCursors"));
+    private static final EncoderContext ENCODER_CONTEXT = EncoderContext.builder().build();
+
+    private final StandInConfiguration configuration;
+    private final StandInCommands commands;
+    private final BsonDocumentCodec codec = new BsonDocumentCodec();
+    private final ExecutorService connections;
+    private final Map<Integer, Socket> sockets = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionIds = new AtomicInteger();
+    private final AtomicInteger responseIds = new AtomicInteger();
+
+    private final LongAdder commandCount = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+    private final LongAdder injectedDisconnects = new LongAdder();
+
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+
+    public StandInServer(StandInConfiguration configuration)
+    {
+        this.configuration = configuration;
+        this.commands = new StandInCommands(configuration.isStoreDocuments());
+        this.connections = ConcurrentUtils.newCachedThreadPool("standin-connection", true);
+    }
+
+    public void start() throws IOException
+    {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), configuration.getPort()));
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "standin-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        LOGGER.info("Mongo stand-in listening on port {}, latency: {}ms + up to {}ms, error rate: {}, disconnect rate: {}, "
+                        + "store documents: {}", getPort(), configuration.getLatencyMillis(),
+                configuration.getLatencyJitterMillis(), configuration.getErrorRate(),
+                configuration.getDisconnectRate(), configuration.isStoreDocuments());
+    }
+
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Connection string of the stand-in. A single host without a replica set name, so the driver treats it as a standalone.
+     */
+    public String getConnectionString()
+    {
+        return "mongodb://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + getPort();
+    }
+
+    private void acceptLoop()
+    {
+        while (running)
+        {
+            try
+            {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                int connectionId = connectionIds.incrementAndGet();
+                sockets.put(connectionId, socket);
+                connections.execute(() -> serve(socket, connectionId));
+            }
+            catch (IOException e)
+            {
+                if (running)
+                {
+                    LOGGER.warn("Mongo stand-in could not accept a connection: {}", e.toString());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket, int connectionId)
+    {
+        Thread.currentThread().setName("standin-connection-" + connectionId);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream()))
+        {
+            while (running)
+            {
+                ByteBuffer message = readMessage(in);
+                if (message == null || !handle(message, out, connectionId))
+                {
+                    return;
+                }
+            }
+        }
+        catch (SocketException e)
+        {
+            //the client or close() closed the connection
+        }
+        catch (IOException | RuntimeException e)
+        {
+            LOGGER.warn("Mongo stand-in closed connection {}: {}", connectionId, e.toString());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            sockets.remove(connectionId);
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * Reads a whole message, or returns null at the end of the stream.
+     */
+    private static ByteBuffer readMessage(DataInputStream in) throws IOException
+    {
+        byte[] length = new byte[4];
+        try
+        {
+            in.readFully(length);
+        }
+        catch (EOFException e)
+        {
+            return null;
+        }
+        int size = ByteBuffer.wrap(length).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if (size < HEADER_SIZE)
+        {
+            throw new IOException("Invalid message length " + size);
+        }
+        byte[] message = new byte[size];
+        System.arraycopy(length, 0, message, 0, 4);
+        in.readFully(message, 4, size - 4);
+        return ByteBuffer.wrap(message).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Executes one message and writes the reply.
+     * @return false if the connection has to be closed
+     */
+    private boolean handle(ByteBuffer message, OutputStream out, int connectionId)
+            throws IOException, InterruptedException
+    {
+        int size = message.getInt();
+        int requestId = message.getInt();
+        message.getInt();
+        int opCode = message.getInt();
+        if (opCode == OP_QUERY)
+        {
+            message.getInt();
+            String collection = readCString(message);
+            message.getInt();
+            message.getInt();
+            BsonDocument command = readDocument(message);
+            if (!collection.endsWith(".$cmd"))
+            {
+                throw new IOException("Legacy queries are not supported: " + collection);
+            }
+            String database = collection.substring(0, collection.length() - ".$cmd".length());
+            BsonDocument reply = run(database, command, connectionId);
+            if (reply == null)
+            {
+                return false;
+            }
+            writeReply(out, requestId, reply);
+            return true;
+        }
+        if (opCode != OP_MSG)
+        {
+            throw new IOException("Unsupported op code " + opCode);
+        }
+        int flags = message.getInt();
+        int end = (flags & CHECKSUM_PRESENT) != 0 ? size - 4 : size;
+        BsonDocument body = null;
+        BsonDocument sequences = new BsonDocument();
+        while (message.position() < end)
+        {
+            byte kind = message.get();
+            if (kind == 0)
+            {
+                body = readDocument(message);
+                continue;
+            }
+            //a document sequence becomes an array field of the command, like the server treats it
+            int sectionEnd = message.position() + message.getInt();
+            String identifier = readCString(message);
+            BsonArray documents = new BsonArray();
+            while (message.position() < sectionEnd)
+            {
+                documents.add(readDocument(message));
+            }
+            sequences.put(identifier, documents);
+        }
+        if (body == null)
+        {
+            throw new IOException("OP_MSG without a body");
+        }
+        BsonDocument command = body;
+        if (!sequences.isEmpty())
+        {
+            command = new BsonDocument();
+            command.putAll(body);
+            command.putAll(sequences);
+        }
+        BsonDocument reply = run(command.getString("$db").getValue(), command, connectionId);
+        if (reply == null)
+        {
+            return false;
+        }
+        if ((flags & MORE_TO_COME) == 0)
+        {
+            writeMessage(out, requestId, reply);
+        }
+        return true;
+    }
+
+    /**
+     * Executes a command with the configured faults.
+     * @return null if the connection is to be dropped instead of answered
+     */
+    private BsonDocument run(String database, BsonDocument command, int connectionId) throws InterruptedException
+    {
+        commandCount.increment();
+        if (!CONTROL_COMMANDS.contains(command.getFirstKey()))
+        {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long latency = configuration.getLatencyMillis();
+            if (configuration.getLatencyJitterMillis() > 0)
+            {
+                latency += random.nextLong(configuration.getLatencyJitterMillis() + 1);
+            }
+            if (latency > 0)
+            {
+                TimeUnit.MILLISECONDS.sleep(latency);
+            }
+            if (random.nextDouble() < configuration.getDisconnectRate())
+            {
+                injectedDisconnects.increment();
+                return null;
+            }
+            if (random.nextDouble() < configuration.getErrorRate())
+            {
+                injectedErrors.increment();
+                return StandInCommands.error(1, "InternalError", "injected failure");
+            }
+        }
+        return commands.execute(database, command, connectionId);
+    }
+
+    private static BsonDocument readDocument(ByteBuffer message)
+    {
+        int length = message.getInt(message.position());
+        //shares the message buffer, inserted documents are stored without copying them
+        RawBsonDocument document = new RawBsonDocument(message.array(), message.position(), length);
+        message.position(message.position() + length);
+        return document;
+    }
+
+    private static String readCString(ByteBuffer message)
+    {
+        int start = message.position();
+        while (message.get() != 0)
+        {
+            //scans to the terminating zero
+        }
+        return new String(message.array(), start, message.position() - start - 1, StandardCharsets.UTF_8);
+    }
+
+    private void writeMessage(OutputStream out, int responseTo, BsonDocument reply) throws IOException
+    {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        writeHeader(buffer, responseTo, OP_MSG);
+        buffer.writeInt32(0);
+        buffer.writeByte(0);
+        codec.encode(new BsonBinaryWriter(buffer), reply, ENCODER_CONTEXT);
+        send(out, buffer);
+    }
+
+    private void writeReply(OutputStream out, int responseTo, BsonDocument reply) throws IOException
+    {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        writeHeader(buffer, responseTo, OP_REPLY);
+        buffer.writeInt32(0);
+        buffer.writeInt64(0);
+        buffer.writeInt32(0);
+        buffer.writeInt32(1);
+        codec.encode(new BsonBinaryWriter(buffer), reply, ENCODER_CONTEXT);
+        send(out, buffer);
+    }
+
+    private void writeHeader(BasicOutputBuffer buffer, int responseTo, int opCode)
+    {
+        //the length is filled in once the message is complete
+        buffer.writeInt32(0);
+        buffer.writeInt32(responseIds.incrementAndGet());
+        buffer.writeInt32(responseTo);
+        buffer.writeInt32(opCode);
+    }
+
+    private static void send(OutputStream out, BasicOutputBuffer buffer) throws IOException
+    {
+        buffer.writeInt32(0, buffer.getPosition());
+        buffer.pipe(out);
+        out.flush();
+    }
+
+    private static void closeQuietly(Socket socket)
+    {
+        try
+        {
+            socket.close();
+        }
+        catch (IOException e)
+        {
+            //nothing left to do with it
+        }
+    }
+
+    public long getCommandCount()
+    {
+        return commandCount.sum();
+    }
+
+    public long getInjectedErrors()
+    {
+        return injectedErrors.sum();
+    }
+
+    public long getInjectedDisconnects()
+    {
+        return injectedDisconnects.sum();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones. Stored documents are gone afterwards.
+     */
+    @Override
+    public void close()
+    {
+        running = false;
+        if (serverSocket != null)
+        {
+            try
+            {
+                serverSocket.close();
+            }
+            catch (IOException e)
+            {
+                LOGGER.warn("Could not close the Mongo stand-in socket: {}", e.toString());
+            }
+        }
+        for (Socket socket : sockets.values())
+        {
+            closeQuietly(socket);
+        }
+        connections.shutdownNow();
+        LOGGER.info("Mongo stand-in stopped after {} commands, injected errors: {}, injected disconnects: {}, "
+                        + "open cursors: {}", getCommandCount(), getInjectedErrors(), getInjectedDisconnects(),
+                commands.openCursors());
+    }
+}
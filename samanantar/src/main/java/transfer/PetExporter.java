@@ -0,0 +1,81 @@
+package transfer;
+
+import model.Pet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import repository.PetCursor;
+import repository.PetQuery;
+import repository.PetRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes all pets to a gzip compressed file with one JSON document per line.
+ *
+ * Pets are read through a cursor and written as they arrive, so memory use does not depend on the
+ * size of the collection. Documents are written in relaxed extended JSON and keep their _id, which
+ * makes a repeated import of the same file skip the pets it already wrote.
+ */
+public class PetExporter
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PetExporter.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final PetRepository repository;
+    private final int batchSize;
+    private final int compressionLevel;
+
+    public PetExporter(PetRepository repository, int batchSize, int compressionLevel)
+    {
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * @return the number of pets written
+     */
+    public long export(Path file) throws IOException
+    {
+        long start = System.nanoTime();
+        long pets = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                     new LeveledGzipOutputStream(Channels.newOutputStream(channel), compressionLevel),
+                     StandardCharsets.UTF_8),
+                     BUFFER_SIZE);
+             PetCursor cursor = repository.stream(PetQuery.all().batchSize(batchSize)))
+        {
+            while (cursor.hasNext())
+            {
+                Pet pet = cursor.next();
+                PetJson.write(pet, out);
+                out.write('\n');
+                pets++;
+            }
+        }
+        TransferStats.log(LOGGER, "Exported", pets, file, System.nanoTime() - start);
+        return pets;
+    }
+
+    private static final class LeveledGzipOutputStream extends GZIPOutputStream
+    {
+        private LeveledGzipOutputStream(OutputStream out, int level) throws IOException
+        {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
+}
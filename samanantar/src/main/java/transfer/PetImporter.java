@@ -0,0 +1,185 @@
+package transfer;
+
+import codec.PetCodec;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import model.Pet;
+import org.bson.BsonInvalidOperationException;
+import org.bson.codecs.DecoderContext;
+import org.bson.json.JsonParseException;
+import org.bson.json.JsonReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import repository.PetRepository;
+import util.ConcurrentUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads pets from a file written by {@link PetExporter} and inserts them in bulk.
+ *
+ * The calling thread decompresses the file and cuts it into chunks of lines, a pool of threads
+ * parses the chunks and inserts each one with an unordered insertMany. At most two chunks per thread
+ * are held at a time, so memory use does not depend on the size of the file. Pets whose _id already
+ * exists are counted as skipped, lines that cannot be parsed as invalid. The import stops at the first
+ * insert that fails as a whole.
+ */
+public class PetImporter
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(PetImporter.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+    private static final int MAX_ERRORS_LOGGED = 5;
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    private final PetRepository repository;
+    private final int batchSize;
+    private final int threads;
+    private final PetCodec petCodec = new PetCodec();
+
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    public PetImporter(PetRepository repository, int batchSize, int threads)
+    {
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return the number of pets inserted
+     */
+    public long importFrom(Path file) throws IOException, InterruptedException
+    {
+        long start = System.nanoTime();
+        ExecutorService workers = ConcurrentUtils.newFixedThreadPool("import", threads);
+        Semaphore chunks = new Semaphore(threads * 2);
+        long lines = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE), StandardCharsets.UTF_8),
+                     BUFFER_SIZE))
+        {
+            List<String> chunk = new ArrayList<>(batchSize);
+            String line;
+            while (failure.get() == null && (line = in.readLine()) != null)
+            {
+                lines++;
+                chunk.add(line);
+                if (chunk.size() == batchSize)
+                {
+                    submit(workers, chunks, chunk, lines - chunk.size() + 1);
+                    chunk = new ArrayList<>(batchSize);
+                }
+            }
+            if (!chunk.isEmpty() && failure.get() == null)
+            {
+                submit(workers, chunks, chunk, lines - chunk.size() + 1);
+            }
+        }
+        finally
+        {
+            //waits for the chunks already handed out
+            workers.shutdown();
+            chunks.acquire(threads * 2);
+        }
+        if (failure.get() != null)
+        {
+            throw new IOException("Import of " + file + " stopped after " + inserted.sum() + " pets", failure.get());
+        }
+        TransferStats.log(LOGGER, "Imported", inserted.sum(), file, System.nanoTime() - start);
+        LOGGER.info("Import of {} lines skipped {} existing pets and {} invalid lines", lines, skipped.sum(),
+                invalid.sum());
+        return inserted.sum();
+    }
+
+    private void submit(ExecutorService workers, Semaphore chunks, List<String> chunk, long firstLine)
+            throws InterruptedException
+    {
+        chunks.acquire();
+        workers.execute(() -> {
+            try
+            {
+                insert(parse(chunk, firstLine));
+            }
+            catch (RuntimeException ex)
+            {
+                failure.compareAndSet(null, ex);
+            }
+            finally
+            {
+                chunks.release();
+            }
+        });
+    }
+
+    private List<Pet> parse(List<String> chunk, long firstLine)
+    {
+        List<Pet> pets = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++)
+        {
+            try
+            {
+                pets.add(petCodec.decode(new JsonReader(chunk.get(i)), DECODER_CONTEXT));
+            }
+            catch (JsonParseException | BsonInvalidOperationException ex)
+            {
+                invalid.increment();
+                if (invalid.sum() <= MAX_ERRORS_LOGGED)
+                {
+                    LOGGER.warn("Skipping line {}: {}", firstLine + i, ex.getMessage());
+                }
+            }
+        }
+        return pets;
+    }
+
+    private void insert(List<Pet> pets)
+    {
+        if (pets.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            repository.insertMany(pets, false);
+            inserted.add(pets.size());
+        }
+        catch (MongoBulkWriteException ex)
+        {
+            int duplicates = 0;
+            for (BulkWriteError error : ex.getWriteErrors())
+            {
+                if (error.getCode() == DUPLICATE_KEY_ERROR)
+                {
+                    duplicates++;
+                }
+                else if (invalid.sum() < MAX_ERRORS_LOGGED)
+                {
+                    LOGGER.warn("Pet rejected: {}", error.getMessage());
+                }
+            }
+            inserted.add(ex.getWriteResult().getInsertedCount());
+            skipped.add(duplicates);
+            invalid.add(ex.getWriteErrors().size() - duplicates);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package transfer;
+
+import codec.PetCodec;
+import model.Owner;
+import model.Pet;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a pet as relaxed extended JSON, field by field the way {@link PetCodec} writes it to BSON.
+ *
+ * The output is the same as encoding the pet with PetCodec to a {@link org.bson.json.JsonWriter},
+ * which creates a writer and a context per document and is several times slower than the export file
+ * can be compressed.
+ */
+final class PetJson
+{
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private PetJson()
+    {
+    }
+
+    static void write(Pet pet, Writer out) throws IOException
+    {
+        out.write('{');
+        if (pet.getId() != null)
+        {
+            name(PetCodec.ID, out);
+            out.write("{\"$oid\": \"");
+            out.write(pet.getId().toHexString());
+            out.write("\"}, ");
+        }
+        name(PetCodec.NAME, out);
+        string(pet.getName(), out);
+        out.write(", ");
+        name(PetCodec.WEIGHT, out);
+        out.write(Integer.toString(pet.getWeight()));
+        out.write(", ");
+        name(PetCodec.AGE, out);
+        out.write(Integer.toString(pet.getAge()));
+        out.write(", ");
+        name(PetCodec.COLOR, out);
+        string(pet.getColor(), out);
+        Owner owner = pet.getOwner();
+        if (owner != null)
+        {
+            out.write(", ");
+            name(PetCodec.OWNER, out);
+            out.write('{');
+            name(PetCodec.OWNER_NAME, out);
+            string(owner.getName(), out);
+            out.write(", ");
+            name(PetCodec.OWNER_ADDRESS, out);
+            string(owner.getAddress(), out);
+            out.write('}');
+        }
+        out.write('}');
+    }
+
+    private static void name(String name, Writer out) throws IOException
+    {
+        string(name, out);
+        out.write(": ");
+    }
+
+    private static void string(String value, Writer out) throws IOException
+    {
+        if (value == null)
+        {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20)
+            {
+                out.write(value, start, i - start);
+                escape(c, out);
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    private static void escape(char c, Writer out) throws IOException
+    {
+        switch (c)
+        {
+            case '"':
+                out.write("\\\"");
+                break;
+            case '\\':
+                out.write("\\\\");
+                break;
+            case '\n':
+                out.write("\\n");
+                break;
+            case '\r':
+                out.write("\\r");
+                break;
+            case '\t':
+                out.write("\\t");
+                break;
+            default:
+                out.write("\\u00");
+                out.write(HEX[c >> 4]);
+                out.write(HEX[c & 0xf]);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package transfer;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+final class TransferStats
+{
+    private TransferStats()
+    {
+    }
+
+    static void log(Logger logger, String action, long pets, Path file, long elapsedNanos) throws IOException
+    {
+        double seconds = Math.max(1, elapsedNanos) / 1_000_000_000d;
+        double megabytes = Files.size(file) / (1024d * 1024d);
+        logger.info("{} {} pets, {} MB compressed, in {}s: {} pets/sec, {} MB/sec", action, pets,
+                String.format("%.1f", megabytes), String.format("%.1f", seconds),
+                String.format("%.0f", pets / seconds), String.format("%.1f", megabytes / seconds));
+    }
+}
@@ -0,0 +1,241 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free Bloom filter of strings on an {@link AtomicLongArray}.
+ *
+ * The number of bits is rounded up to a power of two, which keeps the false positive rate at or below
+ * the requested one. Bits are only ever set with compare-and-set, so any number of threads can add and
+ * test concurrently. Two threads adding the same string at the same time may both be told it was new.
+ */
+public class ConcurrentBloomFilter
+{
+    private static final int MAGIC = 0x424c4f4d;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+    private static final int IO_CHUNK_LONGS = 8192;
+
+    private final AtomicLongArray words;
+    private final long bitMask;
+    private final int hashCount;
+    private final LongAdder inserted = new LongAdder();
+
+    /**
+     * Sizes the filter for the expected number of strings at the given false positive rate.
+     */
+    public ConcurrentBloomFilter(long expectedInsertions, double falsePositiveRate)
+    {
+        this(bits(expectedInsertions, falsePositiveRate),
+                hashCount(expectedInsertions, bits(expectedInsertions, falsePositiveRate)));
+    }
+
+    private ConcurrentBloomFilter(long bits, int hashCount)
+    {
+        if (bits / Long.SIZE > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Bloom filter of " + bits + " bits is too large");
+        }
+        this.words = new AtomicLongArray((int) Math.max(1, bits / Long.SIZE));
+        this.bitMask = (long) words.length() * Long.SIZE - 1;
+        this.hashCount = hashCount;
+    }
+
+    private static long bits(long expectedInsertions, double falsePositiveRate)
+    {
+        double optimal = -Math.max(1, expectedInsertions) * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long bits = Long.highestOneBit(Math.max(Long.SIZE, (long) Math.ceil(optimal)));
+        return bits < optimal ? bits << 1 : bits;
+    }
+
+    private static int hashCount(long expectedInsertions, long bits)
+    {
+        return Math.max(1, (int) Math.round((double) bits / Math.max(1, expectedInsertions) * Math.log(2)));
+    }
+
+    /**
+     * Adds the string.
+     * @return true if it was definitely not in the filter before, false if it probably was
+     */
+    public boolean put(String value)
+    {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 + 0x9e3779b97f4a7c15L) | 1;
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++)
+        {
+            long bit = (hash1 + i * hash2) & bitMask;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0)
+            {
+                if (words.compareAndSet(word, current, current | mask))
+                {
+                    changed = true;
+                    break;
+                }
+                current = words.get(word);
+            }
+        }
+        if (changed)
+        {
+            inserted.increment();
+        }
+        return changed;
+    }
+
+    /**
+     * @return false if the string was definitely never added, true if it probably was
+     */
+    public boolean mightContain(String value)
+    {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 + 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < hashCount; i++)
+        {
+            long bit = (hash1 + i * hash2) & bitMask;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters, finished with the MurmurHash3 mixer so all bits depend on all input.
+     */
+    private static long hash(String value)
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++)
+        {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash)
+    {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Number of strings added that were new to the filter.
+     */
+    public long getInserted() {
+        return inserted.sum();
+    }
+
+    public long getBitCount() {
+        return bitMask + 1;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * False positive rate expected at the current number of strings.
+     */
+    public double getExpectedFalsePositiveRate()
+    {
+        return Math.pow(1 - Math.exp(-(double) hashCount * getInserted() / getBitCount()), hashCount);
+    }
+
+    /**
+     * Writes the filter to the file, replacing it atomically. Strings added while writing may or may
+     * not be included.
+     */
+    public void writeTo(Path path) throws IOException
+    {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(IO_CHUNK_LONGS * 8);
+            buffer.putInt(MAGIC).putInt(hashCount).putLong(getBitCount()).putLong(getInserted());
+            for (int i = 0; i < words.length(); i++)
+            {
+                if (buffer.remaining() < 8)
+                {
+                    write(channel, buffer);
+                }
+                buffer.putLong(words.get(i));
+            }
+            write(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(Path)}.
+     */
+    public static ConcurrentBloomFilter readFrom(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(IO_CHUNK_LONGS * 8);
+            buffer.limit(HEADER_BYTES);
+            read(channel, buffer);
+            if (buffer.getInt() != MAGIC)
+            {
+                throw new IOException(path + " is not a Bloom filter");
+            }
+            int hashCount = buffer.getInt();
+            long bits = buffer.getLong();
+            long inserted = buffer.getLong();
+            ConcurrentBloomFilter filter = new ConcurrentBloomFilter(bits, hashCount);
+            if (filter.getBitCount() != bits)
+            {
+                throw new IOException(path + " has an invalid size of " + bits + " bits");
+            }
+            filter.inserted.add(inserted);
+            int word = 0;
+            while (word < filter.words.length())
+            {
+                buffer.clear();
+                buffer.limit(Math.min(buffer.capacity(), (filter.words.length() - word) * 8));
+                read(channel, buffer);
+                while (buffer.hasRemaining())
+                {
+                    filter.words.set(word++, buffer.getLong());
+                }
+            }
+            return filter;
+        }
+    }
+
+    private static void read(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer) < 0)
+            {
+                throw new IOException("Unexpected end of Bloom filter file");
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -1,26 +1,110 @@
 package util;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 
 public class ConcurrentUtils
 {
-    public static void stop(ExecutorService executor) {
-        try {
+    private static final ExecutorRegistry REGISTRY = new ExecutorRegistry();
+
+    /**
+     * Every executor created by the factory methods below that is still running.
+     */
+    public static ExecutorRegistry registry() {
+        return REGISTRY;
+    }
+
+    public static InstrumentedThreadPoolExecutor newFixedThreadPool(String name, int threads) {
+        return newFixedThreadPool(name, threads, false);
+    }
+
+    public static InstrumentedThreadPoolExecutor newFixedThreadPool(String name, int threads, boolean daemon) {
+        return REGISTRY.register(name, unique -> new InstrumentedThreadPoolExecutor(unique, "fixed", threads, threads,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), daemon));
+    }
+
+    public static InstrumentedThreadPoolExecutor newSingleThreadExecutor(String name) {
+        return newFixedThreadPool(name, 1, false);
+    }
+
+    public static InstrumentedThreadPoolExecutor newCachedThreadPool(String name, boolean daemon) {
+        return REGISTRY.register(name, unique -> new InstrumentedThreadPoolExecutor(unique, "cached", 0,
+                Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), daemon));
+    }
+
+    public static ElasticThreadPoolExecutor newElasticThreadPool(String name, int minThreads, int maxThreads) {
+        return newElasticThreadPool(name, minThreads, maxThreads, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A pool that resizes itself between the bounds every interval, see {@link ElasticThreadPoolExecutor}.
+     */
+    public static ElasticThreadPoolExecutor newElasticThreadPool(String name, int minThreads, int maxThreads,
+                                                                 long interval, TimeUnit unit) {
+        return REGISTRY.register(name, unique -> new ElasticThreadPoolExecutor(unique, minThreads, maxThreads,
+                interval, unit, false));
+    }
+
+    public static InstrumentedScheduledExecutor newScheduledThreadPool(String name, int threads) {
+        return REGISTRY.register(name, unique -> new InstrumentedScheduledExecutor(unique, threads, false));
+    }
+
+    public static InstrumentedForkJoinPool newWorkStealingPool(String name) {
+        return newWorkStealingPool(name, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static InstrumentedForkJoinPool newWorkStealingPool(String name, int parallelism) {
+        return REGISTRY.register(name, unique -> new InstrumentedForkJoinPool(unique, parallelism));
+    }
+
+    public static void stop(ExecutorService... executors) {
+        stop(60, TimeUnit.SECONDS, executors);
+    }
+
+    /**
+     * Shuts all executors down at once and waits for them against one deadline, so stopping n executors
+     * takes at most the timeout rather than n times it. Those still running at the deadline are killed.
+     */
+    public static void stop(long timeout, TimeUnit unit, ExecutorService... executors) {
+        for (ExecutorService executor : executors) {
             executor.shutdown();
-            executor.awaitTermination(60, TimeUnit.SECONDS);
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean interrupted = false;
+        try {
+            for (ExecutorService executor : executors) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || !executor.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+            }
         }
         catch (InterruptedException e) {
             System.err.println("termination interrupted");
+            interrupted = true;
         }
         finally {
-            if (!executor.isTerminated()) {
-                System.err.println("killing non-finished tasks");
+            for (ExecutorService executor : executors) {
+                if (!executor.isTerminated()) {
+                    System.err.println("killing non-finished tasks");
+                    executor.shutdownNow();
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
-            executor.shutdownNow();
         }
     }
 
+    /**
+     * Stops every executor in the {@link #registry()} within the one timeout.
+     */
+    public static void stopAll(long timeout, TimeUnit unit) {
+        REGISTRY.stopAll(timeout, unit);
+    }
+
     public static void sleep(int seconds) {
         try {
             TimeUnit.SECONDS.sleep(seconds);
@@ -28,4 +112,4 @@ public class ConcurrentUtils
             throw new IllegalStateException(e);
         }
     }
-}
\ No newline at end of file
+}
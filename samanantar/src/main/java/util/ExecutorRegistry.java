@@ -0,0 +1,74 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The executors created by {@link ConcurrentUtils}, in creation order, for metrics export and shutdown.
+ * Terminated executors are dropped the next time the registry is read, so short-lived pools do not pile up.
+ */
+public class ExecutorRegistry
+{
+    private final Map<String, InstrumentedExecutor> executors = new LinkedHashMap<>();
+
+    /**
+     * Creates and registers an executor under the given name, or under name#2, #3, ... if it is taken.
+     */
+    synchronized <E extends InstrumentedExecutor> E register(String name, Function<String, E> create)
+    {
+        prune();
+        String unique = name;
+        for (int i = 2; executors.containsKey(unique); i++)
+        {
+            unique = name + "#" + i;
+        }
+        E executor = create.apply(unique);
+        executors.put(unique, executor);
+        return executor;
+    }
+
+    /**
+     * The executors that have not terminated yet.
+     */
+    public synchronized List<InstrumentedExecutor> executors()
+    {
+        prune();
+        return new ArrayList<>(executors.values());
+    }
+
+    public List<ExecutorStats> snapshot()
+    {
+        List<ExecutorStats> stats = new ArrayList<>();
+        for (InstrumentedExecutor executor : executors())
+        {
+            stats.add(executor.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Stops every registered executor, all of them within the one timeout.
+     */
+    public void stopAll(long timeout, TimeUnit unit)
+    {
+        List<InstrumentedExecutor> running = executors();
+        ConcurrentUtils.stop(timeout, unit, running.toArray(new InstrumentedExecutor[0]));
+    }
+
+    private void prune()
+    {
+        Iterator<InstrumentedExecutor> iterator = executors.values().iterator();
+        while (iterator.hasNext())
+        {
+            if (iterator.next().isTerminated())
+            {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A work-stealing {@link ForkJoinPool} that times the Runnables and Callables submitted to it. Subtasks
+ * forked by running tasks, such as those of a parallel stream, are not timed on their own, they are part
+ * of the run time of the task that forked them. The queue depth includes them.
+ */
+public class InstrumentedForkJoinPool extends ForkJoinPool implements InstrumentedExecutor
+{
+    private final String name;
+    private final TaskTimer timer = new TaskTimer();
+
+    InstrumentedForkJoinPool(String name, int parallelism)
+    {
+        super(parallelism, pool -> {
+            ForkJoinWorkerThreadFactory threads = ForkJoinPool.defaultForkJoinWorkerThreadFactory;
+            ForkJoinWorkerThread thread = threads.newThread(pool);
+            thread.setName(name + "-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        this.name = name;
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        try
+        {
+            super.execute(timer.wrap(task));
+        }
+        catch (RejectedExecutionException e)
+        {
+            timer.rejected();
+            throw e;
+        }
+    }
+
+    @Override
+    public ForkJoinTask<?> submit(Runnable task)
+    {
+        try
+        {
+            return super.submit(timer.wrap(task));
+        }
+        catch (RejectedExecutionException e)
+        {
+            timer.rejected();
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> ForkJoinTask<T> submit(Runnable task, T result)
+    {
+        try
+        {
+            return super.submit(timer.wrap(task), result);
+        }
+        catch (RejectedExecutionException e)
+        {
+            timer.rejected();
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> ForkJoinTask<T> submit(Callable<T> task)
+    {
+        try
+        {
+            return super.submit(timer.wrap(task));
+        }
+        catch (RejectedExecutionException e)
+        {
+            timer.rejected();
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+    {
+        List<Callable<T>> timed = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks)
+        {
+            timed.add(timer.wrap(task));
+        }
+        try
+        {
+            return super.invokeAll(timed);
+        }
+        catch (RejectedExecutionException e)
+        {
+            timer.rejected();
+            throw e;
+        }
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public ExecutorStats getStats()
+    {
+        return timer.stats(name, "work-stealing", getPoolSize(), getActiveThreadCount(),
+                getQueuedSubmissionCount() + getQueuedTaskCount());
+    }
+}
@@ -0,0 +1,82 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ThreadPoolExecutor} that times every task from submission to start and from start to end.
+ * Tasks are wrapped in {@link #execute(Runnable)}, which every submit and invoke method goes through.
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor implements InstrumentedExecutor
+{
+    private final String name;
+    private final String kind;
+    private final TaskTimer timer = new TaskTimer();
+    //the handler as set by the caller, installed behind one that counts rejections
+    private volatile RejectedExecutionHandler rejectionHandler;
+
+    InstrumentedThreadPoolExecutor(String name, String kind, int corePoolSize, int maximumPoolSize,
+                                   long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue, boolean daemon)
+    {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, new NamedThreadFactory(name, daemon));
+        this.name = name;
+        this.kind = kind;
+        this.rejectionHandler = super.getRejectedExecutionHandler();
+        super.setRejectedExecutionHandler(this::reject);
+    }
+
+    @Override
+    public void execute(Runnable command)
+    {
+        super.execute(timer.wrap(command));
+    }
+
+    /**
+     * Rejections are counted before they are handed to the given handler.
+     */
+    @Override
+    public void setRejectedExecutionHandler(RejectedExecutionHandler handler)
+    {
+        this.rejectionHandler = Objects.requireNonNull(handler);
+    }
+
+    @Override
+    public RejectedExecutionHandler getRejectedExecutionHandler()
+    {
+        return rejectionHandler;
+    }
+
+    private void reject(Runnable task, ThreadPoolExecutor executor)
+    {
+        timer.rejected();
+        rejectionHandler.rejectedExecution(task, executor);
+    }
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        List<Runnable> tasks = new ArrayList<>();
+        for (Runnable task : super.shutdownNow())
+        {
+            tasks.add(TaskTimer.unwrap(task));
+        }
+        return tasks;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public ExecutorStats getStats()
+    {
+        return timer.stats(name, kind, getPoolSize(), getActiveCount(), getQueue().size());
+    }
+}
@@ -0,0 +1,28 @@
+package util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Names threads &lt;pool name&gt;-1, -2, ...
+ */
+final class NamedThreadFactory implements ThreadFactory
+{
+    private final String name;
+    private final boolean daemon;
+    private final AtomicInteger count = new AtomicInteger();
+
+    NamedThreadFactory(String name, boolean daemon)
+    {
+        this.name = name;
+        this.daemon = daemon;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+        Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+        thread.setDaemon(daemon);
+        return thread;
+    }
+}
@@ -0,0 +1,106 @@
+package util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the tasks of one executor and splits their time into waiting for a thread and running.
+ * Tasks are wrapped on submission, so the wait starts when the task was handed to the executor.
+ */
+final class TaskTimer
+{
+    //including rejected tasks
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+    private final LongAccumulator maxRunNanos = new LongAccumulator(Long::max, 0);
+
+    Runnable wrap(Runnable task)
+    {
+        submitted.increment();
+        return new TimedRunnable(task, System.nanoTime());
+    }
+
+    <T> Callable<T> wrap(Callable<T> task)
+    {
+        submitted.increment();
+        long enqueued = System.nanoTime();
+        return () -> {
+            long start = System.nanoTime();
+            try
+            {
+                return task.call();
+            }
+            finally
+            {
+                record(start - enqueued, System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Counts a task that is submitted and timed by the executor itself.
+     */
+    void submitted()
+    {
+        submitted.increment();
+    }
+
+    void rejected()
+    {
+        rejected.increment();
+    }
+
+    void record(long waited, long ran)
+    {
+        completed.increment();
+        waitNanos.add(waited);
+        runNanos.add(ran);
+        maxWaitNanos.accumulate(waited);
+        maxRunNanos.accumulate(ran);
+    }
+
+    ExecutorStats stats(String name, String kind, int poolSize, int activeThreads, long queueDepth)
+    {
+        return new ExecutorStats(name, kind, poolSize, activeThreads, queueDepth, submitted.sum(), completed.sum(),
+                rejected.sum(), waitNanos.sum(), maxWaitNanos.get(), runNanos.sum(), maxRunNanos.get());
+    }
+
+    /**
+     * The task handed to the executor, to unwrap the tasks returned by shutdownNow.
+     */
+    static Runnable unwrap(Runnable task)
+    {
+        return task instanceof TimedRunnable ? ((TimedRunnable) task).task : task;
+    }
+
+    private final class TimedRunnable implements Runnable
+    {
+        private final Runnable task;
+        private final long enqueuedNanos;
+
+        private TimedRunnable(Runnable task, long enqueuedNanos)
+        {
+            this.task = task;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        @Override
+        public void run()
+        {
+            long start = System.nanoTime();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                record(start - enqueuedNanos, System.nanoTime() - start);
+            }
+        }
+    }
+}
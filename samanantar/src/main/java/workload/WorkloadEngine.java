@@ -0,0 +1,206 @@
+package workload;
+
+import config.WorkloadConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.ConcurrentUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a {@link WorkloadOperation} at a target rate from a pool of producer threads.
+ *
+ * Every producer owns an equal share of the target rate and paces itself against absolute
+ * timestamps, so a slow operation does not shift the rest of the schedule. During ramp-up the rate
+ * grows linearly from zero to the target.
+ *
+ * In closed-loop mode a producer that falls behind simply continues from "now", so the achieved rate
+ * drops when operations stall. In open-loop mode the producer keeps the original schedule and catches
+ * up after a stall, and operations are told not to block, so the offered load stays at the target
+ * rate regardless of how the system under test behaves.
+ */
+public class WorkloadEngine implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkloadEngine.class);
+
+    //How long an idle producer sleeps while the target rate is zero.
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final WorkloadOperation operation;
+    private final int producerThreads;
+    private final long rampUpNanos;
+    private final long durationNanos;
+    private final boolean openLoop;
+    private final ExecutorService producers;
+    private final CountDownLatch finished;
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAccumulator maxScheduleLagNanos = new LongAccumulator(Long::max, 0);
+
+    private volatile double targetOpsPerSecond;
+    private volatile boolean running;
+    private volatile long startNanos;
+
+    public WorkloadEngine(WorkloadConfiguration configuration, WorkloadOperation operation)
+    {
+        this.operation = operation;
+        this.producerThreads = Math.max(1, configuration.getProducerThreads());
+        this.rampUpNanos = TimeUnit.SECONDS.toNanos(configuration.getRampUpSeconds());
+        this.durationNanos = TimeUnit.SECONDS.toNanos(configuration.getDurationSeconds());
+        this.openLoop = configuration.isOpenLoop();
+        this.targetOpsPerSecond = configuration.getTargetOpsPerSecond();
+        this.producers = ConcurrentUtils.newFixedThreadPool("workload-producer", producerThreads);
+        this.finished = new CountDownLatch(producerThreads);
+    }
+
+    public void start()
+    {
+        LOGGER.info("Starting workload: target: {} ops/sec, producers: {}, ramp-up: {}s, duration: {}s, open loop: {}",
+                targetOpsPerSecond, producerThreads, TimeUnit.NANOSECONDS.toSeconds(rampUpNanos),
+                TimeUnit.NANOSECONDS.toSeconds(durationNanos), openLoop);
+        running = true;
+        startNanos = System.nanoTime();
+        for (int i = 0; i < producerThreads; i++)
+        {
+            producers.submit(this::produce);
+        }
+    }
+
+    private void produce()
+    {
+        long next = startNanos;
+        try
+        {
+            while (running)
+            {
+                long now = System.nanoTime();
+                if (durationNanos > 0 && now - startNanos >= durationNanos)
+                {
+                    return;
+                }
+                double rate = targetOpsPerSecond;
+                if (rate <= 0)
+                {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    next = System.nanoTime();
+                    continue;
+                }
+                if (next > now)
+                {
+                    //re-check running and duration after every park instead of sleeping through them
+                    LockSupport.parkNanos(Math.min(next - now, IDLE_PARK_NANOS));
+                    continue;
+                }
+                maxScheduleLagNanos.accumulate(now - next);
+                execute();
+                next += intervalNanos(next - startNanos, rate);
+                if (!openLoop)
+                {
+                    next = Math.max(next, System.nanoTime());
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            finished.countDown();
+        }
+    }
+
+    private void execute() throws InterruptedException
+    {
+        issued.increment();
+        try
+        {
+            if (!operation.execute(!openLoop))
+            {
+                shed.increment();
+            }
+        }
+        catch (RuntimeException ex)
+        {
+            failed.increment();
+            LOGGER.error("Workload operation failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Time until this producer's next operation. Each producer issues 1/producerThreads of the rate.
+     */
+    private long intervalNanos(long elapsedNanos, double rate)
+    {
+        long steadyInterval = (long) (producerThreads * 1_000_000_000d / rate);
+        if (elapsedNanos >= rampUpNanos)
+        {
+            return steadyInterval;
+        }
+        //while the rate grows linearly the next operation is due once the area under the rate curve
+        //since elapsed reaches one: (rate / 2 rampUp) * ((elapsed + dt)^2 - elapsed^2) = 1
+        double elapsed = elapsedNanos;
+        long rampInterval = (long) (Math.sqrt(elapsed * elapsed + 2d * rampUpNanos * steadyInterval) - elapsed);
+        return Math.min(rampInterval, rampUpNanos - elapsedNanos + steadyInterval);
+    }
+
+    /**
+     * Changes the target rate of a running workload. Producers pick it up with their next operation.
+     */
+    public void setTargetOpsPerSecond(double targetOpsPerSecond)
+    {
+        this.targetOpsPerSecond = targetOpsPerSecond;
+    }
+
+    public double getTargetOpsPerSecond()
+    {
+        return targetOpsPerSecond;
+    }
+
+    public long getIssued()
+    {
+        return issued.sum();
+    }
+
+    public long getShed()
+    {
+        return shed.sum();
+    }
+
+    public long getFailed()
+    {
+        return failed.sum();
+    }
+
+    public long getMaxScheduleLagNanos()
+    {
+        return maxScheduleLagNanos.get();
+    }
+
+    /**
+     * Blocks until the configured duration has elapsed. Never returns for workloads without a duration
+     * unless the engine is closed.
+     */
+    public void awaitCompletion() throws InterruptedException
+    {
+        finished.await();
+    }
+
+    @Override
+    public void close()
+    {
+        running = false;
+        ConcurrentUtils.stop(producers);
+        double seconds = Math.max(1, System.nanoTime() - startNanos) / 1_000_000_000d;
+        LOGGER.info("Workload finished: issued: {}, shed: {}, failed: {}, achieved: {} ops/sec, max schedule lag: {}ms",
+                getIssued(), getShed(), getFailed(), String.format("%.1f", getIssued() / seconds),
+                TimeUnit.NANOSECONDS.toMillis(getMaxScheduleLagNanos()));
+    }
+}
@@ -0,0 +1,14 @@
+package workload;
+
+/**
+ * One unit of work issued by the {@link WorkloadEngine}, e.g. generating and submitting a single pet.
+ */
+@FunctionalInterface
+public interface WorkloadOperation
+{
+    /**
+     * @param blocking false in open-loop mode, where the operation must not wait for downstream capacity
+     * @return false if the operation was shed because downstream had no capacity
+     */
+    boolean execute(boolean blocking) throws InterruptedException;
+}
@@ -0,0 +1,169 @@
+package writer;
+
+import config.LimiterConfiguration;
+import metrics.RollingMetrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of batches in flight and adapts the limit to the observed round trip times
+ * (additive increase, multiplicative decrease).
+ *
+ * The baseline is the best round trip of the recent batches. While batches complete within the
+ * configured multiple of it and the limit is actually used, the limit grows by one per limit's worth of
+ * batches. A slower batch or a failure multiplies the limit by the backoff ratio, once per round of
+ * batches: batches that were sent before the last decrease do not decrease it again. Once the limit is
+ * reached further batches wait, the writer queue fills up and producers block or shed.
+ */
+public class AdaptiveLimiter implements AdaptiveLimiterMBean, RollingMetrics
+{
+    //slowdowns smaller than this are jitter rather than queueing, relevant for very fast round trips
+    private static final long MIN_SLOWDOWN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+    private final int baselineWindow;
+
+    //guarded by this
+    private double limit;
+    private int inFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowBestNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private boolean decreasedOnce;
+    private long lastDecreaseNanos;
+
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder increases = new LongAdder();
+    private final LongAdder decreases = new LongAdder();
+    private long lastWaits;
+
+    public AdaptiveLimiter(LimiterConfiguration configuration)
+    {
+        this.minLimit = Math.max(1, configuration.getMinLimit());
+        this.maxLimit = Math.max(minLimit, configuration.getMaxLimit());
+        this.latencyTolerance = configuration.getLatencyTolerance();
+        this.backoffRatio = configuration.getBackoffRatio();
+        this.baselineWindow = Math.max(1, configuration.getBaselineWindow());
+        this.limit = Math.min(maxLimit, Math.max(minLimit, configuration.getInitialLimit()));
+    }
+
+    /**
+     * Waits until another batch may be sent.
+     */
+    public synchronized void acquire() throws InterruptedException
+    {
+        if (inFlight >= (int) limit)
+        {
+            waits.increment();
+            do
+            {
+                wait();
+            }
+            while (inFlight >= (int) limit);
+        }
+        inFlight++;
+    }
+
+    /**
+     * Records the outcome of a batch sent after {@link #acquire()} and adjusts the limit.
+     * @param overloaded whether the batch failed in a way that points at an overloaded server, e.g. a timeout
+     */
+    public synchronized void release(long roundTripNanos, boolean overloaded)
+    {
+        boolean saturated = inFlight >= limit / 2;
+        inFlight--;
+        if (!overloaded)
+        {
+            updateBaseline(roundTripNanos);
+        }
+        long now = System.nanoTime();
+        if (overloaded || (roundTripNanos > baselineNanos * latencyTolerance
+                && roundTripNanos - baselineNanos > MIN_SLOWDOWN_NANOS))
+        {
+            double reduced = Math.max(minLimit, limit * backoffRatio);
+            //only batches sent after the last decrease, nanoTime values are compared by their difference only
+            if ((!decreasedOnce || now - lastDecreaseNanos > roundTripNanos) && reduced < limit)
+            {
+                limit = reduced;
+                decreasedOnce = true;
+                lastDecreaseNanos = now;
+                decreases.increment();
+            }
+        }
+        else if (saturated && limit < maxLimit)
+        {
+            int before = (int) limit;
+            limit = Math.min(maxLimit, limit + 1 / limit);
+            if ((int) limit > before)
+            {
+                increases.increment();
+            }
+        }
+        notifyAll();
+    }
+
+    private void updateBaseline(long roundTripNanos)
+    {
+        windowBestNanos = Math.min(windowBestNanos, roundTripNanos);
+        baselineNanos = Math.min(baselineNanos, roundTripNanos);
+        if (++windowSamples >= baselineWindow)
+        {
+            baselineNanos = windowBestNanos;
+            windowBestNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+    }
+
+    /**
+     * Upper bound of the limit, i.e. the most batches that can ever be in flight.
+     */
+    public int getMaxLimit()
+    {
+        return (int) maxLimit;
+    }
+
+    @Override
+    public synchronized String roll()
+    {
+        long currentWaits = waits.sum();
+        String summary = String.format("Write limiter: limit: %.1f, in flight: %d, baseline: %.1fms, waits: %d,"
+                        + " increases: %d, decreases: %d", limit, inFlight, getBaselineMillis(),
+                currentWaits - lastWaits, getIncreases(), getDecreases());
+        lastWaits = currentWaits;
+        return summary;
+    }
+
+    @Override
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    @Override
+    public long getIncreases() {
+        return increases.sum();
+    }
+
+    @Override
+    public long getDecreases() {
+        return decreases.sum();
+    }
+
+    @Override
+    public synchronized double getBaselineMillis() {
+        return baselineNanos == Long.MAX_VALUE ? 0 : baselineNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
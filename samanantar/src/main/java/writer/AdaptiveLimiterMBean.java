@@ -0,0 +1,28 @@
+package writer;
+
+/**
+ * JMX view of an {@link AdaptiveLimiter}.
+ */
+public interface AdaptiveLimiterMBean
+{
+    /**
+     * Batches currently allowed in flight.
+     */
+    double getLimit();
+
+    int getInFlight();
+
+    /**
+     * Times a batch found the limit reached and had to wait for another to complete.
+     */
+    long getWaits();
+
+    long getIncreases();
+
+    long getDecreases();
+
+    /**
+     * Best batch round trip in the current baseline window.
+     */
+    double getBaselineMillis();
+}
@@ -0,0 +1,29 @@
+package writer;
+
+import java.util.List;
+
+/**
+ * Callback invoked by the {@link BatchingWriter} after every flushed batch, on the thread that sent it.
+ * Batches may be sent by several threads at once. The batch list may be reused by the writer, so
+ * implementations must not keep a reference to it.
+ */
+@FunctionalInterface
+public interface BatchListener<T>
+{
+    void onBatch(List<? extends T> batch, BatchResult result);
+
+    /**
+     * Called once before the first attempt to write a batch, on the same thread as {@link #onBatch}.
+     */
+    default void onFlush(List<? extends T> batch)
+    {
+    }
+
+    /**
+     * Called before a batch that failed as a whole is attempted again.
+     * @param attempt the attempt that failed, starting at 1
+     */
+    default void onRetry(List<? extends T> batch, Throwable failure, int attempt)
+    {
+    }
+}
@@ -0,0 +1,168 @@
+package writer;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a single insertMany call made by the {@link BatchingWriter}.
+ *
+ * A batch either succeeds completely, fails partially (some documents were rejected by the server,
+ * reported per index) or fails as a whole (the call itself threw, e.g. on a network error).
+ * For ordered batches the server stops at the first error, so documents after it are skipped.
+ */
+public class BatchResult
+{
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final int size;
+    private final boolean ordered;
+    private final int attempts;
+    private final int inserted;
+    private final List<BulkWriteError> writeErrors;
+    private final Throwable failure;
+    private final long elapsedNanos;
+    private final long completedNanos;
+    private final long[] enqueuedNanos;
+
+    private BatchResult(int size, boolean ordered, int attempts, int inserted, List<BulkWriteError> writeErrors,
+                        Throwable failure, long elapsedNanos, long completedNanos, long[] enqueuedNanos)
+    {
+        this.size = size;
+        this.ordered = ordered;
+        this.attempts = attempts;
+        this.inserted = inserted;
+        this.writeErrors = writeErrors;
+        this.failure = failure;
+        this.elapsedNanos = elapsedNanos;
+        this.completedNanos = completedNanos;
+        this.enqueuedNanos = enqueuedNanos;
+    }
+
+    public static BatchResult success(int size, boolean ordered, int attempts, long elapsedNanos)
+    {
+        return new BatchResult(size, ordered, attempts, size, Collections.emptyList(), null, elapsedNanos,
+                System.nanoTime(), null);
+    }
+
+    public static BatchResult partial(int size, boolean ordered, int attempts, int inserted,
+                                      List<BulkWriteError> writeErrors, long elapsedNanos)
+    {
+        return new BatchResult(size, ordered, attempts, inserted, Collections.unmodifiableList(writeErrors), null,
+                elapsedNanos, System.nanoTime(), null);
+    }
+
+    public static BatchResult failure(int size, boolean ordered, int attempts, Throwable failure, long elapsedNanos)
+    {
+        return new BatchResult(size, ordered, attempts, 0, Collections.emptyList(), failure, elapsedNanos,
+                System.nanoTime(), null);
+    }
+
+    /**
+     * Result of a batch the server partially rejected.
+     * @param duplicatesWritten whether duplicate key errors mean the document was already written by an
+     *                          earlier attempt, e.g. when resending a batch whose first attempt timed out
+     */
+    public static BatchResult fromBulkWriteException(int size, boolean ordered, int attempts,
+                                                     MongoBulkWriteException exception, boolean duplicatesWritten,
+                                                     long elapsedNanos)
+    {
+        int inserted = exception.getWriteResult().getInsertedCount();
+        List<BulkWriteError> errors = exception.getWriteErrors();
+        if (duplicatesWritten)
+        {
+            errors = new ArrayList<>();
+            for (BulkWriteError error : exception.getWriteErrors())
+            {
+                if (error.getCode() == DUPLICATE_KEY_ERROR)
+                {
+                    inserted++;
+                }
+                else
+                {
+                    errors.add(error);
+                }
+            }
+        }
+        return errors.isEmpty() && inserted == size
+                ? success(size, ordered, attempts, elapsedNanos)
+                : partial(size, ordered, attempts, inserted, errors, elapsedNanos);
+    }
+
+    /**
+     * Attaches the {@link System#nanoTime()} at which every document of the batch was queued.
+     */
+    public BatchResult withEnqueueTimes(long[] enqueuedNanos)
+    {
+        return new BatchResult(size, ordered, attempts, inserted, writeErrors, failure, elapsedNanos, completedNanos,
+                enqueuedNanos);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getFailed() {
+        return failure != null ? size : writeErrors.size();
+    }
+
+    /**
+     * Documents that were never attempted because an earlier document of an ordered batch failed.
+     */
+    public int getSkipped() {
+        return failure != null ? 0 : size - inserted - writeErrors.size();
+    }
+
+    public List<BulkWriteError> getWriteErrors() {
+        return writeErrors;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Duration of the last attempt.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getCompletedNanos() {
+        return completedNanos;
+    }
+
+    /**
+     * Queue time of every document by batch index, or null if the source does not track it.
+     */
+    public long[] getEnqueuedNanos() {
+        return enqueuedNanos;
+    }
+
+    public boolean isSuccess() {
+        return failure == null && writeErrors.isEmpty();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BatchResult{size=" + size + ", ordered=" + ordered + ", attempts=" + attempts + ", inserted=" + inserted
+                + ", failed=" + getFailed() + ", skipped=" + getSkipped()
+                + ", elapsedMs=" + elapsedNanos / 1_000_000 + "}";
+    }
+}
@@ -0,0 +1,21 @@
+package writer;
+
+import java.util.List;
+
+/**
+ * Destination the {@link BatchingWriter} flushes its batches to.
+ */
+public interface BatchSink<T>
+{
+    /**
+     * Inserts a batch of documents, assigning ids to documents that have none.
+     * Documents that could not be written are reported with a {@link com.mongodb.MongoBulkWriteException},
+     * any other exception means the batch as a whole failed.
+     */
+    void insertMany(List<? extends T> documents, boolean ordered);
+
+    /**
+     * Name used in thread names and log messages.
+     */
+    String getName();
+}
@@ -0,0 +1,363 @@
+package writer;
+
+import com.mongodb.MongoBulkWriteException;
+import config.BatchConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import util.ConcurrentUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batching write stage in front of a {@link BatchSink}.
+ *
+ * Producers put documents on a bounded queue and a single writer thread drains it into batches.
+ * A batch is flushed once it reaches the configured size or once the first document of the batch
+ * has waited for the configured linger time, whichever comes first. A batch that fails as a whole is
+ * retried a configured number of times. The outcome of every batch, together with the time each of its
+ * documents was queued, is handed to a {@link BatchListener}.
+ *
+ * Without a limiter the writer thread sends one batch at a time itself. With an {@link AdaptiveLimiter}
+ * batches are sent by a pool of flush threads, as many at a time as the limiter allows. Batches sent at
+ * the same time can land in any order, so ordered writers ignore the limiter and send one batch at a time.
+ */
+public class BatchingWriter<T> implements AutoCloseable
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchingWriter.class);
+
+    //How long the writer waits for a first document before checking whether it has been closed.
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final BatchSink<T> sink;
+    private final BlockingQueue<Pending<T>> queue;
+    //may be changed while running, the writer picks up new values with the next batch
+    private volatile int batchSize;
+    private volatile long lingerNanos;
+    private final boolean ordered;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final BatchListener<? super T> listener;
+    private final Thread writerThread;
+    //null when batches are sent by the writer thread
+    private final AdaptiveLimiter limiter;
+    private final ExecutorService flushers;
+
+    private volatile boolean running;
+    private volatile Future<?> ready = CompletableFuture.completedFuture(null);
+
+    public BatchingWriter(BatchSink<T> sink, BatchConfiguration configuration,
+                          BatchListener<? super T> listener)
+    {
+        this(sink, configuration, listener, null);
+    }
+
+    public BatchingWriter(BatchSink<T> sink, BatchConfiguration configuration,
+                          BatchListener<? super T> listener, AdaptiveLimiter limiter)
+    {
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(configuration.getQueueCapacity());
+        this.batchSize = configuration.getSize();
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getLingerMillis());
+        this.ordered = configuration.isOrdered();
+        this.maxRetries = configuration.getMaxRetries();
+        this.retryBackoffMillis = configuration.getRetryBackoffMillis();
+        this.listener = listener;
+        this.writerThread = new Thread(this::drainLoop, "batch-writer-" + sink.getName());
+        if (limiter != null && ordered)
+        {
+            LOGGER.warn("Ignoring the adaptive limiter for {}: ordered batches are sent one at a time",
+                    sink.getName());
+            limiter = null;
+        }
+        this.limiter = limiter;
+        if (limiter != null)
+        {
+            this.flushers = ConcurrentUtils.newFixedThreadPool("batch-flusher-" + sink.getName(),
+                    limiter.getMaxLimit());
+        }
+        else
+        {
+            this.flushers = null;
+        }
+    }
+
+    public void start()
+    {
+        start(CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Starts accepting documents right away, but holds the first flush until the given future completes.
+     * Until then submitted documents wait in the queue.
+     */
+    public void start(Future<?> ready)
+    {
+        this.ready = ready;
+        running = true;
+        writerThread.start();
+        LOGGER.info("Batching writer started for {} with batch size: {}, linger: {}ms, ordered: {}, adaptive limit: {}",
+                sink.getName(), batchSize, TimeUnit.NANOSECONDS.toMillis(lingerNanos), ordered, limiter != null);
+    }
+
+    /**
+     * Enqueues a document, blocking while the queue is full.
+     */
+    public void submit(T document) throws InterruptedException
+    {
+        checkRunning();
+        queue.put(new Pending<>(document));
+    }
+
+    /**
+     * Enqueues a document, waiting at most the given time for space to become available.
+     * @return false if the queue stayed full
+     */
+    public boolean submit(T document, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        checkRunning();
+        return queue.offer(new Pending<>(document), timeout, unit);
+    }
+
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    public void setLingerMillis(long lingerMillis)
+    {
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+    }
+
+    public int getQueueDepth()
+    {
+        return queue.size();
+    }
+
+    private void checkRunning()
+    {
+        if (!running)
+        {
+            throw new IllegalStateException("Batching writer is not running");
+        }
+    }
+
+    private void drainLoop()
+    {
+        List<Pending<T>> pending = new ArrayList<>(batchSize);
+        List<T> batch = new ArrayList<>(batchSize);
+        try
+        {
+            awaitReady();
+            while (running || !queue.isEmpty())
+            {
+                Pending<T> first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                {
+                    continue;
+                }
+                pending.add(first);
+                fillBatch(pending, System.nanoTime() + lingerNanos);
+                long[] enqueuedNanos = new long[pending.size()];
+                for (int i = 0; i < pending.size(); i++)
+                {
+                    batch.add(pending.get(i).document);
+                    enqueuedNanos[i] = pending.get(i).enqueuedNanos;
+                }
+                if (limiter != null)
+                {
+                    limiter.acquire();
+                    //the flush thread owns the batch, so the writer cannot reuse the list
+                    List<T> flushed = new ArrayList<>(batch);
+                    flushers.execute(() -> flushLimited(flushed, enqueuedNanos));
+                }
+                else
+                {
+                    flush(batch, enqueuedNanos);
+                }
+                pending.clear();
+                batch.clear();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Batching writer interrupted with {} queued documents", queue.size() + pending.size());
+        }
+    }
+
+    private void awaitReady() throws InterruptedException
+    {
+        try
+        {
+            ready.get();
+        }
+        catch (ExecutionException e)
+        {
+            //the first batch will fail and be retried like any other
+            LOGGER.warn("Writing to {} although startup failed: {}", sink.getName(), e.getCause().toString());
+        }
+    }
+
+    private void fillBatch(List<Pending<T>> pending, long deadline) throws InterruptedException
+    {
+        int batchSize = this.batchSize;
+        while (pending.size() < batchSize)
+        {
+            //take whatever is already queued without blocking before waiting for more
+            queue.drainTo(pending, batchSize - pending.size());
+            if (pending.size() >= batchSize)
+            {
+                return;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+            {
+                return;
+            }
+            Pending<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null)
+            {
+                return;
+            }
+            pending.add(next);
+        }
+    }
+
+    private void flushLimited(List<T> batch, long[] enqueuedNanos)
+    {
+        long start = System.nanoTime();
+        BatchResult result = null;
+        try
+        {
+            result = flush(batch, enqueuedNanos);
+        }
+        finally
+        {
+            //a retried batch failed as a whole at least once, which is what an overloaded server looks like
+            boolean overloaded = result == null || result.getFailure() != null || result.getAttempts() > 1;
+            limiter.release(result != null ? result.getElapsedNanos() : System.nanoTime() - start, overloaded);
+        }
+    }
+
+    /**
+     * Writes a batch, retrying failures of the whole batch, and reports the result to the listener.
+     * An interrupt while waiting to retry ends the batch as failed, the interrupt is kept for the caller.
+     */
+    private BatchResult flush(List<T> batch, long[] enqueuedNanos)
+    {
+        try
+        {
+            listener.onFlush(batch);
+        }
+        catch (RuntimeException ex)
+        {
+            LOGGER.error("Batch listener failed: {}", ex.toString());
+        }
+        BatchResult result = null;
+        boolean interrupted = false;
+        for (int attempt = 1; result == null; attempt++)
+        {
+            long start = System.nanoTime();
+            try
+            {
+                sink.insertMany(batch, ordered);
+                result = BatchResult.success(batch.size(), ordered, attempt, System.nanoTime() - start);
+            }
+            catch (MongoBulkWriteException ex)
+            {
+                //on a retry, duplicate keys are documents the failed attempt already wrote
+                result = BatchResult.fromBulkWriteException(batch.size(), ordered, attempt, ex, attempt > 1,
+                        System.nanoTime() - start);
+            }
+            catch (RuntimeException ex)
+            {
+                if (attempt > maxRetries)
+                {
+                    result = BatchResult.failure(batch.size(), ordered, attempt, ex, System.nanoTime() - start);
+                }
+                else
+                {
+                    long elapsedNanos = System.nanoTime() - start;
+                    notifyRetry(batch, ex, attempt);
+                    try
+                    {
+                        TimeUnit.MILLISECONDS.sleep(retryBackoffMillis * attempt);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        LOGGER.warn("Retry of {} documents interrupted", batch.size());
+                        interrupted = true;
+                        result = BatchResult.failure(batch.size(), ordered, attempt, ex, elapsedNanos);
+                    }
+                }
+            }
+        }
+        try
+        {
+            listener.onBatch(batch, result.withEnqueueTimes(enqueuedNanos));
+        }
+        catch (RuntimeException ex)
+        {
+            LOGGER.error("Batch listener failed: {}", ex.toString());
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    private void notifyRetry(List<T> batch, RuntimeException failure, int attempt)
+    {
+        try
+        {
+            listener.onRetry(batch, failure, attempt);
+        }
+        catch (RuntimeException ex)
+        {
+            LOGGER.error("Batch listener failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Stops accepting documents, flushes everything already queued and waits for the writer thread.
+     */
+    @Override
+    public void close()
+    {
+        running = false;
+        try
+        {
+            writerThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        if (flushers != null)
+        {
+            //lets the batches in flight complete
+            ConcurrentUtils.stop(flushers);
+        }
+        LOGGER.info("Batching writer for {} stopped", sink.getName());
+    }
+
+    private static final class Pending<T>
+    {
+        private final T document;
+        private final long enqueuedNanos = System.nanoTime();
+
+        private Pending(T document)
+        {
+            this.document = document;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package writer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands every batch to several listeners in order.
+ */
+public class CompositeBatchListener<T> implements BatchListener<T>
+{
+    private final List<BatchListener<? super T>> listeners;
+
+    public CompositeBatchListener(List<BatchListener<? super T>> listeners)
+    {
+        this.listeners = new ArrayList<>(listeners);
+    }
+
+    @Override
+    public void onBatch(List<? extends T> batch, BatchResult result)
+    {
+        for (BatchListener<? super T> listener : listeners)
+        {
+            listener.onBatch(batch, result);
+        }
+    }
+
+    @Override
+    public void onFlush(List<? extends T> batch)
+    {
+        for (BatchListener<? super T> listener : listeners)
+        {
+            listener.onFlush(batch);
+        }
+    }
+
+    @Override
+    public void onRetry(List<? extends T> batch, Throwable failure, int attempt)
+    {
+        for (BatchListener<? super T> listener : listeners)
+        {
+            listener.onRetry(batch, failure, attempt);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package writer;
+
+import com.mongodb.bulk.BulkWriteError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Reports partial and complete batch failures. Successful batches are only logged at debug level.
+ */
+public class LoggingBatchListener<T> implements BatchListener<T>
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggingBatchListener.class);
+
+    //Enough to see what went wrong without flooding the log when a whole batch is rejected.
+    private static final int MAX_ERRORS_LOGGED = 5;
+
+    @Override
+    public void onBatch(List<? extends T> batch, BatchResult result)
+    {
+        if (result.isSuccess())
+        {
+            LOGGER.debug("Inserted batch: {}", result);
+            return;
+        }
+        if (result.getFailure() != null)
+        {
+            LOGGER.error("Batch insert failed: {} cause: {}", result, result.getFailure().toString());
+            return;
+        }
+        LOGGER.warn("Batch insert partially failed: {}", result);
+        List<BulkWriteError> errors = result.getWriteErrors();
+        for (int i = 0; i < errors.size() && i < MAX_ERRORS_LOGGED; i++)
+        {
+            BulkWriteError error = errors.get(i);
+            LOGGER.warn("  index: {} code: {} message: {}", error.getIndex(), error.getCode(), error.getMessage());
+        }
+        if (errors.size() > MAX_ERRORS_LOGGED)
+        {
+            LOGGER.warn("  ... {} more write errors", errors.size() - MAX_ERRORS_LOGGED);
+        }
+    }
+
+    @Override
+    public void onRetry(List<? extends T> batch, Throwable failure, int attempt)
+    {
+        LOGGER.warn("Batch of {} failed on attempt {}, retrying: {}", batch.size(), attempt, failure.toString());
+    }
+}
@@ -0,0 +1,99 @@
+package metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest
+{
+    @Test
+    public void smallValuesGetABucketEach()
+    {
+        for (int value = 0; value < 64; value++)
+        {
+            assertEquals(value, LatencyHistogram.bucketIndex(value));
+            assertEquals(value, LatencyHistogram.bucketUpperBound(value));
+        }
+    }
+
+    @Test
+    public void everyValueFallsIntoTheBucketBoundedByIt()
+    {
+        long[] values = {64, 65, 127, 128, 129, 1000, 4095, 4096, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values)
+        {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index < LatencyHistogram.BUCKET_COUNT);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            assertTrue(value > LatencyHistogram.bucketUpperBound(index - 1));
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguousAndWithinThreePercent()
+    {
+        int last = LatencyHistogram.bucketIndex(Long.MAX_VALUE);
+        assertTrue(last < LatencyHistogram.BUCKET_COUNT);
+        for (int index = 64; index <= last; index++)
+        {
+            long lower = LatencyHistogram.bucketUpperBound(index - 1) + 1;
+            long upper = LatencyHistogram.bucketUpperBound(index);
+            assertEquals(index, LatencyHistogram.bucketIndex(lower));
+            assertEquals(index, LatencyHistogram.bucketIndex(upper));
+            assertTrue("bucket " + index, upper - lower < lower / 32);
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.bucketUpperBound(last));
+    }
+
+    @Test
+    public void percentilesReportTheBucketUpperBound()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++)
+        {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1000), snapshot.getMax());
+        assertEquals(500_500, snapshot.getMean(), 0.001);
+        assertWithin(500_000, snapshot.getValueAtPercentile(50));
+        assertWithin(990_000, snapshot.getValueAtPercentile(99));
+        assertEquals(snapshot.getMax(), snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void negativeValuesAreRecordedAsZero()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertEquals(0, snapshot.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void intervalSnapshotsHoldOnlyTheValuesInBetween()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+        HistogramSnapshot first = histogram.snapshot();
+        histogram.record(100);
+        histogram.record(200);
+        HistogramSnapshot interval = histogram.snapshot().minus(first);
+        assertEquals(2, interval.getCount());
+        assertEquals(150, interval.getMean(), 0.001);
+        assertWithin(200, interval.getMax());
+        assertTrue(interval.getMax() < 1_000_000);
+        assertEquals(0, HistogramSnapshot.empty().getValueAtPercentile(99));
+    }
+
+    private static void assertWithin(long expected, long actual)
+    {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 32);
+    }
+}
@@ -0,0 +1,210 @@
+package spool;
+
+import codec.PetCodec;
+import codec.PetEncoder;
+import config.SpoolConfiguration;
+import model.Owner;
+import model.Pet;
+import org.bson.RawBsonDocument;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DiskSpoolTest
+{
+    //a pet of about 2KB, so a 1MB segment holds about 500
+    private static final char[] PADDING = new char[2000];
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PetEncoder encoder = new PetEncoder(new PetCodec());
+    private SpoolConfiguration configuration;
+
+    @Before
+    public void setUp()
+    {
+        Arrays.fill(PADDING, 'x');
+        configuration = new SpoolConfiguration();
+        configuration.setDirectory(folder.getRoot().getAbsolutePath());
+        configuration.setSegmentSizeMb(1);
+        configuration.setMaxSegments(16);
+    }
+
+    @Test
+    public void readsAppendedDocumentsInOrder() throws IOException
+    {
+        DiskSpool spool = new DiskSpool(configuration);
+        SpoolReader reader = new SpoolReader(spool);
+        assertNull(reader.next());
+
+        long before = System.nanoTime();
+        for (int i = 0; i < 10; i++)
+        {
+            assertTrue(spool.append(document(i)));
+        }
+        long after = System.nanoTime();
+        for (int i = 0; i < 10; i++)
+        {
+            RawBsonDocument document = reader.next();
+            assertEquals(name(i), document.getString(PetCodec.NAME).getValue());
+            //the append time is kept as wall-clock time, which is only precise to the millisecond
+            assertTrue(reader.appendedNanos() > before - 2_000_000);
+            assertTrue(reader.appendedNanos() < after + 2_000_000);
+        }
+        assertNull(reader.next());
+        spool.close();
+    }
+
+    @Test
+    public void rollsOverToNewSegments() throws IOException
+    {
+        DiskSpool spool = new DiskSpool(configuration);
+        int count = 1500;
+        for (int i = 0; i < count; i++)
+        {
+            assertTrue(spool.append(document(i)));
+        }
+        assertTrue(segments().size() >= 3);
+
+        SpoolReader reader = new SpoolReader(spool);
+        for (int i = 0; i < count; i++)
+        {
+            assertEquals(name(i), reader.next().getString(PetCodec.NAME).getValue());
+        }
+        assertNull(reader.next());
+        spool.close();
+    }
+
+    @Test
+    public void commitDeletesReplayedSegmentsAndSurvivesRestart() throws IOException
+    {
+        DiskSpool spool = new DiskSpool(configuration);
+        for (int i = 0; i < 1200; i++)
+        {
+            spool.append(document(i));
+        }
+        SpoolReader reader = new SpoolReader(spool);
+        for (int i = 0; i < 1000; i++)
+        {
+            reader.next();
+        }
+        SpoolPosition position = reader.position();
+        spool.commit(position);
+        assertEquals(position.getSegment(), segments().get(0).longValue());
+        spool.close();
+
+        DiskSpool reopened = new DiskSpool(configuration);
+        assertEquals(position.getSegment(), reopened.getCheckpoint().getSegment());
+        assertEquals(position.getOffset(), reopened.getCheckpoint().getOffset());
+        reopened.append(document(1200));
+        SpoolReader resumed = new SpoolReader(reopened);
+        for (int i = 1000; i <= 1200; i++)
+        {
+            assertEquals(name(i), resumed.next().getString(PetCodec.NAME).getValue());
+        }
+        assertNull(resumed.next());
+        reopened.close();
+    }
+
+    @Test
+    public void refusesAppendsWhileFull() throws IOException
+    {
+        configuration.setMaxSegments(2);
+        DiskSpool spool = new DiskSpool(configuration);
+        int appended = 0;
+        while (spool.append(document(appended)))
+        {
+            appended++;
+        }
+        assertTrue(appended > 0);
+
+        SpoolReader reader = new SpoolReader(spool);
+        for (int i = 0; i < appended; i++)
+        {
+            reader.next();
+        }
+        spool.commit(reader.position());
+        assertTrue(spool.append(document(appended)));
+        spool.close();
+    }
+
+    @Test
+    public void skipsTheRestOfASegmentAfterACorruptRecord() throws IOException
+    {
+        DiskSpool spool = new DiskSpool(configuration);
+        for (int i = 0; i < 3; i++)
+        {
+            spool.append(document(i));
+        }
+        spool.close();
+        Path segment = segmentPath(segments().get(0));
+        byte[] bytes = Files.readAllBytes(segment);
+        int first = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt(0);
+        //a byte in the middle of the second document
+        bytes[first + DiskSpool.RECORD_HEADER_LENGTH + 100] ^= 1;
+        Files.write(segment, bytes);
+
+        DiskSpool reopened = new DiskSpool(configuration);
+        SpoolReader reader = new SpoolReader(reopened);
+        assertEquals(name(0), reader.next().getString(PetCodec.NAME).getValue());
+        assertNull(reader.next());
+        reopened.append(document(3));
+        assertEquals(name(3), reader.next().getString(PetCodec.NAME).getValue());
+        reopened.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsDocumentsLargerThanASegment() throws IOException
+    {
+        DiskSpool spool = new DiskSpool(configuration);
+        Pet pet = new Pet(new String(new char[1024 * 1024]), 1, 1, "red", new Owner("Ann", "Main Street"));
+        spool.append(encoder.encode(pet));
+    }
+
+    private RawBsonDocument document(int index)
+    {
+        return encoder.encode(new Pet(name(index), 10, 5, "red", new Owner("Ann", "Main Street")));
+    }
+
+    private static String name(int index)
+    {
+        return index + new String(PADDING);
+    }
+
+    private List<Long> segments() throws IOException
+    {
+        List<Long> ids = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(folder.getRoot().toPath(), "segment-*.spool"))
+        {
+            for (Path path : paths)
+            {
+                String name = path.getFileName().toString();
+                ids.add(Long.parseLong(name.substring("segment-".length(), name.length() - ".spool".length())));
+            }
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private Path segmentPath(long id)
+    {
+        return folder.getRoot().toPath().resolve(String.format("segment-%020d.spool", id));
+    }
+}
@@ -0,0 +1,188 @@
+package spool;
+
+import codec.PetCodec;
+import codec.PetEncoder;
+import com.mongodb.MongoSocketException;
+import com.mongodb.ServerAddress;
+import config.BatchConfiguration;
+import config.SpoolConfiguration;
+import model.Owner;
+import model.Pet;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import repository.InMemoryPetRepository;
+import writer.BatchListener;
+import writer.BatchResult;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpoolReplayerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PetEncoder encoder = new PetEncoder(new PetCodec());
+    private final BatchConfiguration batchConfiguration = new BatchConfiguration();
+    private final SpoolConfiguration spoolConfiguration = new SpoolConfiguration();
+    private final CountingListener listener = new CountingListener();
+
+    @Before
+    public void setUp()
+    {
+        batchConfiguration.setSize(100);
+        batchConfiguration.setLingerMillis(1);
+        spoolConfiguration.setDirectory(folder.getRoot().getAbsolutePath());
+        spoolConfiguration.setSegmentSizeMb(1);
+        spoolConfiguration.setRetryBackoffMillis(1);
+        spoolConfiguration.setCheckpointIntervalMillis(10);
+    }
+
+    @Test
+    public void replaysEverythingAndCheckpointsBehindIt() throws IOException
+    {
+        DiskSpool spool = new DiskSpool(spoolConfiguration);
+        append(spool, 0, 1000);
+        InMemoryPetRepository repository = new InMemoryPetRepository(1000);
+        SpoolReplayer replayer = new SpoolReplayer(spool, repository, batchConfiguration, spoolConfiguration, listener);
+        replayer.start();
+        //close replays what is left before it stops
+        replayer.close();
+
+        assertEquals(1000, listener.inserted.get());
+        assertEquals(0, listener.failed.get());
+        assertEquals(1000, listener.timed.get());
+        long writePosition = spool.getWritePosition();
+        assertEquals(writePosition >>> 32, spool.getCheckpoint().getSegment());
+        assertEquals((int) writePosition, spool.getCheckpoint().getOffset());
+        spool.close();
+    }
+
+    @Test
+    public void resumesFromTheCheckpointAfterARestart() throws IOException
+    {
+        DiskSpool spool = new DiskSpool(spoolConfiguration);
+        append(spool, 0, 100);
+        SpoolReplayer replayer = new SpoolReplayer(spool, new InMemoryPetRepository(100), batchConfiguration,
+                spoolConfiguration, listener);
+        replayer.start();
+        replayer.close();
+        spool.close();
+
+        DiskSpool reopened = new DiskSpool(spoolConfiguration);
+        append(reopened, 100, 50);
+        CountingListener afterRestart = new CountingListener();
+        SpoolReplayer resumed = new SpoolReplayer(reopened, new InMemoryPetRepository(100), batchConfiguration,
+                spoolConfiguration, afterRestart);
+        resumed.start();
+        resumed.close();
+        reopened.close();
+
+        assertEquals(100, listener.inserted.get());
+        assertEquals(50, afterRestart.inserted.get());
+    }
+
+    @Test
+    public void retriesBatchesUntilTheRepositoryAcceptsThem() throws IOException, InterruptedException
+    {
+        DiskSpool spool = new DiskSpool(spoolConfiguration);
+        append(spool, 0, 100);
+        AtomicInteger failures = new AtomicInteger(3);
+        InMemoryPetRepository repository = new InMemoryPetRepository(100)
+        {
+            @Override
+            public void insertMany(List<? extends Pet> batch, boolean ordered)
+            {
+                if (failures.getAndDecrement() > 0)
+                {
+                    throw new MongoSocketException("unreachable", new ServerAddress());
+                }
+                super.insertMany(batch, ordered);
+            }
+        };
+        SpoolReplayer replayer = new SpoolReplayer(spool, repository, batchConfiguration, spoolConfiguration, listener);
+        replayer.start();
+        //a closed replayer gives up on failing batches, so wait for the retries first
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (listener.inserted.get() < 100 && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(10);
+        }
+        replayer.close();
+        spool.close();
+
+        assertEquals(3, listener.retries.get());
+        assertEquals(100, listener.inserted.get());
+    }
+
+    @Test
+    public void countsDocumentsWrittenBeforeACrashAsWritten() throws IOException
+    {
+        DiskSpool spool = new DiskSpool(spoolConfiguration);
+        append(spool, 0, 100);
+        InMemoryPetRepository repository = new InMemoryPetRepository(100);
+        SpoolReplayer replayer = new SpoolReplayer(spool, repository, batchConfiguration, spoolConfiguration, listener);
+        replayer.start();
+        replayer.close();
+        spool.close();
+
+        //as if the checkpoint had not been stored before the crash
+        DiskSpool again = new DiskSpool(spoolConfiguration);
+        again.commit(new SpoolPosition(spool.getCheckpoint().getSegment(), 0));
+        CountingListener replayed = new CountingListener();
+        SpoolReplayer second = new SpoolReplayer(again, repository, batchConfiguration, spoolConfiguration, replayed);
+        second.start();
+        second.close();
+        again.close();
+
+        assertEquals(100, replayed.inserted.get());
+        assertEquals(0, replayed.failed.get());
+    }
+
+    private void append(DiskSpool spool, int from, int count) throws IOException
+    {
+        for (int i = from; i < from + count; i++)
+        {
+            Pet pet = new Pet("pet-" + i, 10, 5, "red", new Owner("Ann", "Main Street"));
+            assertTrue(spool.append(encoder.encode(pet)));
+        }
+    }
+
+    private static class CountingListener implements BatchListener<Pet>
+    {
+        final AtomicInteger inserted = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger retries = new AtomicInteger();
+        final AtomicInteger timed = new AtomicInteger();
+
+        @Override
+        public void onBatch(List<? extends Pet> batch, BatchResult result)
+        {
+            inserted.addAndGet(result.getInserted());
+            failed.addAndGet(result.getFailed());
+            long[] enqueuedNanos = result.getEnqueuedNanos();
+            assertNotNull(enqueuedNanos);
+            assertEquals(batch.size(), enqueuedNanos.length);
+            for (long enqueued : enqueuedNanos)
+            {
+                if (enqueued <= result.getCompletedNanos())
+                {
+                    timed.incrementAndGet();
+                }
+            }
+        }
+
+        @Override
+        public void onRetry(List<? extends Pet> batch, Throwable failure, int attempt)
+        {
+            retries.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentBloomFilterTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void putReportsWhetherTheStringWasNew()
+    {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(1000, 0.01);
+        assertFalse(filter.mightContain("Rex"));
+        assertTrue(filter.put("Rex"));
+        assertTrue(filter.mightContain("Rex"));
+        assertFalse(filter.put("Rex"));
+        assertEquals(1, filter.getInserted());
+    }
+
+    @Test
+    public void bitCountIsAPowerOfTwo()
+    {
+        for (long expected : new long[]{1, 100, 12345, 1_000_000})
+        {
+            long bits = new ConcurrentBloomFilter(expected, 0.001).getBitCount();
+            assertEquals(Long.highestOneBit(bits), bits);
+        }
+    }
+
+    @Test
+    public void falsePositiveRateStaysNearTheRequestedOne()
+    {
+        int expected = 20_000;
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(expected, 0.01);
+        for (int i = 0; i < expected; i++)
+        {
+            filter.put("pet-" + i);
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++)
+        {
+            if (filter.mightContain("other-" + i))
+            {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / probes;
+        assertTrue("false positive rate " + rate, rate < 0.02);
+        assertTrue(filter.getExpectedFalsePositiveRate() <= 0.01);
+    }
+
+    @Test
+    public void concurrentPutsLoseNoBits() throws Exception
+    {
+        int threads = 4;
+        int perThread = 20_000;
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(threads * perThread, 0.01);
+        ExecutorService executor = ConcurrentUtils.newFixedThreadPool("bloom-test", threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+        {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                int added = 0;
+                for (int i = 0; i < perThread; i++)
+                {
+                    if (filter.put(thread + "-" + i))
+                    {
+                        added++;
+                    }
+                }
+                return added;
+            }));
+        }
+        start.countDown();
+        int added = 0;
+        for (Future<Integer> result : results)
+        {
+            added += result.get();
+        }
+        ConcurrentUtils.stop(executor);
+
+        for (int t = 0; t < threads; t++)
+        {
+            for (int i = 0; i < perThread; i++)
+            {
+                assertTrue(filter.mightContain(t + "-" + i));
+            }
+        }
+        //strings that were false positives when added are not counted
+        assertEquals(added, filter.getInserted());
+        assertTrue(added > threads * perThread * 0.98);
+    }
+
+    @Test
+    public void writeAndReadRoundTrip() throws IOException
+    {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(50_000, 0.001);
+        for (int i = 0; i < 10_000; i++)
+        {
+            filter.put("pet-" + i);
+        }
+        Path path = folder.getRoot().toPath().resolve("names.bloom");
+        filter.writeTo(path);
+
+        ConcurrentBloomFilter read = ConcurrentBloomFilter.readFrom(path);
+        assertEquals(filter.getBitCount(), read.getBitCount());
+        assertEquals(filter.getHashCount(), read.getHashCount());
+        assertEquals(filter.getInserted(), read.getInserted());
+        for (int i = 0; i < 10_000; i++)
+        {
+            assertTrue(read.mightContain("pet-" + i));
+        }
+        assertFalse(Files.exists(path.resolveSibling("names.bloom.tmp")));
+    }
+
+    @Test(expected = IOException.class)
+    public void readRejectsOtherFiles() throws IOException
+    {
+        Path path = folder.newFile("other").toPath();
+        Files.write(path, new byte[64]);
+        ConcurrentBloomFilter.readFrom(path);
+    }
+
+    @Test(expected = IOException.class)
+    public void readRejectsTruncatedFiles() throws IOException
+    {
+        ConcurrentBloomFilter filter = new ConcurrentBloomFilter(50_000, 0.001);
+        Path path = folder.getRoot().toPath().resolve("names.bloom");
+        filter.writeTo(path);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+        ConcurrentBloomFilter.readFrom(path);
+    }
+}
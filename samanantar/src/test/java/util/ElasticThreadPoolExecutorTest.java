@@ -0,0 +1,132 @@
+package util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ElasticThreadPoolExecutorTest
+{
+    private ElasticThreadPoolExecutor pool;
+
+    @After
+    public void tearDown()
+    {
+        if (pool != null)
+        {
+            ConcurrentUtils.stop(pool);
+        }
+    }
+
+    @Test
+    public void growsOnlyAfterTwoQueuingSamples() throws InterruptedException
+    {
+        //the sizer never runs on its own, the test takes the samples
+        pool = ConcurrentUtils.newElasticThreadPool("elastic-grow", 2, 3, 1, TimeUnit.HOURS);
+        submitBlocking(20, 20);
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        pool.resize();
+        assertEquals(2, pool.getTargetSize());
+        TimeUnit.MILLISECONDS.sleep(30);
+        pool.resize();
+        assertEquals(3, pool.getTargetSize());
+        assertEquals(3, pool.getCorePoolSize());
+        assertEquals(1, pool.getGrows());
+        assertTrue(pool.getLastDecision(), pool.getLastDecision().startsWith("grew 2 -> 3"));
+
+        //still queuing, but at the maximum
+        for (int i = 0; i < 6; i++)
+        {
+            TimeUnit.MILLISECONDS.sleep(10);
+            pool.resize();
+        }
+        assertEquals(3, pool.getTargetSize());
+        assertEquals(1, pool.getGrows());
+    }
+
+    @Test
+    public void shrinksOneThreadAtATimeAfterFiveIdleSamples() throws InterruptedException
+    {
+        pool = ConcurrentUtils.newElasticThreadPool("elastic-shrink", 1, 8, 1, TimeUnit.HOURS);
+        submitBlocking(30, 20);
+        TimeUnit.MILLISECONDS.sleep(50);
+        pool.resize();
+        TimeUnit.MILLISECONDS.sleep(30);
+        pool.resize();
+        assertEquals(2, pool.getTargetSize());
+        awaitIdle();
+
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+        {
+            pool.resize();
+            sizes.add(pool.getTargetSize());
+        }
+        assertEquals(1, pool.getTargetSize());
+        assertEquals(1, pool.getShrinks());
+        //queuing samples reset the idle streak, so the first four samples after the load never shrink
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(2, sizes.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void neverShrinksBelowTheMinimum()
+    {
+        pool = ConcurrentUtils.newElasticThreadPool("elastic-minimum", 2, 4, 1, TimeUnit.HOURS);
+        for (int i = 0; i < 20; i++)
+        {
+            pool.resize();
+        }
+        assertEquals(2, pool.getTargetSize());
+        assertEquals(0, pool.getShrinks());
+    }
+
+    @Test
+    public void rejectsBadBounds()
+    {
+        try
+        {
+            ConcurrentUtils.newElasticThreadPool("elastic-bounds", 4, 2);
+            fail("accepted a maximum below the minimum");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertEquals("Bad elastic pool bounds: 4..2", ex.getMessage());
+        }
+    }
+
+    private void submitBlocking(int tasks, long millis)
+    {
+        for (int i = 0; i < tasks; i++)
+        {
+            pool.execute(() -> {
+                try
+                {
+                    TimeUnit.MILLISECONDS.sleep(millis);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+    }
+
+    private void awaitIdle() throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((pool.getQueue().size() > 0 || pool.getActiveCount() > 0) && System.nanoTime() < deadline)
+        {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}
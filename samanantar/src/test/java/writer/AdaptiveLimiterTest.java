@@ -0,0 +1,163 @@
+package writer;
+
+import config.LimiterConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveLimiterTest
+{
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private LimiterConfiguration configuration;
+
+    @Before
+    public void setUp()
+    {
+        configuration = new LimiterConfiguration();
+        configuration.setInitialLimit(10);
+        configuration.setMinLimit(1);
+        configuration.setMaxLimit(16);
+        configuration.setLatencyTolerance(2.0);
+        configuration.setBackoffRatio(0.9);
+        configuration.setBaselineWindow(100);
+    }
+
+    @Test
+    public void growsByAboutOnePerRoundWhileTheLimitIsUsed() throws InterruptedException
+    {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(configuration);
+        double before = limiter.getLimit();
+        sendRound(limiter, FAST);
+        double after = limiter.getLimit();
+        assertTrue(after > before);
+        assertTrue(after < before + 1);
+        for (int i = 0; i < 100; i++)
+        {
+            sendRound(limiter, FAST);
+        }
+        assertEquals(16, limiter.getLimit(), 0);
+        assertTrue(limiter.getIncreases() >= 6);
+        assertEquals(0, limiter.getDecreases());
+    }
+
+    @Test
+    public void doesNotGrowWhileTheLimitIsNotUsed() throws InterruptedException
+    {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(configuration);
+        for (int i = 0; i < 100; i++)
+        {
+            limiter.acquire();
+            limiter.release(FAST, false);
+        }
+        assertEquals(10, limiter.getLimit(), 0);
+    }
+
+    @Test
+    public void slowBatchDecreasesTheLimitOncePerRound() throws InterruptedException
+    {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(configuration);
+        limiter.acquire();
+        limiter.release(FAST, false);
+        assertEquals(5, limiter.getBaselineMillis(), 0.001);
+
+        limiter.acquire();
+        limiter.acquire();
+        limiter.release(SLOW, false);
+        assertEquals(9, limiter.getLimit(), 0.001);
+        //sent before the decrease, so it does not count again
+        limiter.release(SLOW, false);
+        assertEquals(9, limiter.getLimit(), 0.001);
+
+        limiter.acquire();
+        TimeUnit.NANOSECONDS.sleep(SLOW * 2);
+        limiter.release(SLOW, false);
+        assertEquals(8.1, limiter.getLimit(), 0.001);
+        assertEquals(2, limiter.getDecreases());
+    }
+
+    @Test
+    public void slowdownsWithinTheToleranceAreIgnored() throws InterruptedException
+    {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(configuration);
+        limiter.acquire();
+        limiter.release(FAST, false);
+        limiter.acquire();
+        limiter.release(FAST * 2 - 1, false);
+        assertEquals(10, limiter.getLimit(), 0);
+        assertEquals(0, limiter.getDecreases());
+    }
+
+    @Test
+    public void firstOverloadDecreasesWhateverTheRoundTrip() throws InterruptedException
+    {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(configuration);
+        limiter.acquire();
+        limiter.release(Long.MAX_VALUE / 2, true);
+        assertEquals(9, limiter.getLimit(), 0.001);
+    }
+
+    @Test
+    public void neverDropsBelowTheMinimum() throws InterruptedException
+    {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(configuration);
+        for (int i = 0; i < 100; i++)
+        {
+            limiter.acquire();
+            TimeUnit.MILLISECONDS.sleep(1);
+            limiter.release(0, true);
+        }
+        assertEquals(1, limiter.getLimit(), 0);
+    }
+
+    @Test
+    public void acquireWaitsAtTheLimit() throws InterruptedException
+    {
+        configuration.setInitialLimit(1);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(configuration);
+        limiter.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try
+            {
+                limiter.acquire();
+                acquired.countDown();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, limiter.getWaits());
+
+        limiter.release(FAST, false);
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getInFlight());
+        waiting.join();
+    }
+
+    /**
+     * Sends as many batches as the limit allows and completes them all with the given round trip.
+     */
+    private static void sendRound(AdaptiveLimiter limiter, long roundTripNanos) throws InterruptedException
+    {
+        int batches = (int) limiter.getLimit();
+        for (int i = 0; i < batches; i++)
+        {
+            limiter.acquire();
+        }
+        for (int i = 0; i < batches; i++)
+        {
+            limiter.release(roundTripNanos, false);
+        }
+    }
+}